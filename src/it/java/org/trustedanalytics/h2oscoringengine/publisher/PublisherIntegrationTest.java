@@ -13,32 +13,55 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APPS_ENDPOINT;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BITS_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BROKER_CATALOG_ENDPOINT;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_IN_SPACE_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.BIND_ROUTE_TO_APP_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.GET_ROUTES_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.GET_SERVICE_GUID_BY_NAME_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.GET_SERVICE_PLANS_ENDPOINT_TEMPLATE;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.RESOURCE_MATCH_ENDPOINT;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.ROUTES_ENDPOINT;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SERVICE_PLAN_VISIBILITIES_ENDPOINT;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SHARED_DOMAINS_ENDPOINT;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
 import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.EngineJarCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.SpaceAppIndex;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.FsDirectoryOperations;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.WorkingDirectories;
 import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.EngineRegistry;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
 import org.trustedanalytics.h2oscoringengine.publisher.restapi.PublishRequest;
 import org.trustedanalytics.h2oscoringengine.publisher.steps.H2oResourcesDownloadingStep;
 
@@ -86,7 +109,10 @@ public class PublisherIntegrationTest {
   private final String bindRouteEndpoint = BIND_ROUTE_TO_APP_ENDPOINT_TEMPLATE
       .replaceAll("\\{appGuid\\}", testAppGuid).replaceAll("\\{routeGuid\\}", testRouteGuid);
   private final String uploadAppBitsEndpoint =
-      APP_BITS_ENDPOINT_TEMPLATE.replaceAll("\\{appGuid\\}", testAppGuid);
+      APP_BITS_ENDPOINT_TEMPLATE.replaceAll("\\{appGuid\\}", testAppGuid) + "?async=true";
+  private final String appEndpoint =
+      APP_ENDPOINT_TEMPLATE.replaceAll("\\{appGuid\\}", testAppGuid);
+  private final String testUploadJobPath = "/v2/jobs/upload-job-guid";
   private final String getServiceGuidByNameEndpoint =
       GET_SERVICE_GUID_BY_NAME_ENDPOINT_TEMPLATE.replaceAll("\\{serviceName\\}", testModelName);
   private final String servicePlanEndpoint =
@@ -96,8 +122,11 @@ public class PublisherIntegrationTest {
   @Rule
   public final ExpectedException thrown = ExpectedException.none();
 
+  private EngineRegistry engineRegistry;
+
   @Before
-  public void setUp() {
+  public void setUp() throws IOException {
+    engineRegistry = new EngineRegistry(Files.createTempDirectory("h2o-publisher-test-registry"));
     cfServerMock = MockRestServiceServer.createServer(cfRestTemplate);
     h2oServerMock = MockRestServiceServer.createServer(h2oRestTemplate);
     appBrokerMock = MockRestServiceServer.createServer(appBrokerRestTemplate);
@@ -110,11 +139,7 @@ public class PublisherIntegrationTest {
   @Test
   public void publish_cfAppExists_exceptionThrown() throws Exception {
     // given
-    Publisher publisher = new Publisher(
-        new CfConnectionData(cfRestTemplate, testCfApi, testTechnicalSpaceGuid), h2oRestTemplate,
-        new AppBrokerConnectionData(appBrokerRestTemplate, new BasicAuthServerCredentials(
-            testAppBrokerHost, testAppBrokerUsername, testAppBrokerPassword)),
-        engineBaseResourcePath);
+    Publisher publisher = createPublisher();
     cfServerMock.expect(requestTo(testCfApi + appExistsRequest)).andExpect(method(HttpMethod.GET))
         .andRespond(withSuccess("{\"total_results\": 1}", MediaType.APPLICATION_JSON));
 
@@ -128,11 +153,7 @@ public class PublisherIntegrationTest {
   @Test
   public void publish_allRequestsOccured() throws Exception {
     // given
-    Publisher publisher = new Publisher(
-        new CfConnectionData(cfRestTemplate, testCfApi, testTechnicalSpaceGuid), h2oRestTemplate,
-        new AppBrokerConnectionData(appBrokerRestTemplate, new BasicAuthServerCredentials(
-            testAppBrokerHost, testAppBrokerUsername, testAppBrokerPassword)),
-        engineBaseResourcePath);
+    Publisher publisher = createPublisher();
     setCfApiExpectedCalls();
     setH2oServerExpectedCalls();
     setAppBrokerExpectedCalls();
@@ -146,24 +167,280 @@ public class PublisherIntegrationTest {
     appBrokerMock.verify();
   }
 
+  @Test
+  public void publish_engineRecordedInRegistry() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    setCfApiExpectedCalls();
+    setH2oServerExpectedCalls();
+    setAppBrokerExpectedCalls();
+
+    // when
+    publisher.publish(testPublishRequest);
+
+    // then
+    PublishedEngine engine = engineRegistry.get(testModelName).get();
+    assertThat(engine.getAppGuid(), equalTo(testAppGuid));
+    assertThat(engine.getRouteGuid(), equalTo(testRouteGuid));
+    assertThat(engine.getServiceGuid(), equalTo(testServiceGuid));
+    assertThat(engine.getServicePlanGuid(), equalTo(testPlanGuid));
+    assertThat(engine.getPojoSha256(), equalTo(DigestUtils.sha256Hex(prepareModelJavaFile())));
+  }
+
+  @Test
+  public void publish_buildFailed_createdAppDeleted() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    cfServerMock.expect(requestTo(testCfApi + appExistsRequest)).andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("{\"total_results\": 0}", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + APPS_ENDPOINT))
+        .andRespond(withSuccess("{\"metadata\":{\"guid\":\"" + testAppGuid + "\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + SHARED_DOMAINS_ENDPOINT)).andRespond(
+        withSuccess("{\"resources\":[{\"metadata\":{\"guid\":\"" + testDomainGuid + "\"}}]}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + getRouteRequest))
+        .andRespond(withSuccess("{\"total_results\":\"0\"}", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + ROUTES_ENDPOINT)).andExpect(method(HttpMethod.POST))
+        .andRespond(withSuccess("{\"metadata\":{\"guid\":\"" + testRouteGuid + "\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + bindRouteEndpoint)).andRespond(withSuccess());
+    cfServerMock.expect(requestTo(testCfApi + ROUTES_ENDPOINT + "/" + testRouteGuid))
+        .andExpect(method(HttpMethod.DELETE)).andRespond(withSuccess());
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint)).andExpect(method(HttpMethod.DELETE))
+        .andRespond(withSuccess());
+    h2oServerMock.expect(requestTo(testH2oServerUrl + getModelRequest))
+        .andRespond(withServerError());
+
+    // when
+    try {
+      publisher.publish(testPublishRequest);
+    } catch (EngineBuildingException e) {
+      // expected
+    }
+
+    // then
+    cfServerMock.verify();
+  }
+
+  @Test
+  public void publish_routeCreationFailed_createdAppDeleted() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    cfServerMock.expect(requestTo(testCfApi + appExistsRequest)).andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("{\"total_results\": 0}", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + APPS_ENDPOINT))
+        .andRespond(withSuccess("{\"metadata\":{\"guid\":\"" + testAppGuid + "\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + SHARED_DOMAINS_ENDPOINT)).andRespond(
+        withSuccess("{\"resources\":[{\"metadata\":{\"guid\":\"" + testDomainGuid + "\"}}]}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + getRouteRequest)).andRespond(withServerError());
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint)).andExpect(method(HttpMethod.DELETE))
+        .andRespond(withSuccess());
+    setH2oServerExpectedCalls();
+
+    // when
+    try {
+      publisher.publish(testPublishRequest);
+    } catch (RuntimeException e) {
+      // expected
+    }
+
+    // then
+    cfServerMock.verify();
+  }
+
+  @Test
+  public void publish_bitsUploadFailed_createdAppAndRouteDeleted() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    cfServerMock.expect(requestTo(testCfApi + appExistsRequest)).andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("{\"total_results\": 0}", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + APPS_ENDPOINT))
+        .andRespond(withSuccess("{\"metadata\":{\"guid\":\"" + testAppGuid + "\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + SHARED_DOMAINS_ENDPOINT)).andRespond(
+        withSuccess("{\"resources\":[{\"metadata\":{\"guid\":\"" + testDomainGuid + "\"}}]}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + getRouteRequest))
+        .andRespond(withSuccess("{\"total_results\":\"0\"}", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + ROUTES_ENDPOINT)).andExpect(method(HttpMethod.POST))
+        .andRespond(withSuccess("{\"metadata\":{\"guid\":\"" + testRouteGuid + "\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + bindRouteEndpoint)).andRespond(withSuccess());
+    cfServerMock.expect(requestTo(testCfApi + RESOURCE_MATCH_ENDPOINT))
+        .andExpect(method(HttpMethod.PUT))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + uploadAppBitsEndpoint))
+        .andExpect(method(HttpMethod.PUT)).andRespond(withServerError());
+    cfServerMock.expect(requestTo(testCfApi + ROUTES_ENDPOINT + "/" + testRouteGuid))
+        .andExpect(method(HttpMethod.DELETE)).andRespond(withSuccess());
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint)).andExpect(method(HttpMethod.DELETE))
+        .andRespond(withSuccess());
+    setH2oServerExpectedCalls();
+
+    // when
+    try {
+      publisher.publish(testPublishRequest);
+    } catch (EnginePublicationException | RuntimeException e) {
+      // expected
+    }
+
+    // then
+    cfServerMock.verify();
+    assertThat(engineRegistry.get(testModelName).isPresent(), equalTo(false));
+  }
+
+  @Test
+  public void publish_planVisibilityFailed_serviceUnregisteredAndAppDeleted() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    setCfApiExpectedCalls(withServerError());
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint)).andExpect(method(HttpMethod.DELETE))
+        .andRespond(withSuccess());
+    setH2oServerExpectedCalls();
+    setAppBrokerExpectedCalls();
+    appBrokerMock
+        .expect(requestTo(startsWith(testAppBrokerHost + APP_BROKER_CATALOG_ENDPOINT + "/")))
+        .andExpect(method(HttpMethod.DELETE)).andRespond(withSuccess());
+
+    // when
+    try {
+      publisher.publish(testPublishRequest);
+    } catch (EnginePublicationException | RuntimeException e) {
+      // expected
+    }
+
+    // then
+    cfServerMock.verify();
+    appBrokerMock.verify();
+    assertThat(engineRegistry.get(testModelName).isPresent(), equalTo(false));
+  }
+
+  @Test
+  public void update_engineInRegistry_bitsReplacedAndAppRestaged() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    engineRegistry.register(new PublishedEngine(testModelName, "old-hash", testAppGuid,
+        testRouteGuid, "service-id", "plan-id", testServiceGuid, testPlanGuid, 1, 1));
+    setH2oServerExpectedCalls();
+    cfServerMock.expect(requestTo(testCfApi + RESOURCE_MATCH_ENDPOINT))
+        .andExpect(method(HttpMethod.PUT))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + uploadAppBitsEndpoint))
+        .andExpect(method(HttpMethod.PUT)).andRespond(withSuccess(
+            "{\"metadata\":{\"url\":\"\"},\"entity\":{\"status\":\"finished\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint)).andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("{\"entity\":{\"state\":\"STARTED\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint + "/restage"))
+        .andExpect(method(HttpMethod.POST)).andRespond(withSuccess());
+
+    // when
+    publisher.update(testPublishRequest);
+
+    // then
+    cfServerMock.verify();
+    PublishedEngine engine = engineRegistry.get(testModelName).get();
+    assertThat(engine.getPojoSha256(), equalTo(DigestUtils.sha256Hex(prepareModelJavaFile())));
+    assertThat(engine.getServiceGuid(), equalTo(testServiceGuid));
+    assertThat(engine.getFirstPublishedAt(), equalTo(1L));
+  }
+
+  @Test
+  public void update_registeredAppDeleted_appFoundByNameAndRegistryEntryReplaced()
+      throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    String staleAppGuid = "deleted-app-guid";
+    engineRegistry.register(new PublishedEngine(testModelName, "old-hash", staleAppGuid,
+        testRouteGuid, "service-id", "plan-id", testServiceGuid, testPlanGuid, 1, 1));
+    setH2oServerExpectedCalls();
+    cfServerMock.expect(requestTo(testCfApi + RESOURCE_MATCH_ENDPOINT))
+        .andExpect(method(HttpMethod.PUT))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi
+        + APP_BITS_ENDPOINT_TEMPLATE.replaceAll("\\{appGuid\\}", staleAppGuid) + "?async=true"))
+        .andExpect(method(HttpMethod.PUT)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+    cfServerMock.expect(requestTo(testCfApi + appExistsRequest)).andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("{\"total_results\": 1,\"resources\":[{\"metadata\":{\"guid\":\""
+            + testAppGuid + "\"}}]}", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + RESOURCE_MATCH_ENDPOINT))
+        .andExpect(method(HttpMethod.PUT))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + uploadAppBitsEndpoint))
+        .andExpect(method(HttpMethod.PUT)).andRespond(withSuccess(
+            "{\"metadata\":{\"url\":\"\"},\"entity\":{\"status\":\"finished\"}}",
+            MediaType.APPLICATION_JSON));
+    cfServerMock.expect(requestTo(testCfApi + appEndpoint)).andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("{\"entity\":{\"state\":\"STOPPED\"}}",
+            MediaType.APPLICATION_JSON));
+
+    // when
+    publisher.update(testPublishRequest);
+
+    // then
+    cfServerMock.verify();
+    PublishedEngine engine = engineRegistry.get(testModelName).get();
+    assertThat(engine.getAppGuid(), equalTo(testAppGuid));
+    assertThat(engine.getServiceGuid(), nullValue());
+  }
+
   @Test
   public void getScoringEngineJar_h2oRequestsOccured() throws Exception {
     // given
-    Publisher publisher = new Publisher(
-        new CfConnectionData(cfRestTemplate, testCfApi, testTechnicalSpaceGuid), h2oRestTemplate,
-        new AppBrokerConnectionData(appBrokerRestTemplate, new BasicAuthServerCredentials(
-            testAppBrokerHost, testAppBrokerUsername, testAppBrokerPassword)),
-        engineBaseResourcePath);
+    Publisher publisher = createPublisher();
     setH2oServerExpectedCalls();
 
     // when
-    publisher.getScoringEngineJar(testH2oCredentials, testModelName);
+    publisher.getScoringEngineJar(testH2oCredentials, testModelName).close();
     
     //then
     h2oServerMock.verify();
   }
 
+  @Test
+  public void prebuildScoringEngine_h2oRequestsOccured() throws Exception {
+    // given
+    Publisher publisher = createPublisher();
+    setH2oServerExpectedCalls();
+
+    // when
+    publisher.prebuildScoringEngine(testH2oCredentials, testModelName);
+
+    //then
+    h2oServerMock.verify();
+  }
+
+  private Publisher createPublisher() throws IOException, EnginePublicationException {
+    return new Publisher(
+        new CfConnectionData(cfRestTemplate, testCfApi, testTechnicalSpaceGuid,
+            new CfMetadataCache(0),
+            new SpaceAppIndex(testCfApi, cfRestTemplate, testTechnicalSpaceGuid, 0),
+            Executors.newSingleThreadExecutor()),
+        h2oRestTemplate,
+        new AppBrokerConnectionData(appBrokerRestTemplate, new BasicAuthServerCredentials(
+            testAppBrokerHost, testAppBrokerUsername, testAppBrokerPassword)),
+        new EngineBuildingResources(
+            new EngineBaseJar(engineBaseResourcePath,
+                Files.createTempDirectory("h2o-publisher-test-base")),
+            new EngineJarCache(Files.createTempDirectory("h2o-publisher-test-cache"), 0),
+            new GenmodelLibCache(Files.createTempDirectory("h2o-publisher-test-genmodel")),
+            // single thread keeps H2O requests in order expected by MockRestServiceServer
+            Executors.newSingleThreadExecutor(), ForkJoinPool.commonPool(),
+            Executors.newCachedThreadPool(), 1,
+            new WorkingDirectories(Files.createTempDirectory("h2o-publisher-test-work"),
+                new FsDirectoryOperations(), 0)),
+        engineRegistry);
+  }
+
   private void setCfApiExpectedCalls() {
+    setCfApiExpectedCalls(withSuccess());
+  }
+
+  private void setCfApiExpectedCalls(ResponseCreator planVisibilityResponse) {
     // checking if app exists
     cfServerMock.expect(requestTo(testCfApi + appExistsRequest)).andExpect(method(HttpMethod.GET))
         .andRespond(withSuccess("{\"total_results\": 0}", MediaType.APPLICATION_JSON));
@@ -183,9 +460,19 @@ public class PublisherIntegrationTest {
     // binding route to app
     cfServerMock.expect(requestTo(testCfApi + bindRouteEndpoint)).andRespond(withSuccess(
         "{\"metadata\":{\"guid\":\"" + testRouteGuid + "\"}}", MediaType.APPLICATION_JSON));
+    // matching app bits with CF resource cache
+    cfServerMock.expect(requestTo(testCfApi + RESOURCE_MATCH_ENDPOINT))
+        .andExpect(method(HttpMethod.PUT))
+        .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
     // uploading app bits
     cfServerMock.expect(requestTo(testCfApi + uploadAppBitsEndpoint))
-        .andExpect(method(HttpMethod.PUT)).andRespond(withSuccess());
+        .andExpect(method(HttpMethod.PUT)).andRespond(withSuccess(
+            "{\"metadata\":{\"url\":\"" + testUploadJobPath + "\"},"
+                + "\"entity\":{\"status\":\"queued\"}}", MediaType.APPLICATION_JSON));
+
+    cfServerMock.expect(requestTo(testCfApi + testUploadJobPath))
+        .andExpect(method(HttpMethod.GET)).andRespond(withSuccess(
+            "{\"entity\":{\"status\":\"finished\"}}", MediaType.APPLICATION_JSON));
     // getting service guid
     cfServerMock.expect(requestTo(testCfApi + getServiceGuidByNameEndpoint)).andRespond(
         withSuccess("{\"resources\":[{\"metadata\":{\"guid\":\"" + testServiceGuid + "\"}}]}",
@@ -196,7 +483,7 @@ public class PublisherIntegrationTest {
             MediaType.APPLICATION_JSON));
     // setting service plan visibility
     cfServerMock.expect(requestTo(testCfApi + servicePlanVisibilityEndpoint))
-        .andRespond(withSuccess());
+        .andRespond(planVisibilityResponse);
 
   }
 
@@ -204,6 +491,11 @@ public class PublisherIntegrationTest {
     h2oServerMock.expect(requestTo(testH2oServerUrl + getModelRequest))
         .andExpect(method(HttpMethod.GET))
         .andRespond(withSuccess(prepareModelJavaFile(), MediaType.APPLICATION_OCTET_STREAM));
+    h2oServerMock.expect(requestTo(testH2oServerUrl + GenmodelLibCache.H2O_SERVER_ABOUT_PATH))
+        .andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess(
+            "{\"entries\":[{\"name\":\"Build project version\",\"value\":\"3.6.0.11\"}]}",
+            MediaType.APPLICATION_JSON));
     h2oServerMock.expect(requestTo(testH2oServerUrl + getLibRequest))
         .andExpect(method(HttpMethod.GET))
         .andRespond(withSuccess(prepareGenModelLib(), MediaType.APPLICATION_OCTET_STREAM));
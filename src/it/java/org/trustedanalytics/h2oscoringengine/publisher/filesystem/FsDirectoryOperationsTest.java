@@ -77,4 +77,33 @@ public class FsDirectoryOperationsTest {
     assertThat(Files.exists(existingDir.resolve(expectedSubDirName)), is(true));
   }
 
+  @Test
+  public void createUniqueDirectory_samePrefixTwice_differentDirectoriesCreated()
+      throws Exception {
+    // given
+    FsDirectoryOperations dirOperations = new FsDirectoryOperations();
+
+    // when
+    Path first = dirOperations.createUniqueDirectory(nonExistingDir, "some-model-");
+    Path second = dirOperations.createUniqueDirectory(nonExistingDir, "some-model-");
+
+    // then
+    assertThat(Files.isDirectory(first), is(true));
+    assertThat(Files.isDirectory(second), is(true));
+    assertThat(first.equals(second), is(false));
+    assertThat(first.getFileName().toString().startsWith("some-model-"), is(true));
+  }
+
+  @Test
+  public void deleteDirectoryTree_directoryWithFiles_directoryDeleted() throws Exception {
+    // given
+    FsDirectoryOperations dirOperations = new FsDirectoryOperations();
+
+    // when
+    dirOperations.deleteDirectoryTree(existingDir);
+
+    // then
+    assertThat(Files.exists(existingDir), is(false));
+  }
+
 }
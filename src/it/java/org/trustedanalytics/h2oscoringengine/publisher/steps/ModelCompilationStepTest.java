@@ -15,12 +15,15 @@
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.emptyArray;
 import static org.hamcrest.Matchers.hasItemInArray;
+import static org.hamcrest.Matchers.notNullValue;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.jar.JarFile;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -62,6 +65,36 @@ public class ModelCompilationStepTest {
     assertThat(files, hasItemInArray("model.class"));
   }
   
+  @Test
+  public void compileModelInMemory_packagedJarContainsClassFile() throws Exception {
+    // given
+    ModelCompilationStep step = new ModelCompilationStep(testModelJavaFile, testLibFile);
+    Path jarDir = Files.createTempDirectory("h2o-publisher-test-jar");
+
+    // when
+    step.compileModelInMemory().packageModel(jarDir);
+
+    // then
+    try (JarFile modelJar = new JarFile(jarDir.resolve("model.jar").toFile())) {
+      assertThat(modelJar.getJarEntry("model.class"), notNullValue());
+    }
+    assertThat(new File(expectedClassesDir.toString()).list(), emptyArray());
+  }
+
+  @Test
+  public void compileModelInMemory_modelClassWithCompilationError_exceptionThrown()
+      throws Exception {
+    // given
+    ModelCompilationStep step =
+        new ModelCompilationStep(testModelJavaFileWithCompilationError, testLibFile);
+
+    // then
+    thrown.expect(EngineBuildingException.class);
+
+    // when
+    step.compileModelInMemory();
+  }
+
   @Test
   public void compileModel_modelClassWithCompilationError_exceptionThrown() throws Exception {
     // given
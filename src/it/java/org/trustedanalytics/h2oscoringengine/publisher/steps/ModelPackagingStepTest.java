@@ -14,6 +14,7 @@
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItemInArray;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -25,7 +26,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 
 import org.junit.Before;
@@ -37,6 +45,8 @@ import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
 import org.trustedanalytics.h2oscoringengine.publisher.TestCompilationResourcesBuilder;
 import org.trustedanalytics.h2oscoringengine.publisher.steps.ModelPackagingStep.DirectoryTraversingException;
 
+import com.google.common.io.ByteStreams;
+
 public class ModelPackagingStepTest {
 
   private Path compiledClasses;
@@ -73,6 +83,30 @@ public class ModelPackagingStepTest {
     assertThat(files, hasItemInArray("model.jar"));
   }
 
+  @Test
+  public void packageModel_compressionPool_classesCompressedInOrder() throws Exception {
+    // given
+    Map<String, byte[]> classes = new TreeMap<>();
+    for (int i = 0; i < 100; i++) {
+      classes.put("model$Tree_" + i + ".class", ("class content " + i).getBytes());
+    }
+    ModelPackagingStep step = new ModelPackagingStep(classes);
+
+    // when
+    step.packageModel(expectedJarDir, new ForkJoinPool(4));
+
+    // then
+    List<String> entryNames = new ArrayList<>();
+    try (JarFile modelJar = new JarFile(expectedJarDir.resolve("model.jar").toFile())) {
+      for (JarEntry entry : Collections.list(modelJar.entries())) {
+        entryNames.add(entry.getName());
+        assertThat(ByteStreams.toByteArray(modelJar.getInputStream(entry)),
+            equalTo(classes.get(entry.getName())));
+      }
+    }
+    assertThat(entryNames, equalTo(new ArrayList<>(classes.keySet())));
+  }
+
   @Test
   public void packageModel_invalidClassesDir_exceptionThrown() throws Exception {
     // given
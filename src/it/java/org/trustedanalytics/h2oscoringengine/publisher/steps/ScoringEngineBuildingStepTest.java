@@ -15,23 +15,29 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.hamcrest.CoreMatchers.endsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.ZipFile;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
 import org.trustedanalytics.h2oscoringengine.publisher.TestCompilationResourcesBuilder;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.UpdatableJar;
 
 public class ScoringEngineBuildingStepTest {
   
   private String engineBaseResourcePath = "/runtime/h2o-scoring-engine-base-0.5.0.jar";
-  private String invalidResourcePath = "/sajfdk/dkgjfk.jar";
+  private EngineBaseJar engineBaseJar;
   private Path compiledClasses;
   private Path jarDir;
   private Path expectedScoringEngineDir;
@@ -46,6 +52,13 @@ public class ScoringEngineBuildingStepTest {
     this.compiledClasses = resourcesBuilder.prepareCompiledModelClasses("model");
     this.jarDir = Files.createTempDirectory("h2o-publisher-test-jar");
     this.expectedScoringEngineDir = Files.createTempDirectory("h2o-publisher-test-engine");
+    this.engineBaseJar = new EngineBaseJar(engineBaseResourcePath,
+        Files.createTempDirectory("h2o-publisher-test-base"));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    engineBaseJar.close();
   }
 
   @Test
@@ -54,33 +67,39 @@ public class ScoringEngineBuildingStepTest {
     ScoringEngineBuildingStep step = new ModelPackagingStep(compiledClasses).packageModel(jarDir);
     
     // when
-    Path scoringEngineJar = step.buildScoringEngine(expectedScoringEngineDir, engineBaseResourcePath);
+    Path scoringEngineJar = step.buildScoringEngine(expectedScoringEngineDir, engineBaseJar);
     
     // then
     assertThat(scoringEngineJar.toString(), endsWith(".jar"));
   }
   
   @Test
-  public void buildScoringEngine_invalidDir_exceptionThrown() throws Exception {
-    // given 
+  public void buildScoringEngine_engineBaseCopiedBeforeModelPackaged_jarContainsBaseAndModel()
+      throws Exception {
+    // given
+    UpdatableJar engineBase =
+        ScoringEngineBuildingStep.createEngineBase(expectedScoringEngineDir, engineBaseJar);
     ScoringEngineBuildingStep step = new ModelPackagingStep(compiledClasses).packageModel(jarDir);
-    
+
     // when
+    Path scoringEngineJar = step.buildScoringEngine(engineBase);
+
     // then
-    thrown.expect(EngineBuildingException.class);
-    step.buildScoringEngine(invalidDirForScoringEngine, engineBaseResourcePath);
-    
+    try (ZipFile jar = new ZipFile(scoringEngineJar.toFile())) {
+      assertThat(jar.size(), equalTo(engineBaseJar.getEntries().size() + 1));
+      assertThat(jar.getEntry("lib/model.jar"), notNullValue());
+    }
   }
-  
+
   @Test
-  public void buildScoringEngine_resourceNotFound_exceptionThrown() throws EngineBuildingException {
-    //given
+  public void buildScoringEngine_invalidDir_exceptionThrown() throws Exception {
+    // given 
     ScoringEngineBuildingStep step = new ModelPackagingStep(compiledClasses).packageModel(jarDir);
     
-    //when
-    //then
+    // when
+    // then
     thrown.expect(EngineBuildingException.class);
-    step.buildScoringEngine(expectedScoringEngineDir, invalidResourcePath);
+    step.buildScoringEngine(invalidDirForScoringEngine, engineBaseJar);
     
   }
 
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Compares copying engine base JAR into scoring engine JAR with and without recompressing its
+ * entries.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec@run-benchmarks
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EngineJarAssemblyBenchmark {
+
+  @Param("/runtime/h2o-scoring-engine-base-0.5.1.jar")
+  private String engineBaseJarResourcePath;
+
+  private Path workDir;
+  private EngineBaseJar engineBaseJar;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.workDir = Files.createTempDirectory("h2o-publisher-benchmark");
+    this.engineBaseJar = new EngineBaseJar(engineBaseJarResourcePath, workDir);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    engineBaseJar.close();
+    FileSystemUtils.deleteRecursively(workDir.toFile());
+  }
+
+  /**
+   * Copies all entries of engine base JAR decompressing and compressing them again, the way
+   * engines were assembled before raw copying.
+   */
+  @Benchmark
+  public Path recompressingCopy() throws IOException {
+    Path engineJarPath = workDir.resolve("recompressed.jar");
+    try (JarFile baseJar = new JarFile(engineBaseJar.getJarPath().toFile());
+        ZipArchiveOutputStream engineJar = new ZipArchiveOutputStream(engineJarPath.toFile())) {
+      for (JarEntry entry : Collections.list(baseJar.entries())) {
+        engineJar.putArchiveEntry(new ZipArchiveEntry(entry));
+        try (InputStream content = baseJar.getInputStream(entry)) {
+          ByteStreams.copy(content, engineJar);
+        }
+        engineJar.closeArchiveEntry();
+      }
+    }
+    return engineJarPath;
+  }
+
+  @Benchmark
+  public Path rawCopy() throws IOException {
+    try (UpdatableJar engineJar = new UpdatableJar("raw", workDir)) {
+      return engineJar.addRawJarContent(engineBaseJar).getJarPath();
+    }
+  }
+}
@@ -13,12 +13,26 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
 import javax.validation.constraints.NotNull;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.security.oauth2.client.DefaultOAuth2ClientContext;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
 import org.springframework.security.oauth2.client.OAuth2RestTemplate;
@@ -27,21 +41,256 @@ import org.springframework.security.oauth2.client.token.DefaultAccessTokenReques
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsAccessTokenProvider;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
 import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.EngineJarCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.SpaceAppIndex;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.FsDirectoryOperations;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.WorkingDirectories;
 import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJobs;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.EngineRegistry;
 import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.DownloadRequestValidationRules;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.H2oResourcesDownloadingStep;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 @Configuration
 public class ApplicationConfiguration {
 
+  private static final long BYTES_IN_MEGABYTE = 1024L * 1024L;
+
   @Bean
   public Publisher publisher(OAuth2RestTemplate oAuth2RestTemplate,
       @NotNull @Value("${publisher.cfApi}") String cfApi, BasicAuthServerCredentials appBroker,
-      @NotNull @Value("${publisher.engineBaseJar.resourcePath}") String engineBaseJarPath,
-      @NotNull @Value("${publisher.technicalSpaceGuid}") String technicalSpaceGuid)
+      @NotNull @Value("${publisher.technicalSpaceGuid}") String technicalSpaceGuid,
+      EngineBaseJar engineBaseJar, EngineJarCache engineJarCache,
+      GenmodelLibCache genmodelLibCache,
+      @Qualifier("h2oDownloadExecutor") ExecutorService h2oDownloadExecutor,
+      ForkJoinPool modelCompressionPool, CfMetadataCache cfMetadataCache,
+      SpaceAppIndex technicalSpaceAppIndex,
+      @Qualifier("cfProvisioningExecutor") ExecutorService cfProvisioningExecutor,
+      @Qualifier("engineBuildingExecutor") ExecutorService engineBuildingExecutor,
+      @Value("${publisher.compilation.parallelism}") int compilationParallelism,
+      WorkingDirectories workingDirectories, EngineRegistry engineRegistry)
       throws EnginePublicationException {
 
-    return new Publisher(new CfConnectionData(oAuth2RestTemplate, cfApi, technicalSpaceGuid),
-        new RestTemplate(), new AppBrokerConnectionData(new RestTemplate(), appBroker), engineBaseJarPath);
+    return new Publisher(
+        new CfConnectionData(oAuth2RestTemplate, cfApi, technicalSpaceGuid, cfMetadataCache,
+            technicalSpaceAppIndex, cfProvisioningExecutor),
+        new RestTemplate(), new AppBrokerConnectionData(new RestTemplate(), appBroker),
+        new EngineBuildingResources(engineBaseJar, engineJarCache, genmodelLibCache,
+            h2oDownloadExecutor, modelCompressionPool, engineBuildingExecutor,
+            compilationParallelism > 0 ? compilationParallelism
+                : Runtime.getRuntime().availableProcessors(),
+            workingDirectories),
+        engineRegistry);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public ForkJoinPool modelCompressionPool(
+      @Value("${publisher.packaging.parallelism}") int parallelism) {
+    return new ForkJoinPool(
+        parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+  }
+
+  @Bean
+  public EngineBaseJar engineBaseJar(
+      @NotNull @Value("${publisher.engineBaseJar.resourcePath}") String engineBaseJarPath,
+      @NotNull @Value("${publisher.engineBaseJar.directory}") String extractionDirectory)
+      throws IOException {
+    return new EngineBaseJar(engineBaseJarPath, Paths.get(extractionDirectory));
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService h2oDownloadExecutor(
+      @Value("${publisher.h2oDownloads.threads}") int downloadThreads) {
+    return Executors.newFixedThreadPool(downloadThreads,
+        new ThreadFactoryBuilder().setNameFormat("h2o-download-%d").setDaemon(true).build());
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService engineBuildingExecutor() {
+    return Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("engine-building-%d").setDaemon(true).build());
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService cfProvisioningExecutor(
+      @Value("${publisher.cfProvisioning.threads}") int provisioningThreads) {
+    return Executors.newFixedThreadPool(provisioningThreads,
+        new ThreadFactoryBuilder().setNameFormat("cf-provisioning-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public EngineJarCache engineJarCache(
+      @NotNull @Value("${publisher.engineCache.directory}") String cacheDirectory,
+      @Value("${publisher.engineCache.maxSizeMb}") long maxSizeMb) throws IOException {
+    return new EngineJarCache(Paths.get(cacheDirectory), maxSizeMb * BYTES_IN_MEGABYTE);
+  }
+
+  /**
+   * Registry is persistent only when its directory is configured; there's no default under
+   * java.io.tmpdir, as it wouldn't survive container restart anyway.
+   */
+  @Bean
+  public EngineRegistry engineRegistry(
+      @Value("${publisher.registry.directory:}") String registryDirectory) throws IOException {
+    if (registryDirectory.isEmpty()) {
+      return new EngineRegistry();
+    }
+    return new EngineRegistry(Paths.get(registryDirectory));
+  }
+
+  @Bean
+  public BulkEngineBuilder bulkEngineBuilder(Publisher publisher,
+      @Qualifier("bulkBuildExecutor") ExecutorService bulkBuildExecutor) {
+    return new BulkEngineBuilder(publisher, new RestTemplate(), bulkBuildExecutor);
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService bulkBuildExecutor(
+      @Value("${publisher.bulkBuild.parallelism}") int parallelism) {
+    return Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setNameFormat("bulk-build-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public BatchPublisher batchPublisher(Publisher publisher, OAuth2RestTemplate oAuth2RestTemplate,
+      @Qualifier("batchPublicationExecutor") ExecutorService batchPublicationExecutor) {
+    return new BatchPublisher(publisher, oAuth2RestTemplate, batchPublicationExecutor,
+        Validation.buildDefaultValidatorFactory().getValidator());
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService batchPublicationExecutor(
+      @Value("${publisher.batch.parallelism}") int parallelism) {
+    return Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setNameFormat("batch-publication-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public PublicationJobs publicationJobs(Publisher publisher, BatchPublisher batchPublisher,
+      @Qualifier("publicationJobExecutor") ExecutorService publicationJobExecutor,
+      @Value("${publisher.jobs.maxRetained}") int maxRetainedJobs) {
+    return new PublicationJobs(publisher, batchPublisher, publicationJobExecutor,
+        maxRetainedJobs);
+  }
+
+  /**
+   * Bounded in both threads and queue, so a burst of publications is rejected instead of piling
+   * up builds.
+   */
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService publicationJobExecutor(@Value("${publisher.jobs.threads}") int threads,
+      @Value("${publisher.jobs.queueCapacity}") int queueCapacity) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        new ThreadFactoryBuilder().setNameFormat("publication-job-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public CfMetadataCache cfMetadataCache(
+      @Value("${publisher.cfMetadataCache.ttlSeconds}") long ttlSeconds) {
+    return new CfMetadataCache(TimeUnit.SECONDS.toMillis(ttlSeconds));
+  }
+
+  @Bean
+  public WorkingDirectories workingDirectories(
+      @Value("${publisher.workingDirectories.directory}") String directory,
+      @Value("${publisher.workingDirectories.retentionMinutes}") long retentionMinutes) {
+    return new WorkingDirectories(Paths.get(directory), new FsDirectoryOperations(),
+        TimeUnit.MINUTES.toMillis(retentionMinutes));
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ScheduledExecutorService workingDirectoriesCleaner() {
+    return Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("working-directories-cleanup-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public CommandLineRunner workingDirectoriesCleanup(WorkingDirectories workingDirectories,
+      @Qualifier("workingDirectoriesCleaner") ScheduledExecutorService workingDirectoriesCleaner) {
+    return args -> workingDirectories.scheduleCleanup(workingDirectoriesCleaner);
+  }
+
+  @Bean
+  public SpaceAppIndex technicalSpaceAppIndex(OAuth2RestTemplate oAuth2RestTemplate,
+      @NotNull @Value("${publisher.cfApi}") String cfApi,
+      @NotNull @Value("${publisher.technicalSpaceGuid}") String technicalSpaceGuid,
+      @Value("${publisher.appIndex.refreshSeconds}") long refreshSeconds) {
+    return new SpaceAppIndex(cfApi, oAuth2RestTemplate, technicalSpaceGuid,
+        TimeUnit.SECONDS.toMillis(refreshSeconds));
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ScheduledExecutorService spaceAppIndexRefresher() {
+    return Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("app-index-refresh-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public CommandLineRunner spaceAppIndexRefreshing(SpaceAppIndex technicalSpaceAppIndex,
+      @Qualifier("spaceAppIndexRefresher") ScheduledExecutorService spaceAppIndexRefresher) {
+    return args -> technicalSpaceAppIndex.scheduleRefresh(spaceAppIndexRefresher);
+  }
+
+  @Bean
+  public GenmodelLibCache genmodelLibCache(GenmodelCacheProperties genmodelCacheProperties)
+      throws IOException {
+    return new GenmodelLibCache(Paths.get(genmodelCacheProperties.getDirectory()));
+  }
+
+  @Bean
+  @ConfigurationProperties("publisher.genmodelCache")
+  public GenmodelCacheProperties genmodelCacheProperties() {
+    return new GenmodelCacheProperties();
+  }
+
+  @Bean
+  public CommandLineRunner genmodelLibCachePrewarming(GenmodelLibCache genmodelLibCache,
+      GenmodelCacheProperties genmodelCacheProperties,
+      @Qualifier("h2oDownloadExecutor") ExecutorService h2oDownloadExecutor) {
+    return args -> genmodelLibCache.prewarm(genmodelCacheProperties.getPrewarm(),
+        new RestTemplate(), H2oResourcesDownloadingStep.H2O_SERVER_LIB_PATH, h2oDownloadExecutor);
+  }
+
+  @Bean
+  @ConfigurationProperties("publisher.modelWatcher")
+  public ModelWatcherProperties modelWatcherProperties() {
+    return new ModelWatcherProperties();
+  }
+
+  @Bean
+  public ModelWatcher modelWatcher(Publisher publisher,
+      ModelWatcherProperties modelWatcherProperties,
+      @Qualifier("modelWatcherExecutor") ExecutorService modelWatcherExecutor) {
+    return new ModelWatcher(publisher, new RestTemplate(), modelWatcherProperties.getServers(),
+        modelWatcherExecutor);
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ExecutorService modelWatcherExecutor(ModelWatcherProperties modelWatcherProperties) {
+    // compilation permits are left to requested builds by Publisher.prebuildScoringEngine
+    return Executors.newFixedThreadPool(Math.max(modelWatcherProperties.getParallelism(), 1),
+        new ThreadFactoryBuilder().setNameFormat("model-watcher-build-%d").setDaemon(true)
+            .build());
+  }
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ScheduledExecutorService modelWatcherScheduler() {
+    return Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("model-watcher-%d").setDaemon(true).build());
+  }
+
+  @Bean
+  public CommandLineRunner modelWatching(ModelWatcher modelWatcher,
+      ModelWatcherProperties modelWatcherProperties,
+      @Qualifier("modelWatcherScheduler") ScheduledExecutorService modelWatcherScheduler) {
+    return args -> modelWatcher.schedule(modelWatcherScheduler,
+        TimeUnit.SECONDS.toMillis(modelWatcherProperties.getPollSeconds()));
   }
 
   @Bean
@@ -51,6 +300,11 @@ public class ApplicationConfiguration {
     ClientCredentialsAccessTokenProvider tokenProvider = new ClientCredentialsAccessTokenProvider();
     template.setAccessTokenProvider(tokenProvider);
 
+    // request bodies (scoring engine JARs among them) are streamed instead of buffered in memory
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setBufferRequestBody(false);
+    template.setRequestFactory(requestFactory);
+
     return template;
   }
 
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class BatchPublicationResult {
+
+  private final String modelName;
+  private final boolean published;
+  private final PublishedEngine engine;
+  private final String error;
+  private final long durationMs;
+
+  static BatchPublicationResult succeeded(String modelName, PublishedEngine engine,
+      long durationMs) {
+    return new BatchPublicationResult(modelName, true, engine, null, durationMs);
+  }
+
+  static BatchPublicationResult failed(String modelName, String error, long durationMs) {
+    return new BatchPublicationResult(modelName, false, null, error, durationMs);
+  }
+}
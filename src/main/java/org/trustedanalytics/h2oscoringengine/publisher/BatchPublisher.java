@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.PublishRequest;
+
+/**
+ * Publishes many models at once. Models are published in parallel, so their downloads, builds and
+ * CloudFoundry provisioning overlap, each stage limited by its own pool. Lookups shared by all
+ * models (domain, genmodel library) are cached and coalesced by publisher; CloudFoundry access
+ * token is fetched once before models are published.
+ */
+public class BatchPublisher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchPublisher.class);
+
+  private final Publisher publisher;
+  private final OAuth2RestTemplate cfRestTemplate;
+  private final ExecutorService modelExecutor;
+  private final Validator validator;
+
+  public BatchPublisher(Publisher publisher, OAuth2RestTemplate cfRestTemplate,
+      ExecutorService modelExecutor, Validator validator) {
+    this.publisher = publisher;
+    this.cfRestTemplate = cfRestTemplate;
+    this.modelExecutor = modelExecutor;
+    this.validator = validator;
+  }
+
+  /**
+   * @return result for each request, in order of requests; failure of one model (including
+   *         invalid request) doesn't stop the others
+   */
+  public List<BatchPublicationResult> publishAll(List<PublishRequest> requests) {
+    LOGGER.info("Publishing batch of " + requests.size() + " models");
+    fetchCfAccessToken();
+
+    Set<String> modelNames = new HashSet<>();
+    List<CompletableFuture<BatchPublicationResult>> publications = requests.stream()
+        .map(request -> schedule(request, modelNames)).collect(Collectors.toList());
+
+    return publications.stream().map(CompletableFuture::join).collect(Collectors.toList());
+  }
+
+  private CompletableFuture<BatchPublicationResult> schedule(PublishRequest request,
+      Set<String> modelNames) {
+    if (request == null) {
+      return CompletableFuture
+          .completedFuture(BatchPublicationResult.failed(null, "Request is empty", 0));
+    }
+    String violations = findViolations(request);
+    if (violations != null) {
+      return CompletableFuture.completedFuture(
+          BatchPublicationResult.failed(request.getModelName(), violations, 0));
+    }
+    if (!modelNames.add(request.getModelName())) {
+      return CompletableFuture.completedFuture(BatchPublicationResult.failed(
+          request.getModelName(), "Model requested more than once in the batch", 0));
+    }
+    return CompletableFuture.supplyAsync(() -> publish(request), modelExecutor);
+  }
+
+  /**
+   * @return violated constraints of request, null if it's valid
+   */
+  private String findViolations(PublishRequest request) {
+    Set<ConstraintViolation<PublishRequest>> violations = validator.validate(request);
+    if (violations.isEmpty()) {
+      return null;
+    }
+    return "Invalid request: " + violations.stream()
+        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage()).sorted()
+        .collect(Collectors.joining(", "));
+  }
+
+  private BatchPublicationResult publish(PublishRequest request) {
+    long start = System.nanoTime();
+    try {
+      return BatchPublicationResult.succeeded(request.getModelName(), publisher.publish(request),
+          elapsedMs(start));
+    } catch (EnginePublicationException | EngineBuildingException | RuntimeException e) {
+      LOGGER.error("Publication of " + request.getModelName() + " in batch failed: ", e);
+      return BatchPublicationResult.failed(request.getModelName(), e.getMessage(),
+          elapsedMs(start));
+    }
+  }
+
+  private void fetchCfAccessToken() {
+    try {
+      cfRestTemplate.getAccessToken();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Unable to fetch CloudFoundry access token before publishing batch: ", e);
+    }
+  }
+
+  private static long elapsedMs(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
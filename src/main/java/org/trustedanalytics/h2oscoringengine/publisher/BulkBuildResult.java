@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class BulkBuildResult implements AutoCloseable {
+
+  private final String modelName;
+  private final ScoringEngineJar engineJar;
+  private final String error;
+  private final Map<String, Long> stepDurationsMs;
+  private final long durationMs;
+
+  public boolean isBuilt() {
+    return engineJar != null;
+  }
+
+  /**
+   * Closes built engine, if any.
+   */
+  @Override
+  public void close() {
+    if (engineJar != null) {
+      engineJar.close();
+    }
+  }
+}
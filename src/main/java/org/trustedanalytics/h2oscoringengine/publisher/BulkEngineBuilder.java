@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
+import org.trustedanalytics.h2oscoringengine.publisher.http.ModelListing;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepListener;
+
+/**
+ * Builds scoring engines of all models on an H2O server. Models are built in parallel; downloads,
+ * compilation and packaging of all builds are bounded by their own pools in {@link Publisher}.
+ */
+public class BulkEngineBuilder {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkEngineBuilder.class);
+
+  static final String REPORT_FILE_NAME = "build-report.csv";
+  static final String ENGINE_FILE_EXTENSION = ".jar";
+  static final String INVALID_MODEL_NAME_ERROR = "Model name cannot be used as file name";
+
+  private final Publisher publisher;
+  private final RestTemplate h2oServerRestTemplate;
+  private final ExecutorService modelExecutor;
+
+  public BulkEngineBuilder(Publisher publisher, RestTemplate h2oServerRestTemplate,
+      ExecutorService modelExecutor) {
+    this.publisher = publisher;
+    this.h2oServerRestTemplate = h2oServerRestTemplate;
+    this.modelExecutor = modelExecutor;
+  }
+
+  /**
+   * @param h2oCredentials H2O server to list models of
+   * @return names of all models on the server
+   * @throws EngineBuildingException if models cannot be listed
+   */
+  public List<String> listModels(BasicAuthServerCredentials h2oCredentials)
+      throws EngineBuildingException {
+    return listModels(new FilesDownloader(h2oCredentials, h2oServerRestTemplate));
+  }
+
+  /**
+   * Builds scoring engines of all models on given H2O server. Failure of one model doesn't stop
+   * the others.
+   *
+   * @param h2oCredentials H2O server to build models of
+   * @return result of each model; caller must close results once built engines aren't needed
+   * @throws EngineBuildingException if models cannot be listed
+   */
+  public List<BulkBuildResult> buildAll(BasicAuthServerCredentials h2oCredentials)
+      throws EngineBuildingException {
+    return buildAll(h2oCredentials, listModels(h2oCredentials));
+  }
+
+  /**
+   * Builds scoring engines of given models. Failure of one model doesn't stop the others. Models
+   * whose names cannot be used as file names (see {@link #isValidFileName(String)}) are reported
+   * as failed without being built.
+   *
+   * @param h2oCredentials H2O server the models are on
+   * @param modelNames models to build, see {@link #listModels(BasicAuthServerCredentials)}
+   * @return result of each model; caller must close results once built engines aren't needed
+   */
+  public List<BulkBuildResult> buildAll(BasicAuthServerCredentials h2oCredentials,
+      List<String> modelNames) {
+    LOGGER.info("Building " + modelNames.size() + " models of " + h2oCredentials.getHost());
+
+    List<BulkBuildResult> results = startBuilds(h2oCredentials, modelNames).stream()
+        .map(CompletableFuture::join).collect(Collectors.toList());
+
+    LOGGER.info("Models of " + h2oCredentials.getHost() + " built:\n" + formatReport(results));
+    return results;
+  }
+
+  /**
+   * Builds scoring engines of given models and writes them as single ZIP archive, together with
+   * report of build times of each model. Each engine is archived as soon as it's built and closed
+   * right after, so finished builds don't hold their files while slower ones are still running.
+   *
+   * @param h2oCredentials H2O server the models are on
+   * @param modelNames models to build, see {@link #listModels(BasicAuthServerCredentials)}
+   * @param destination stream the archive is written to
+   * @return result of each model, in order of models; their engines are already closed
+   * @throws IOException if archive cannot be written
+   */
+  public List<BulkBuildResult> buildAllAsZip(BasicAuthServerCredentials h2oCredentials,
+      List<String> modelNames, OutputStream destination) throws IOException {
+    LOGGER.info("Building " + modelNames.size() + " models of " + h2oCredentials.getHost()
+        + " into archive");
+    List<CompletableFuture<BulkBuildResult>> builds = startBuilds(h2oCredentials, modelNames);
+    BlockingQueue<BulkBuildResult> completed = new LinkedBlockingQueue<>();
+    builds.forEach(build -> build.thenAccept(completed::add));
+    boolean archivedAll = false;
+    try {
+      ZipOutputStream zip = new ZipOutputStream(destination);
+      // engines are JARs, compressing them again would only cost time
+      zip.setLevel(Deflater.NO_COMPRESSION);
+      for (int archived = 0; archived < builds.size(); archived++) {
+        try (BulkBuildResult result = completed.take()) {
+          if (result.isBuilt()) {
+            zip.putNextEntry(new ZipEntry(result.getModelName() + ENGINE_FILE_EXTENSION));
+            Files.copy(result.getEngineJar().getPath(), zip);
+            zip.closeEntry();
+          }
+        }
+      }
+      List<BulkBuildResult> results =
+          builds.stream().map(CompletableFuture::join).collect(Collectors.toList());
+      String report = formatReport(results);
+      zip.putNextEntry(new ZipEntry(REPORT_FILE_NAME));
+      zip.write(report.getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+      zip.finish();
+      LOGGER.info("Models of " + h2oCredentials.getHost() + " archived:\n" + report);
+      archivedAll = true;
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for builds to archive");
+    } finally {
+      if (!archivedAll) {
+        // engines not archived yet are closed once they're built; closing one already archived
+        // again has no effect
+        builds.forEach(build -> build.thenAccept(BulkBuildResult::close));
+      }
+    }
+  }
+
+  static List<String> listModels(FilesDownloader h2oFilesDownloader)
+      throws EngineBuildingException {
+    try {
+      return new ArrayList<>(ModelListing.fetch(h2oFilesDownloader).keySet());
+    } catch (IOException | RestClientException e) {
+      throw new EngineBuildingException(
+          "Unable to list models of " + h2oFilesDownloader.getServerUrl() + ": ", e);
+    }
+  }
+
+  /**
+   * @return CSV table with a row per model and a column per build step
+   */
+  static String formatReport(List<BulkBuildResult> results) {
+    Set<String> stepNames = new LinkedHashSet<>();
+    results.forEach(result -> stepNames.addAll(result.getStepDurationsMs().keySet()));
+
+    StringBuilder report = new StringBuilder("model,built,total_ms");
+    stepNames.forEach(stepName -> report.append(',').append(stepName).append("_ms"));
+    report.append(",error\n");
+    for (BulkBuildResult result : results) {
+      report.append(csvValue(result.getModelName())).append(',').append(result.isBuilt())
+          .append(',').append(result.getDurationMs());
+      for (String stepName : stepNames) {
+        Long duration = result.getStepDurationsMs().get(stepName);
+        report.append(',').append(duration == null ? "" : duration.toString());
+      }
+      report.append(',').append(result.getError() == null ? "" : csvValue(result.getError()))
+          .append('\n');
+    }
+    return report.toString();
+  }
+
+  /**
+   * Model names become names of archive entries, so ones that could point outside the archive
+   * root or that contain control characters are rejected.
+   */
+  static boolean isValidFileName(String modelName) {
+    return !modelName.isEmpty()
+        && modelName.chars().noneMatch(c -> c == '/' || c == '\\' || Character.isISOControl(c));
+  }
+
+  private List<CompletableFuture<BulkBuildResult>> startBuilds(
+      BasicAuthServerCredentials h2oCredentials, List<String> modelNames) {
+    return modelNames.stream()
+        .map(modelName -> CompletableFuture.supplyAsync(() -> build(h2oCredentials, modelName),
+            modelExecutor))
+        .collect(Collectors.toList());
+  }
+
+  private BulkBuildResult build(BasicAuthServerCredentials h2oCredentials, String modelName) {
+    if (!isValidFileName(modelName)) {
+      LOGGER.warn("Not building " + modelName + " of " + h2oCredentials.getHost()
+          + ": name cannot be used as file name");
+      return new BulkBuildResult(modelName, null, INVALID_MODEL_NAME_ERROR,
+          Collections.emptyMap(), 0);
+    }
+
+    Map<String, Long> stepDurationsMs = Collections.synchronizedMap(new LinkedHashMap<>());
+    StepListener listener = new StepListener() {
+      @Override
+      public void stepFinished(String stepName, long durationMs) {
+        stepDurationsMs.put(stepName, durationMs);
+      }
+    };
+
+    long start = System.nanoTime();
+    try {
+      ScoringEngineJar engineJar =
+          publisher.getScoringEngineJar(h2oCredentials, modelName, listener);
+      return new BulkBuildResult(modelName, engineJar, null, copy(stepDurationsMs),
+          elapsedMs(start));
+    } catch (EngineBuildingException | RuntimeException e) {
+      LOGGER.error("Building " + modelName + " of " + h2oCredentials.getHost() + " failed: ", e);
+      return new BulkBuildResult(modelName, null, e.getMessage(), copy(stepDurationsMs),
+          elapsedMs(start));
+    }
+  }
+
+  private static Map<String, Long> copy(Map<String, Long> stepDurationsMs) {
+    synchronized (stepDurationsMs) {
+      return new LinkedHashMap<>(stepDurationsMs);
+    }
+  }
+
+  private static String csvValue(String value) {
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  private static long elapsedMs(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
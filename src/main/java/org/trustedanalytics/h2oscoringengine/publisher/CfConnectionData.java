@@ -13,18 +13,30 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher;
 
+import java.util.concurrent.ExecutorService;
+
 import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.SpaceAppIndex;
 
 public class CfConnectionData {
   
   private final RestTemplate cfRestTemplate;
   private final String cfApiUrl;
   private final String technicalSpaceGuid;
+  private final CfMetadataCache cfMetadataCache;
+  private final SpaceAppIndex technicalSpaceAppIndex;
+  private final ExecutorService provisioningExecutor;
   
-  public CfConnectionData(RestTemplate cfRestTemplate, String cfApiUrl, String technicalSpaceGuid) {
+  public CfConnectionData(RestTemplate cfRestTemplate, String cfApiUrl, String technicalSpaceGuid,
+      CfMetadataCache cfMetadataCache, SpaceAppIndex technicalSpaceAppIndex,
+      ExecutorService provisioningExecutor) {
     this.cfRestTemplate = cfRestTemplate;
     this.cfApiUrl = cfApiUrl;
     this.technicalSpaceGuid = technicalSpaceGuid;
+    this.cfMetadataCache = cfMetadataCache;
+    this.technicalSpaceAppIndex = technicalSpaceAppIndex;
+    this.provisioningExecutor = provisioningExecutor;
   }
   
   /**
@@ -48,4 +60,25 @@ public class CfConnectionData {
     return technicalSpaceGuid;
   }
 
+  /**
+   * @return the cfMetadataCache
+   */
+  public CfMetadataCache getCfMetadataCache() {
+    return cfMetadataCache;
+  }
+
+  /**
+   * @return the technicalSpaceAppIndex
+   */
+  public SpaceAppIndex getTechnicalSpaceAppIndex() {
+    return technicalSpaceAppIndex;
+  }
+
+  /**
+   * @return the provisioningExecutor
+   */
+  public ExecutorService getProvisioningExecutor() {
+    return provisioningExecutor;
+  }
+
 }
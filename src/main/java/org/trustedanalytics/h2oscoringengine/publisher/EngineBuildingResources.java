@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import org.trustedanalytics.h2oscoringengine.publisher.cache.EngineJarCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.WorkingDirectories;
+
+public class EngineBuildingResources {
+
+  private final EngineBaseJar engineBaseJar;
+  private final EngineJarCache engineJarCache;
+  private final GenmodelLibCache genmodelLibCache;
+  private final ExecutorService downloadExecutor;
+  private final ForkJoinPool compressionPool;
+  private final ExecutorService buildStepExecutor;
+  private final int compilationParallelism;
+  private final WorkingDirectories workingDirectories;
+
+  public EngineBuildingResources(EngineBaseJar engineBaseJar, EngineJarCache engineJarCache,
+      GenmodelLibCache genmodelLibCache, ExecutorService downloadExecutor,
+      ForkJoinPool compressionPool, ExecutorService buildStepExecutor,
+      int compilationParallelism, WorkingDirectories workingDirectories) {
+    this.engineBaseJar = engineBaseJar;
+    this.engineJarCache = engineJarCache;
+    this.genmodelLibCache = genmodelLibCache;
+    this.downloadExecutor = downloadExecutor;
+    this.compressionPool = compressionPool;
+    this.buildStepExecutor = buildStepExecutor;
+    this.compilationParallelism = compilationParallelism;
+    this.workingDirectories = workingDirectories;
+  }
+
+  public EngineBaseJar getEngineBaseJar() {
+    return engineBaseJar;
+  }
+
+  public EngineJarCache getEngineJarCache() {
+    return engineJarCache;
+  }
+
+  public GenmodelLibCache getGenmodelLibCache() {
+    return genmodelLibCache;
+  }
+
+  public ExecutorService getDownloadExecutor() {
+    return downloadExecutor;
+  }
+
+  public ForkJoinPool getCompressionPool() {
+    return compressionPool;
+  }
+
+  /**
+   * @return executor running steps of engine building; steps wait for downloads and compression,
+   *         so it must not be shared with the download executor nor the compression pool
+   */
+  public ExecutorService getBuildStepExecutor() {
+    return buildStepExecutor;
+  }
+
+  /**
+   * @return number of models compiled at once; compilation is CPU and memory heavy, so it's
+   *         bounded independently of downloads and packaging
+   */
+  public int getCompilationParallelism() {
+    return compilationParallelism;
+  }
+
+  public WorkingDirectories getWorkingDirectories() {
+    return workingDirectories;
+  }
+}
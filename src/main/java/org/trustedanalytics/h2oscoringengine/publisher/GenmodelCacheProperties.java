@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class GenmodelCacheProperties {
+
+  private String directory;
+
+  /**
+   * H2O servers which genmodel libraries are downloaded at startup.
+   */
+  private List<BasicAuthServerCredentials> prewarm = new ArrayList<>();
+
+}
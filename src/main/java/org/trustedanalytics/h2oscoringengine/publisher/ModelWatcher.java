@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.ModelWatcherProperties.WatchedServer;
+import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
+import org.trustedanalytics.h2oscoringengine.publisher.http.ModelListing;
+
+/**
+ * Polls H2O servers for new and retrained models and builds their scoring engines in background,
+ * so they're in engine cache before anyone asks for them. Builds run on their own bounded
+ * executor, so watcher never takes more than its share of download and packaging pools, and
+ * compile models only when no requested build waits for compilation.
+ */
+public class ModelWatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ModelWatcher.class);
+
+  private final Publisher publisher;
+  private final RestTemplate h2oServerRestTemplate;
+  private final List<WatchedServer> servers;
+  private final ExecutorService buildExecutor;
+
+  private final ConcurrentMap<String, Long> builtModels = new ConcurrentHashMap<>();
+  private final Set<String> modelsInProgress = ConcurrentHashMap.newKeySet();
+
+  public ModelWatcher(Publisher publisher, RestTemplate h2oServerRestTemplate,
+      List<WatchedServer> servers, ExecutorService buildExecutor) {
+    this.publisher = publisher;
+    this.h2oServerRestTemplate = h2oServerRestTemplate;
+    this.servers = servers;
+    this.buildExecutor = buildExecutor;
+  }
+
+  /**
+   * Polls watched servers in background every poll interval.
+   *
+   * @param scheduler executor running polls
+   * @param pollIntervalMs how often servers are polled; watcher is disabled if not positive
+   */
+  public void schedule(ScheduledExecutorService scheduler, long pollIntervalMs) {
+    if (pollIntervalMs <= 0 || servers.isEmpty()) {
+      return;
+    }
+    LOGGER.info("Watching " + servers.size() + " H2O servers for new models every "
+        + pollIntervalMs + " ms");
+    scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Lists models of watched servers and submits builds of models which weren't built yet or were
+   * retrained since. Failures are only logged; failed builds are retried on next poll.
+   */
+  public void poll() {
+    for (WatchedServer server : servers) {
+      Map<String, Long> models;
+      try {
+        models = ModelListing.fetch(new FilesDownloader(server, h2oServerRestTemplate));
+      } catch (IOException | RestClientException e) {
+        LOGGER.warn("Unable to list models of " + server.getHost() + ": ", e);
+        continue;
+      }
+
+      models.forEach((modelName, timestamp) -> {
+        if (server.getModels().isEmpty() || server.getModels().contains(modelName)) {
+          submitBuildIfChanged(server, modelName, timestamp);
+        }
+      });
+    }
+  }
+
+  private void submitBuildIfChanged(WatchedServer server, String modelName, long timestamp) {
+    String modelKey = server.getHost() + "|" + modelName;
+    if (timestamp == builtModels.getOrDefault(modelKey, -1L)
+        || !modelsInProgress.add(modelKey)) {
+      return;
+    }
+
+    try {
+      buildExecutor.execute(() -> {
+        try {
+          build(server, modelName, modelKey, timestamp);
+        } finally {
+          modelsInProgress.remove(modelKey);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      modelsInProgress.remove(modelKey);
+      LOGGER.warn("Unable to schedule build of " + modelName + " of " + server.getHost() + ": ",
+          e);
+    }
+  }
+
+  private void build(WatchedServer server, String modelName, String modelKey, long timestamp) {
+    try {
+      LOGGER.info("Pre-building engine of " + modelName + " of " + server.getHost());
+      publisher.prebuildScoringEngine(server, modelName);
+      builtModels.put(modelKey, timestamp);
+    } catch (EngineBuildingException | RuntimeException e) {
+      LOGGER.warn("Unable to pre-build engine of " + modelName + " of " + server.getHost() + ": ",
+          e);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ModelWatcherProperties {
+
+  /**
+   * How often watched H2O servers are polled for new models; watcher is disabled if not positive.
+   */
+  private long pollSeconds;
+
+  /**
+   * Number of engines built by watcher at once.
+   */
+  private int parallelism = 1;
+
+  private List<WatchedServer> servers = new ArrayList<>();
+
+  @Getter
+  @Setter
+  public static class WatchedServer extends BasicAuthServerCredentials {
+
+    /**
+     * Models which engines are pre-built; all models of the server if empty.
+     */
+    private List<String> models = new ArrayList<>();
+  }
+}
@@ -14,91 +14,559 @@
 package org.trustedanalytics.h2oscoringengine.publisher;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
-import org.trustedanalytics.h2oscoringengine.publisher.filesystem.FsDirectoryOperations;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.EngineJarCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.SpaceAppIndex;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
 import org.trustedanalytics.h2oscoringengine.publisher.filesystem.PublisherWorkingDirectory;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.UpdatableJar;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.WorkingDirectories;
 import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
 import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
+import org.trustedanalytics.h2oscoringengine.publisher.http.RequestCoalescer;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.EngineRegistry;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
 import org.trustedanalytics.h2oscoringengine.publisher.restapi.PublishRequest;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.AppBitsUploadingStep;
 import org.trustedanalytics.h2oscoringengine.publisher.steps.AppRecordCreatingStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.AppRouteCreatingStep;
 import org.trustedanalytics.h2oscoringengine.publisher.steps.CheckingIfAppExistsStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.CreatingPlanVisibilityStep;
 import org.trustedanalytics.h2oscoringengine.publisher.steps.H2oResourcesDownloadingStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.ModelCompilationStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.ModelPackagingStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.RegisteringInApplicationBrokerStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.ScoringEngineBuildingStep;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepGraph;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepKey;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepListener;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepResults;
+
+import com.google.common.base.Throwables;
 
 public class Publisher {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(Publisher.class);
+
+  static final String APP_EXISTENCE_CHECKING_STEP = "app-existence-checking";
+  static final String APP_PROVISIONING_STEP = "app-provisioning";
+  static final String APP_BITS_UPLOADING_STEP = "app-bits-uploading";
+  static final String BROKER_REGISTERING_STEP = "application-broker-registering";
+  static final String PLAN_VISIBILITY_CREATING_STEP = "plan-visibility-creating";
+
+  private static final long IDLE_COMPILATION_POLL_MS = 100;
+
   private final RestTemplate cfRestTemplate;
   private final RestTemplate h2oServerRestTemplate;
   private final RestTemplate appBrokerRestTemplate;
   private final String cfApiUrl;
   private final BasicAuthServerCredentials appBrokerCredentials;
-  private final String engineBaseResourcePath;
+  private final EngineBaseJar engineBaseJar;
   private final String technicalSpaceGuid;
+  private final CfMetadataCache cfMetadataCache;
+  private final SpaceAppIndex technicalSpaceAppIndex;
+  private final ExecutorService provisioningExecutor;
+  private final EngineJarCache engineJarCache;
+  private final GenmodelLibCache genmodelLibCache;
+  private final ExecutorService downloadExecutor;
+  private final ForkJoinPool compressionPool;
+  private final ExecutorService buildStepExecutor;
+  private final Semaphore compilationPermits;
+  private final RequestCoalescer<String, BuiltEngine, EngineBuildingException> builds =
+      new RequestCoalescer<>(EngineBuildingException::new);
+  private final WorkingDirectories workingDirectories;
+  private final EngineRegistry engineRegistry;
 
   public Publisher(CfConnectionData cfConnectionData, RestTemplate h2oServerRestTemplate,
-      AppBrokerConnectionData appBrokerConnectionData, String engineBaseJar)
+      AppBrokerConnectionData appBrokerConnectionData,
+      EngineBuildingResources engineBuildingResources, EngineRegistry engineRegistry)
       throws EnginePublicationException {
     this.cfRestTemplate = cfConnectionData.getCfRestTemplate();
     this.cfApiUrl = cfConnectionData.getCfApiUrl();
     this.appBrokerCredentials = appBrokerConnectionData.getAppBrokerCredentials();
-    this.engineBaseResourcePath = engineBaseJar;
+    this.engineBaseJar = engineBuildingResources.getEngineBaseJar();
     this.h2oServerRestTemplate = h2oServerRestTemplate;
     this.appBrokerRestTemplate = appBrokerConnectionData.getAppBrokerRestTemplate();
     this.technicalSpaceGuid = cfConnectionData.getTechnicalSpaceGuid();
+    this.cfMetadataCache = cfConnectionData.getCfMetadataCache();
+    this.technicalSpaceAppIndex = cfConnectionData.getTechnicalSpaceAppIndex();
+    this.provisioningExecutor = cfConnectionData.getProvisioningExecutor();
+    this.engineJarCache = engineBuildingResources.getEngineJarCache();
+    this.genmodelLibCache = engineBuildingResources.getGenmodelLibCache();
+    this.downloadExecutor = engineBuildingResources.getDownloadExecutor();
+    this.compressionPool = engineBuildingResources.getCompressionPool();
+    this.buildStepExecutor = engineBuildingResources.getBuildStepExecutor();
+    this.compilationPermits =
+        new Semaphore(engineBuildingResources.getCompilationParallelism(), true);
+    this.workingDirectories = engineBuildingResources.getWorkingDirectories();
+    this.engineRegistry = engineRegistry;
+  }
+
+  public PublishedEngine publish(PublishRequest request)
+      throws EnginePublicationException, EngineBuildingException {
+    return publish(request, StepListener.NONE);
   }
 
-  public void publish(PublishRequest request)
+  /**
+   * @param listener notified about each step of building and publication
+   */
+  public PublishedEngine publish(PublishRequest request, StepListener listener)
       throws EnginePublicationException, EngineBuildingException {
 
     String appName = request.getModelName();
-    CheckingIfAppExistsStep appExistsStep = new CheckingIfAppExistsStep(cfApiUrl, cfRestTemplate);
-    if (appExistsStep.check(appName, technicalSpaceGuid)) {
+    CheckingIfAppExistsStep appExistsStep =
+        new CheckingIfAppExistsStep(cfApiUrl, cfRestTemplate, technicalSpaceAppIndex);
+    if (runStep(APP_EXISTENCE_CHECKING_STEP, listener,
+        () -> appExistsStep.check(appName, technicalSpaceGuid))) {
       throw new EnginePublicationException(
           "Cannot publish app " + appName + " to CloudFoundry. App already exists.");
     }
 
-    Path scoringEngineJar = buildScoringEngineJar(
-        new FilesDownloader(request.getH2oCredentials(), h2oServerRestTemplate),
-        request.getModelName());
+    // app record and route depend only on app name, so they're created while engine is built
+    CompletableFuture<AppRouteCreatingStep> provisioning = CompletableFuture.supplyAsync(
+        () -> runStep(APP_PROVISIONING_STEP, listener,
+            () -> provisionApp(appName, technicalSpaceGuid)),
+        provisioningExecutor);
+
+    BuiltEngine builtEngine;
+    try {
+      builtEngine = buildOrJoinScoringEngine(request.getH2oCredentials(), appName, listener);
+    } catch (EngineBuildingException | RuntimeException e) {
+      rollbackProvisioning(provisioning);
+      throw e;
+    }
+
+    try (ScoringEngineJar scoringEngineJar = builtEngine.toScoringEngineJar()) {
+      AppRouteCreatingStep appRouteCreatingStep = awaitProvisioning(provisioning);
+      PublishedEngine publishedEngine;
+      try {
+        publishedEngine = publishToMarketplace(appRouteCreatingStep, scoringEngineJar.getPath(),
+            builtEngine.pojoHash, appName, request.getOrgGuid(), listener);
+      } catch (EnginePublicationException | RuntimeException e) {
+        appRouteCreatingStep.rollback();
+        throw e;
+      }
+      registerPublishedEngine(publishedEngine);
+      return publishedEngine;
+    }
+  }
+
+  /**
+   * Replaces bits of already published engine with engine built from current version of the
+   * model. Engine that isn't published yet is published. When app recorded in registry doesn't
+   * exist anymore, its registry entry is dropped and the app is looked up by name.
+   */
+  public void update(PublishRequest request)
+      throws EnginePublicationException, EngineBuildingException {
+
+    String appName = request.getModelName();
+    Optional<PublishedEngine> publishedEngine = engineRegistry.get(appName);
+    Optional<String> appGuid = publishedEngine.isPresent()
+        ? Optional.of(publishedEngine.get().getAppGuid()) : findAppGuid(appName);
+    if (!appGuid.isPresent()) {
+      LOGGER.info("App " + appName + " not found in CloudFoundry. Publishing it.");
+      publish(request);
+      return;
+    }
+
+    BuiltEngine builtEngine =
+        buildOrJoinScoringEngine(request.getH2oCredentials(), appName, StepListener.NONE);
+    String pojoHash = builtEngine.pojoHash;
+
+    try (ScoringEngineJar scoringEngineJar = builtEngine.toScoringEngineJar()) {
+      try {
+        replaceBits(appGuid.get(), scoringEngineJar);
+      } catch (HttpClientErrorException e) {
+        if (!publishedEngine.isPresent() || e.getStatusCode() != HttpStatus.NOT_FOUND) {
+          throw e;
+        }
+        LOGGER.warn("App " + appGuid.get() + " of registered engine " + appName
+            + " not found in CloudFoundry. Looking the app up by name.");
+        forgetPublishedEngine(appName);
+        publishedEngine = Optional.empty();
+        appGuid = findAppGuid(appName);
+        if (!appGuid.isPresent()) {
+          LOGGER.info("App " + appName + " not found in CloudFoundry. Publishing it.");
+          publish(request);
+          return;
+        }
+        replaceBits(appGuid.get(), scoringEngineJar);
+      }
+    }
+
+    long updatedAt = System.currentTimeMillis();
+    PublishedEngine previous = publishedEngine.orElse(new PublishedEngine());
+    registerPublishedEngine(new PublishedEngine(appName, pojoHash, appGuid.get(),
+        previous.getRouteGuid(), previous.getBrokerServiceId(), previous.getBrokerPlanId(),
+        previous.getServiceGuid(), previous.getServicePlanGuid(), updatedAt, updatedAt));
+  }
+
+  private Optional<String> findAppGuid(String appName) throws EnginePublicationException {
+    return new CheckingIfAppExistsStep(cfApiUrl, cfRestTemplate, technicalSpaceAppIndex)
+        .findAppGuid(appName, technicalSpaceGuid);
+  }
+
+  private void replaceBits(String appGuid, ScoringEngineJar scoringEngineJar)
+      throws EnginePublicationException {
+    new AppBitsUploadingStep(cfApiUrl, cfRestTemplate, appGuid, engineBaseJar)
+        .replaceBits(scoringEngineJar.getPath()).restage();
+  }
+
+  /**
+   * App of the engine is gone, so failing to forget it is only logged; next update finds the app
+   * missing again.
+   */
+  private void forgetPublishedEngine(String appName) {
+    try {
+      engineRegistry.remove(appName);
+    } catch (IOException e) {
+      LOGGER.error("Unable to remove engine " + appName + " from registry: ", e);
+    }
+  }
+
+  /**
+   * @return built engine; caller must close it once the file isn't needed anymore
+   */
+  public ScoringEngineJar getScoringEngineJar(BasicAuthServerCredentials h2oCredentials,
+      String modelName) throws EngineBuildingException {
+    return getScoringEngineJar(h2oCredentials, modelName, StepListener.NONE);
+  }
+
+  /**
+   * @param listener notified about each step of building
+   * @return built engine; caller must close it once the file isn't needed anymore
+   */
+  public ScoringEngineJar getScoringEngineJar(BasicAuthServerCredentials h2oCredentials,
+      String modelName, StepListener listener) throws EngineBuildingException {
+    return buildOrJoinScoringEngine(h2oCredentials, modelName, listener).toScoringEngineJar();
+  }
+
+  /**
+   * Builds scoring engine into engine cache in background. Its model is compiled only when no
+   * other build waits for compilation, so background builds never delay requested ones. The build
+   * isn't shared with requested builds of the same model, which would otherwise wait for it.
+   */
+  public void prebuildScoringEngine(BasicAuthServerCredentials h2oCredentials, String modelName)
+      throws EngineBuildingException {
+    buildScoringEngine(h2oCredentials, modelName, true, StepListener.NONE).workingDir.release();
+  }
+
+  private PublisherWorkingDirectory createWorkingDirectory(String modelName)
+      throws EngineBuildingException {
+    try {
+      return workingDirectories.create(modelName);
+    } catch (IOException e) {
+      throw new EngineBuildingException("Unable to create dir for publisher: ", e);
+    }
+  }
+
+  private ModelCompilationStep downloadH2oResources(FilesDownloader h2oFilesDownloader,
+      String modelName, PublisherWorkingDirectory workingDir) throws EngineBuildingException {
+    H2oResourcesDownloadingStep h2oResourcesDownloadingStep =
+        new H2oResourcesDownloadingStep(genmodelLibCache, downloadExecutor);
+    return h2oResourcesDownloadingStep.downloadResources(h2oFilesDownloader, modelName,
+        workingDir.getH2oResourcesPath());
+  }
+
+  /**
+   * Builds scoring engine or joins build of the same model from the same H2O server already in
+   * progress, so concurrent requests don't compile the model twice. Listener of a joining caller
+   * isn't notified about steps of the build.
+   *
+   * @return built engine whose working directory reference is owned by the caller
+   */
+  private BuiltEngine buildOrJoinScoringEngine(BasicAuthServerCredentials h2oCredentials,
+      String modelName, StepListener listener) throws EngineBuildingException {
+    // credentials are part of the key, so nobody gets engine of a model they can't access
+    String buildKey =
+        h2oCredentials.getBasicAuthToken() + "@" + h2oCredentials.getHost() + "|" + modelName;
+    while (true) {
+      AtomicBoolean builtByCaller = new AtomicBoolean();
+      BuiltEngine builtEngine = builds.execute(buildKey, () -> {
+        builtByCaller.set(true);
+        return buildScoringEngine(h2oCredentials, modelName, false, listener);
+      });
+      // builder owns reference taken on creation, joining callers retain their own
+      if (builtByCaller.get() || builtEngine.workingDir.retain()) {
+        return builtEngine;
+      }
+      // builder released the directory before this caller got to it, so engine is built again
+    }
+  }
+
+  /**
+   * Builds scoring engine running independent steps in parallel. When engine is found in cache, it
+   * isn't compiled nor packaged.
+   */
+  private BuiltEngine buildScoringEngine(BasicAuthServerCredentials h2oCredentials,
+      String modelName, boolean background, StepListener listener)
+      throws EngineBuildingException {
+    PublisherWorkingDirectory workingDir = createWorkingDirectory(modelName);
+    try {
+      return buildScoringEngine(h2oCredentials, modelName, workingDir, background, listener);
+    } catch (EngineBuildingException | RuntimeException e) {
+      workingDir.release();
+      throw e;
+    }
+  }
+
+  private BuiltEngine buildScoringEngine(BasicAuthServerCredentials h2oCredentials,
+      String modelName, PublisherWorkingDirectory workingDir, boolean background,
+      StepListener listener) throws EngineBuildingException {
+    FilesDownloader h2oFilesDownloader = new FilesDownloader(h2oCredentials, h2oServerRestTemplate);
+    StepGraph graph = new StepGraph(buildStepExecutor, listener);
+
+    StepKey<ModelCompilationStep> resources = graph.add("h2o-resources-downloading",
+        inputs -> downloadH2oResources(h2oFilesDownloader, modelName, workingDir));
+    StepKey<String> pojoHash = graph.add("pojo-hashing",
+        inputs -> computePojoHash(inputs.get(resources)), resources);
+    StepKey<String> engineKey = graph.add("engine-key-computing",
+        inputs -> computeEngineKey(inputs.get(resources), inputs.get(pojoHash)), resources,
+        pojoHash);
+    StepKey<Optional<Path>> cachedEngineJar = graph.add("engine-cache-lookup",
+        inputs -> engineJarCache.get(inputs.get(engineKey), workingDir.getScoringEngineJarDir()
+            .resolve(ScoringEngineBuildingStep.SCORING_ENGINE_FILE_NAME)),
+        engineKey);
+
+    // engine base is copied while model is being compiled and packaged
+    StepKey<Optional<ModelPackagingStep>> compiledModel = graph.add("model-compiling", inputs -> {
+      if (inputs.get(cachedEngineJar).isPresent()) {
+        return Optional.empty();
+      }
+      return Optional.of(compileModel(inputs.get(resources), background));
+    }, resources, cachedEngineJar);
+    StepKey<Optional<ScoringEngineBuildingStep>> packagedModel =
+        graph.add("model-packaging", inputs -> {
+          Optional<ModelPackagingStep> packagingStep = inputs.get(compiledModel);
+          if (!packagingStep.isPresent()) {
+            return Optional.empty();
+          }
+          return Optional.of(
+              packagingStep.get().packageModel(workingDir.getModelJarPath(), compressionPool));
+        }, compiledModel);
+    StepKey<Optional<UpdatableJar>> engineBase = graph.add("engine-base-copying", inputs -> {
+      if (inputs.get(cachedEngineJar).isPresent()) {
+        return Optional.empty();
+      }
+      return Optional.of(ScoringEngineBuildingStep
+          .createEngineBase(workingDir.getScoringEngineJarDir(), engineBaseJar));
+    }, cachedEngineJar);
 
-    publishToMarketplace(scoringEngineJar, appName, technicalSpaceGuid, request.getOrgGuid());
+    StepKey<Path> scoringEngineJar = graph.add("scoring-engine-building", inputs -> {
+      Optional<Path> cachedJar = inputs.get(cachedEngineJar);
+      if (cachedJar.isPresent()) {
+        return cachedJar.get();
+      }
+      Path builtJar =
+          inputs.get(packagedModel).get().buildScoringEngine(inputs.get(engineBase).get());
+      engineJarCache.put(inputs.get(engineKey), builtJar);
+      return builtJar;
+    }, cachedEngineJar, packagedModel, engineBase, engineKey);
+
+    StepResults results = graph.run();
+    LOGGER.info("Scoring engine for " + modelName + " built. Step durations [ms]: "
+        + results.getDurationsMs());
+    return new BuiltEngine(results.get(scoringEngineJar), results.get(pojoHash), workingDir);
+  }
+
+  private ModelPackagingStep compileModel(ModelCompilationStep modelCompilationStep,
+      boolean background) throws EngineBuildingException {
+    try {
+      if (background) {
+        acquireIdleCompilationPermit();
+      } else {
+        compilationPermits.acquire();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EngineBuildingException("Interrupted while waiting for model compilation: ", e);
+    }
+    try {
+      return modelCompilationStep.compileModelInMemory();
+    } finally {
+      compilationPermits.release();
+    }
   }
 
-  public Path getScoringEngineJar(BasicAuthServerCredentials h2oCredentials, String modelName)
+  /**
+   * Waits until compilation permit is free and no other build waits for one. Fair semaphore hands
+   * released permits to waiting builds first, so checking its queue before taking a permit keeps
+   * background builds behind all requested ones.
+   */
+  private void acquireIdleCompilationPermit() throws InterruptedException {
+    while (compilationPermits.hasQueuedThreads() || !compilationPermits.tryAcquire()) {
+      TimeUnit.MILLISECONDS.sleep(IDLE_COMPILATION_POLL_MS);
+    }
+  }
+
+  private String computeEngineKey(ModelCompilationStep modelCompilationStep, String pojoHash)
       throws EngineBuildingException {
-    return buildScoringEngineJar(new FilesDownloader(h2oCredentials, h2oServerRestTemplate),
-        modelName);
+    try {
+      return EngineJarCache.computeKey(pojoHash, modelCompilationStep.getLibPath(),
+          engineBaseJar.getResourcePath());
+    } catch (IOException e) {
+      throw new EngineBuildingException("Unable to read downloaded genmodel library: ", e);
+    }
   }
 
-  private Path buildScoringEngineJar(FilesDownloader h2oFilesDownloader, String modelName)
+  private String computePojoHash(ModelCompilationStep modelCompilationStep)
       throws EngineBuildingException {
+    try (InputStream pojo = Files.newInputStream(modelCompilationStep.getModelPojoPath())) {
+      return DigestUtils.sha256Hex(pojo);
+    } catch (IOException e) {
+      throw new EngineBuildingException("Unable to read downloaded model POJO: ", e);
+    }
+  }
 
+  /**
+   * Creates app record and route. When route cannot be created, app record (and route, if it was
+   * created before binding it failed) is deleted, so failed provisioning leaves nothing behind.
+   */
+  private AppRouteCreatingStep provisionApp(String appName, String spaceGuid) {
+    AppRouteCreatingStep appRouteCreatingStep;
+    try {
+      appRouteCreatingStep = new AppRecordCreatingStep(cfApiUrl, cfRestTemplate, cfMetadataCache)
+          .createAppRecord(spaceGuid, appName);
+    } catch (EnginePublicationException e) {
+      throw new CompletionException(e);
+    }
+    technicalSpaceAppIndex.add(appName);
     try {
-      PublisherWorkingDirectory workingDir =
-          new PublisherWorkingDirectory(modelName, new FsDirectoryOperations());
+      appRouteCreatingStep.createAppRoute(spaceGuid, appName);
+      return appRouteCreatingStep;
+    } catch (EnginePublicationException e) {
+      appRouteCreatingStep.rollback();
+      throw new CompletionException(e);
+    } catch (RuntimeException e) {
+      appRouteCreatingStep.rollback();
+      throw e;
+    }
+  }
 
-      H2oResourcesDownloadingStep h2oResourcesDownloadingStep = new H2oResourcesDownloadingStep();
-      return h2oResourcesDownloadingStep
-          .downloadResources(h2oFilesDownloader, modelName, workingDir.getH2oResourcesPath())
-          .compileModel(workingDir.getCompiledModelPath())
-          .packageModel(workingDir.getModelJarPath())
-          .buildScoringEngine(workingDir.getScoringEngineJarDir(), engineBaseResourcePath);
+  private AppRouteCreatingStep awaitProvisioning(
+      CompletableFuture<AppRouteCreatingStep> provisioning) throws EnginePublicationException {
+    try {
+      return provisioning.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), EnginePublicationException.class);
+      throw new EnginePublicationException("Unable to create app in CloudFoundry: ",
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // nobody publishes the app anymore, so it's deleted once it's created
+      provisioning.thenAccept(AppRouteCreatingStep::rollback);
+      throw new EnginePublicationException("Creating app in CloudFoundry interrupted", e);
+    }
+  }
+
+  /**
+   * Waits for app provisioning running in parallel with failed build and deletes created app.
+   * Failed provisioning has already deleted whatever it created.
+   */
+  private void rollbackProvisioning(CompletableFuture<AppRouteCreatingStep> provisioning) {
+    try {
+      provisioning.join().rollback();
+    } catch (CompletionException | CancellationException e) {
+      LOGGER.warn("App provisioning failed, nothing left to roll back: ", e);
+    }
+  }
+
+  private PublishedEngine publishToMarketplace(AppRouteCreatingStep appRouteCreatingStep,
+      Path appBits, String pojoHash, String appName, String orgGuid, StepListener listener)
+      throws EnginePublicationException {
+
+    AppBitsUploadingStep appBitsUploadingStep = new AppBitsUploadingStep(cfApiUrl,
+        cfRestTemplate, appRouteCreatingStep.getAppGuid(), engineBaseJar);
+    RegisteringInApplicationBrokerStep registeringStep =
+        runStep(APP_BITS_UPLOADING_STEP, listener, () -> appBitsUploadingStep.uploadBits(appBits));
+    CreatingPlanVisibilityStep planVisibilityStep;
+    try {
+      planVisibilityStep = runStep(BROKER_REGISTERING_STEP, listener,
+          () -> registeringStep.register(appBrokerCredentials, appBrokerRestTemplate, appName,
+              "Scoring engine based on H2O model"));
+      runStep(PLAN_VISIBILITY_CREATING_STEP, listener, () -> {
+        planVisibilityStep.addServicePlanVisibility(orgGuid, appName);
+        return planVisibilityStep;
+      });
+    } catch (EnginePublicationException | RuntimeException e) {
+      // app is deleted by caller's rollback, so its service mustn't stay in the catalog
+      registeringStep.unregister(appBrokerCredentials, appBrokerRestTemplate);
+      throw e;
+    }
+
+    long publishedAt = System.currentTimeMillis();
+    return new PublishedEngine(appName, pojoHash, appRouteCreatingStep.getAppGuid(),
+        appRouteCreatingStep.getRouteGuid(), registeringStep.getServiceId(),
+        registeringStep.getPlanId(), planVisibilityStep.getServiceGuid(),
+        planVisibilityStep.getPlanGuid(), publishedAt, publishedAt);
+  }
 
+  /**
+   * Engine is already published at this point, so failing to record it is only logged.
+   */
+  private void registerPublishedEngine(PublishedEngine publishedEngine) {
+    try {
+      engineRegistry.register(publishedEngine);
     } catch (IOException e) {
-      throw new EngineBuildingException("Unable to create dir for publisher: ", e);
+      LOGGER.error("Unable to register published engine " + publishedEngine + ": ", e);
     }
   }
 
-  private void publishToMarketplace(Path appBits, String appName, String technicalSpaceGuid,
-      String orgGuid) throws EnginePublicationException {
+  private static <T, E extends Exception> T runStep(String stepName, StepListener listener,
+      PublicationStep<T, E> step) throws E {
+    listener.stepStarted(stepName);
+    long start = System.nanoTime();
+    try {
+      return step.run();
+    } finally {
+      listener.stepFinished(stepName,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+  }
 
-    AppRecordCreatingStep appRecordCreatingStep =
-        new AppRecordCreatingStep(cfApiUrl, cfRestTemplate);
-    appRecordCreatingStep.createAppRecord(technicalSpaceGuid, appName)
-        .createAppRoute(technicalSpaceGuid, appName).uploadBits(appBits)
-        .register(appBrokerCredentials, appBrokerRestTemplate, appName,
-            "Scoring engine based on H2O model")
-        .addServicePlanVisibility(orgGuid, appName);
+  @FunctionalInterface
+  private interface PublicationStep<T, E extends Exception> {
+    T run() throws E;
+  }
+
+  private static class BuiltEngine {
+
+    private final Path jar;
+    private final String pojoHash;
+    private final PublisherWorkingDirectory workingDir;
+
+    private BuiltEngine(Path jar, String pojoHash, PublisherWorkingDirectory workingDir) {
+      this.jar = jar;
+      this.pojoHash = pojoHash;
+      this.workingDir = workingDir;
+    }
+
+    /**
+     * Hands caller's reference to working directory over to the returned jar.
+     */
+    private ScoringEngineJar toScoringEngineJar() {
+      return new ScoringEngineJar(jar, workingDir);
+    }
   }
 }
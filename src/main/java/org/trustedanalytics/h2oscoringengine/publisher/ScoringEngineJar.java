@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2015 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.PublisherWorkingDirectory;
+
+/**
+ * Built scoring engine handed to one caller. The file is kept until the caller closes it, then
+ * working directory of the build is deleted once every caller sharing the build closed theirs.
+ */
+public class ScoringEngineJar implements AutoCloseable {
+
+  private final Path path;
+  private final PublisherWorkingDirectory workingDirectory;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * @param path engine file
+   * @param workingDirectory directory holding the file; reference to it is owned by this object
+   */
+  public ScoringEngineJar(Path path, PublisherWorkingDirectory workingDirectory) {
+    this.path = path;
+    this.workingDirectory = workingDirectory;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Releases reference to working directory of the build. Closing more than once has no effect.
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      workingDirectory.release();
+    }
+  }
+}
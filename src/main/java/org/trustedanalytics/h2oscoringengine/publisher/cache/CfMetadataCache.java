@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trustedanalytics.h2oscoringengine.publisher.http.RequestCoalescer;
+
+/**
+ * In-memory cache of CloudFoundry metadata shared by all publications (e.g. shared domain GUID)
+ * that practically doesn't change between them. Metadata of a single published engine, like its
+ * service and plan GUIDs, mustn't be cached. Entries expire after configured time and should be
+ * invalidated by callers whenever a request built from a cached value fails.
+ */
+public class CfMetadataCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CfMetadataCache.class);
+
+  private final long ttlMs;
+  private final LongSupplier clock;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final RequestCoalescer<String, String, IOException> loads =
+      new RequestCoalescer<>(IOException::new);
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param ttlMs time after which entries expire; caching is disabled if not positive
+   */
+  public CfMetadataCache(long ttlMs) {
+    this(ttlMs, System::currentTimeMillis);
+  }
+
+  CfMetadataCache(long ttlMs, LongSupplier clock) {
+    this.ttlMs = ttlMs;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns cached value or loads it. Concurrent loads of the same key are coalesced into one.
+   * Empty values are not cached, as they usually mean the resource doesn't exist yet.
+   *
+   * @param key identifier of looked up value, e.g. request URL
+   * @param loader loads value from CloudFoundry
+   * @return cached or loaded value
+   * @throws IOException if value cannot be loaded
+   */
+  public String get(String key, Loader loader) throws IOException {
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAt > clock.getAsLong()) {
+      hits.incrementAndGet();
+      return entry.value;
+    }
+    if (entry != null && entries.remove(key, entry)) {
+      evictions.incrementAndGet();
+    }
+
+    AtomicBoolean loaded = new AtomicBoolean();
+    String value = loads.execute(key, () -> {
+      loaded.set(true);
+      return load(key, loader);
+    });
+    if (!loaded.get()) {
+      hits.incrementAndGet();
+    }
+    return value;
+  }
+
+  public void invalidate(String key) {
+    if (entries.remove(key) != null) {
+      LOGGER.info("Invalidated cached CloudFoundry metadata " + key);
+      evictions.incrementAndGet();
+    }
+  }
+
+  public CacheStatistics getStatistics() {
+    return new CacheStatistics(hits.get(), misses.get(), evictions.get(), entries.size(), 0);
+  }
+
+  private String load(String key, Loader loader) throws IOException {
+    misses.incrementAndGet();
+    String value = loader.load();
+    if (ttlMs > 0 && value != null && !value.isEmpty()) {
+      entries.put(key, new Entry(value, clock.getAsLong() + ttlMs));
+    }
+    return value;
+  }
+
+  @FunctionalInterface
+  public interface Loader {
+    String load() throws IOException;
+  }
+
+  private static final class Entry {
+    private final String value;
+    private final long expiresAt;
+
+    private Entry(String value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
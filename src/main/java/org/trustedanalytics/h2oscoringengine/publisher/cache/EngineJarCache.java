@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Size-bounded, on-disk cache of built scoring engine JARs. Entries are addressed by a hash of
+ * everything a build depends on (see {@link #computeKey(String, Path, String)}) and evicted in
+ * least-recently-used order once the total size exceeds the configured limit.
+ */
+public class EngineJarCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EngineJarCache.class);
+  static final String ENTRY_FILE_EXTENSION = ".jar";
+  private static final String TMP_FILE_EXTENSION = ".tmp";
+
+  private final Path cacheDirectory;
+  private final long maxSizeBytes;
+
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long currentSizeBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public EngineJarCache(Path cacheDirectory, long maxSizeBytes) throws IOException {
+    this.cacheDirectory = Files.createDirectories(cacheDirectory);
+    this.maxSizeBytes = maxSizeBytes;
+    loadExistingEntries();
+  }
+
+  /**
+   * Computes cache key for an engine built from given resources. Model is identified by the hash
+   * of its source computed by the caller, genmodel library by its content, engine base JAR by its
+   * resource path (which carries its version).
+   *
+   * @param modelPojoHash hex encoded SHA-256 of downloaded model source
+   * @param genmodelLib downloaded h2o-genmodel library
+   * @param engineBaseVersion identifier of engine base JAR
+   * @return hex encoded key
+   * @throws IOException if genmodel library cannot be read
+   */
+  public static String computeKey(String modelPojoHash, Path genmodelLib,
+      String engineBaseVersion) throws IOException {
+    MessageDigest digest = DigestUtils.getSha256Digest();
+    digest.update(modelPojoHash.getBytes(StandardCharsets.UTF_8));
+    digest.update(contentHash(genmodelLib));
+    digest.update(engineBaseVersion.getBytes(StandardCharsets.UTF_8));
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  /**
+   * Copies cached engine JAR to given location.
+   *
+   * @param key cache key
+   * @param targetFile file the cached engine should be copied to
+   * @return path to the copy or empty if there's no entry for the key
+   */
+  public Optional<Path> get(String key, Path targetFile) {
+    Path entryFile = entryFile(key);
+    synchronized (this) {
+      if (entries.get(key) == null) {
+        misses.incrementAndGet();
+        LOGGER.debug("Engine cache miss for " + key);
+        return Optional.empty();
+      }
+    }
+
+    try {
+      Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+      Path engineJar = Files.copy(entryFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+      hits.incrementAndGet();
+      LOGGER.info("Engine cache hit for " + key);
+      return Optional.of(engineJar);
+    } catch (NoSuchFileException e) {
+      LOGGER.debug("Engine cache entry " + key + " evicted while being read");
+      forget(key);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read engine cache entry " + key + ": ", e);
+      forget(key);
+    }
+    misses.incrementAndGet();
+    return Optional.empty();
+  }
+
+  /**
+   * Stores copy of engine JAR under given key, evicting least recently used entries if needed.
+   *
+   * @param key cache key
+   * @param engineJar built engine JAR
+   */
+  public void put(String key, Path engineJar) {
+    try {
+      long size = Files.size(engineJar);
+      if (size > maxSizeBytes) {
+        LOGGER.debug("Engine " + engineJar + " exceeds engine cache size. Not caching.");
+        return;
+      }
+
+      Path tmpFile = Files.createTempFile(cacheDirectory, key, TMP_FILE_EXTENSION);
+      try {
+        Files.copy(engineJar, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmpFile, entryFile(key), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmpFile);
+      }
+
+      synchronized (this) {
+        Long previousSize = entries.put(key, size);
+        currentSizeBytes += size - (previousSize == null ? 0 : previousSize);
+        evictOverflow();
+      }
+      LOGGER.info("Engine " + engineJar + " cached as " + key);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to store " + engineJar + " in engine cache: ", e);
+    }
+  }
+
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hits.get(), misses.get(), evictions.get(), entries.size(),
+        currentSizeBytes);
+  }
+
+  private synchronized void forget(String key) {
+    Long size = entries.remove(key);
+    if (size != null) {
+      currentSizeBytes -= size;
+    }
+  }
+
+  private void evictOverflow() {
+    Iterator<Map.Entry<String, Long>> leastRecentlyUsed = entries.entrySet().iterator();
+    while (currentSizeBytes > maxSizeBytes && leastRecentlyUsed.hasNext()) {
+      Map.Entry<String, Long> eldest = leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      currentSizeBytes -= eldest.getValue();
+      evictions.incrementAndGet();
+
+      try {
+        Files.deleteIfExists(entryFile(eldest.getKey()));
+        LOGGER.debug("Evicted " + eldest.getKey() + " from engine cache");
+      } catch (IOException e) {
+        LOGGER.warn("Unable to delete evicted engine cache entry " + eldest.getKey() + ": ", e);
+      }
+    }
+  }
+
+  private void loadExistingEntries() throws IOException {
+    List<Path> existingEntries;
+    try (Stream<Path> files = Files.list(cacheDirectory)) {
+      existingEntries = files.filter(f -> f.toString().endsWith(ENTRY_FILE_EXTENSION))
+          .sorted((a, b) -> lastModified(a).compareTo(lastModified(b)))
+          .collect(Collectors.toList());
+    }
+
+    synchronized (this) {
+      for (Path entry : existingEntries) {
+        String fileName = entry.getFileName().toString();
+        long size = Files.size(entry);
+        entries.put(fileName.substring(0, fileName.length() - ENTRY_FILE_EXTENSION.length()), size);
+        currentSizeBytes += size;
+      }
+      evictOverflow();
+    }
+    LOGGER.info("Engine cache in " + cacheDirectory + " initialized with " + entries.size()
+        + " entries");
+  }
+
+  private Path entryFile(String key) {
+    return cacheDirectory.resolve(key + ENTRY_FILE_EXTENSION);
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  private static byte[] contentHash(Path file) throws IOException {
+    try (InputStream content = Files.newInputStream(file)) {
+      return DigestUtils.sha256(content);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
+import org.trustedanalytics.h2oscoringengine.publisher.http.RequestCoalescer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps one copy of h2o-genmodel library per H2O server and H2O version. Library changes only
+ * when H2O cluster is upgraded, so all builds against the same cluster can share it.
+ */
+public class GenmodelLibCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GenmodelLibCache.class);
+
+  public static final String H2O_SERVER_ABOUT_PATH = "/3/About";
+  static final String H2O_VERSION_ENTRY_NAME = "Build project version";
+  static final String LIB_FILE_NAME = "genmodel.jar";
+  private static final String TMP_FILE_EXTENSION = ".tmp";
+
+  private final Path cacheDirectory;
+  private final ConcurrentMap<String, Path> libraries = new ConcurrentHashMap<>();
+  private final RequestCoalescer<String, Path, IOException> downloads =
+      new RequestCoalescer<>(IOException::new);
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public GenmodelLibCache(Path cacheDirectory) throws IOException {
+    this.cacheDirectory = Files.createDirectories(cacheDirectory);
+  }
+
+  /**
+   * Returns h2o-genmodel library matching version of given H2O server, downloading it on first
+   * request.
+   *
+   * @param h2oFilesDownloader downloader for the H2O server
+   * @param libResourcePath library location on the H2O server
+   * @return path to cached library or empty if H2O server version cannot be determined
+   * @throws IOException if library cannot be downloaded
+   */
+  public Optional<Path> getLibrary(FilesDownloader h2oFilesDownloader, String libResourcePath)
+      throws IOException {
+    Optional<String> h2oVersion = fetchH2oVersion(h2oFilesDownloader);
+    if (!h2oVersion.isPresent()) {
+      return Optional.empty();
+    }
+
+    String key = DigestUtils.sha1Hex(h2oFilesDownloader.getServerUrl() + "|" + h2oVersion.get());
+    Path library = libraries.get(key);
+    if (library != null) {
+      hits.incrementAndGet();
+      return Optional.of(library);
+    }
+
+    // concurrent builds against the same H2O version share one download
+    AtomicBoolean downloaded = new AtomicBoolean();
+    library = downloads.execute(key, () -> {
+      downloaded.set(true);
+      Path loaded = loadLibrary(h2oFilesDownloader, libResourcePath, key, h2oVersion.get());
+      libraries.put(key, loaded);
+      return loaded;
+    });
+    if (!downloaded.get()) {
+      hits.incrementAndGet();
+    }
+    return Optional.of(library);
+  }
+
+  /**
+   * Downloads libraries of given H2O servers in background, each server in a task of its own.
+   * Failures are only logged.
+   *
+   * @param h2oServers servers to download libraries from
+   * @param h2oServerRestTemplate template used for downloading
+   * @param libResourcePath library location on H2O servers
+   * @param downloadExecutor executor running the downloads, e.g. the one shared by H2O downloads
+   *        of builds
+   */
+  public void prewarm(List<BasicAuthServerCredentials> h2oServers,
+      RestTemplate h2oServerRestTemplate, String libResourcePath, Executor downloadExecutor) {
+    h2oServers.forEach(server -> downloadExecutor.execute(() -> {
+      try {
+        LOGGER.info("Prewarming genmodel library cache for " + server.getHost());
+        getLibrary(new FilesDownloader(server, h2oServerRestTemplate), libResourcePath);
+      } catch (IOException | RestClientException e) {
+        LOGGER.warn("Unable to prewarm genmodel library cache for " + server.getHost() + ": ", e);
+      }
+    }));
+  }
+
+  public CacheStatistics getStatistics() {
+    long sizeBytes = libraries.values().stream().mapToLong(lib -> lib.toFile().length()).sum();
+    return new CacheStatistics(hits.get(), misses.get(), 0, libraries.size(), sizeBytes);
+  }
+
+  private Path loadLibrary(FilesDownloader h2oFilesDownloader, String libResourcePath, String key,
+      String h2oVersion) throws IOException {
+    Path library = cacheDirectory.resolve(key).resolve(LIB_FILE_NAME);
+    if (Files.exists(library)) {
+      hits.incrementAndGet();
+      return library;
+    }
+
+    misses.incrementAndGet();
+    LOGGER.info("Caching genmodel library of H2O " + h2oVersion + " from "
+        + h2oFilesDownloader.getServerUrl());
+    Path libraryDir = Files.createDirectories(library.getParent());
+    Path tmpFile = Files.createTempFile(libraryDir, LIB_FILE_NAME, TMP_FILE_EXTENSION);
+    try {
+      h2oFilesDownloader.download(libResourcePath, tmpFile);
+      return Files.move(tmpFile, library, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  private Optional<String> fetchH2oVersion(FilesDownloader h2oFilesDownloader) {
+    try {
+      JsonNode about =
+          new ObjectMapper().readTree(h2oFilesDownloader.downloadAsString(H2O_SERVER_ABOUT_PATH));
+      for (JsonNode entry : about.path("entries")) {
+        String version = entry.path("value").asText();
+        if (H2O_VERSION_ENTRY_NAME.equals(entry.path("name").asText()) && !version.isEmpty()) {
+          return Optional.of(version);
+        }
+      }
+      LOGGER.warn("No version information in " + H2O_SERVER_ABOUT_PATH + " response of "
+          + h2oFilesDownloader.getServerUrl());
+    } catch (IOException | RestClientException e) {
+      LOGGER.warn("Unable to determine version of " + h2oFilesDownloader.getServerUrl() + ": ",
+          e);
+    }
+    return Optional.empty();
+  }
+}
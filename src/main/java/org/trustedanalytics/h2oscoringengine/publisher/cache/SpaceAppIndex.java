@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SPACE_APPS_ENDPOINT_TEMPLATE;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SPACE_APP_EVENTS_ENDPOINT_TEMPLATE;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * In-memory index of names of apps in one CloudFoundry space. It's loaded once from paged
+ * listing of all apps in the space and then kept up to date incrementally from app events of the
+ * space (apps created, renamed or deleted) newer than the last applied one; apps created by
+ * publisher itself are added right away. It only answers whether an app is surely missing;
+ * whenever it's not sure (app is indexed, index isn't loaded or is outdated because refreshes
+ * fail) callers should ask CloudFoundry.
+ */
+public class SpaceAppIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpaceAppIndex.class);
+
+  static final int PAGE_SIZE = 100;
+  static final String APP_CREATE_EVENT = "audit.app.create";
+  static final String APP_UPDATE_EVENT = "audit.app.update";
+  static final String APP_DELETE_EVENT = "audit.app.delete-request";
+  static final String APP_EVENT_TYPES =
+      String.join(",", APP_CREATE_EVENT, APP_UPDATE_EVENT, APP_DELETE_EVENT);
+  static final String NO_EVENTS_TIMESTAMP = "1970-01-01T00:00:00Z";
+  private static final int STALE_AFTER_REFRESH_INTERVALS = 3;
+  private static final long NOT_LOADED = -1;
+
+  private final String cfApiUrl;
+  private final RestTemplate cfRestTemplate;
+  private final String spaceGuid;
+  private final long refreshIntervalMs;
+  private final LongSupplier clock;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private volatile Set<String> appNames = Collections.emptySet();
+  private volatile long loadedAt = NOT_LOADED;
+
+  private final Object refreshLock = new Object();
+  private String lastEventTimestamp;
+
+  /**
+   * @param refreshIntervalMs how often index is updated; index is disabled if not positive
+   */
+  public SpaceAppIndex(String cfApiUrl, RestTemplate cfRestTemplate, String spaceGuid,
+      long refreshIntervalMs) {
+    this(cfApiUrl, cfRestTemplate, spaceGuid, refreshIntervalMs, System::currentTimeMillis);
+  }
+
+  SpaceAppIndex(String cfApiUrl, RestTemplate cfRestTemplate, String spaceGuid,
+      long refreshIntervalMs, LongSupplier clock) {
+    this.cfApiUrl = cfApiUrl;
+    this.cfRestTemplate = cfRestTemplate;
+    this.spaceGuid = spaceGuid;
+    this.refreshIntervalMs = refreshIntervalMs;
+    this.clock = clock;
+  }
+
+  /**
+   * Loads index in background and keeps updating it every refresh interval.
+   *
+   * @param scheduler executor running refreshes
+   */
+  public void scheduleRefresh(ScheduledExecutorService scheduler) {
+    if (refreshIntervalMs <= 0) {
+      return;
+    }
+    scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Loads index from listing of all apps in the space on first call. Later calls only apply app
+   * events of the space not applied yet.
+   *
+   * @throws IOException if listing or events cannot be read
+   */
+  public void refresh() throws IOException {
+    synchronized (refreshLock) {
+      if (lastEventTimestamp == null) {
+        load();
+      } else {
+        applyEventsSince(lastEventTimestamp);
+      }
+    }
+  }
+
+  /**
+   * @return true only if index is up to date and has no app with given name in given space
+   */
+  public boolean isKnownMissing(String spaceGuid, String appName) {
+    return this.spaceGuid.equals(spaceGuid) && isUpToDate() && !appNames.contains(appName);
+  }
+
+  /**
+   * Records app created in indexed space, so it's known before its event is applied.
+   */
+  public synchronized void add(String appName) {
+    Set<String> updatedNames = new HashSet<>(appNames);
+    updatedNames.add(appName);
+    appNames = Collections.unmodifiableSet(updatedNames);
+  }
+
+  private void load() throws IOException {
+    // events from the latest one on are applied by next refresh, so changes made while listing
+    // aren't missed
+    String eventsStart = fetchLatestEventTimestamp().orElse(NO_EVENTS_TIMESTAMP);
+    Set<String> listedNames = new HashSet<>();
+    forEachResource(app -> listedNames.add(app.path("entity").path("name").asText()),
+        SPACE_APPS_ENDPOINT_TEMPLATE, spaceGuid, PAGE_SIZE);
+
+    synchronized (this) {
+      // apps created by publisher while listing might be missing from it
+      listedNames.addAll(appNames);
+      appNames = Collections.unmodifiableSet(listedNames);
+      loadedAt = clock.getAsLong();
+    }
+    lastEventTimestamp = eventsStart;
+    LOGGER.info("Apps in space " + spaceGuid + " indexed: " + listedNames.size() + " apps");
+  }
+
+  /**
+   * Events with the same timestamp as the last applied one are applied again, as they might not
+   * have been listed yet last time. Events are applied in order, so applying them again leaves
+   * the index as it was.
+   */
+  private void applyEventsSince(String timestamp) throws IOException {
+    List<JsonNode> events = new ArrayList<>();
+    forEachResource(events::add, SPACE_APP_EVENTS_ENDPOINT_TEMPLATE, spaceGuid, APP_EVENT_TYPES,
+        timestamp, "asc", PAGE_SIZE);
+
+    String latestTimestamp = timestamp;
+    synchronized (this) {
+      Set<String> updatedNames = new HashSet<>(appNames);
+      for (JsonNode event : events) {
+        JsonNode entity = event.path("entity");
+        apply(entity, updatedNames);
+        String eventTimestamp = entity.path("timestamp").asText();
+        if (eventTimestamp.compareTo(latestTimestamp) > 0) {
+          latestTimestamp = eventTimestamp;
+        }
+      }
+      appNames = Collections.unmodifiableSet(updatedNames);
+      loadedAt = clock.getAsLong();
+    }
+    lastEventTimestamp = latestTimestamp;
+    LOGGER.debug(events.size() + " app events of space " + spaceGuid + " applied to index");
+  }
+
+  /**
+   * Old name of renamed app is kept, as it only costs a lookup in CloudFoundry.
+   */
+  private static void apply(JsonNode eventEntity, Set<String> names) {
+    String appName = eventEntity.path("actee_name").asText();
+    switch (eventEntity.path("type").asText()) {
+      case APP_CREATE_EVENT:
+        names.add(appName);
+        break;
+      case APP_UPDATE_EVENT:
+        String newName = eventEntity.path("metadata").path("request").path("name").textValue();
+        if (newName != null) {
+          names.add(newName);
+        }
+        break;
+      case APP_DELETE_EVENT:
+        names.remove(appName);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private boolean isUpToDate() {
+    return loadedAt != NOT_LOADED
+        && clock.getAsLong() - loadedAt < STALE_AFTER_REFRESH_INTERVALS * refreshIntervalMs;
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (IOException | RestClientException e) {
+      LOGGER.warn("Unable to refresh index of apps in space " + spaceGuid + ": ", e);
+    }
+  }
+
+  private Optional<String> fetchLatestEventTimestamp() throws IOException {
+    JsonNode page = fetchPage(SPACE_APP_EVENTS_ENDPOINT_TEMPLATE, spaceGuid, APP_EVENT_TYPES,
+        NO_EVENTS_TIMESTAMP, "desc", 1);
+    JsonNode latest = page.path("resources").path(0).path("entity").path("timestamp");
+    return Optional.ofNullable(latest.textValue());
+  }
+
+  private void forEachResource(Consumer<JsonNode> resourceConsumer, String endpointTemplate,
+      Object... urlVariables) throws IOException {
+    JsonNode page = fetchPage(endpointTemplate, urlVariables);
+    while (true) {
+      page.path("resources").forEach(resourceConsumer);
+      String nextPage = page.path("next_url").textValue();
+      if (nextPage == null) {
+        return;
+      }
+      // next page URL comes already encoded from CloudFoundry
+      page = readPage(cfRestTemplate.exchange(URI.create(cfApiUrl + nextPage), HttpMethod.GET,
+          HttpCommunication.simpleJsonRequest(), String.class).getBody());
+    }
+  }
+
+  private JsonNode fetchPage(String endpointTemplate, Object... urlVariables) throws IOException {
+    return readPage(cfRestTemplate.exchange(cfApiUrl + endpointTemplate, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, urlVariables).getBody());
+  }
+
+  private JsonNode readPage(String response) throws IOException {
+    JsonNode page = mapper.readTree(response);
+    if (page == null || !page.path("resources").isArray()) {
+      throw new IOException("Unexpected CloudFoundry listing response: " + response);
+    }
+    return page;
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Application bits (scoring engine JAR) seen as a set of files, as CloudFoundry sees them after
+ * unpacking.
+ */
+public class AppBitsArchive {
+
+  private final Path archivePath;
+  private final Optional<EngineBaseJar> baseJar;
+
+  public AppBitsArchive(Path archivePath) {
+    this.archivePath = archivePath;
+    this.baseJar = Optional.empty();
+  }
+
+  /**
+   * @param archivePath scoring engine JAR
+   * @param baseJar JAR the scoring engine was built on; files copied from it are not hashed again
+   */
+  public AppBitsArchive(Path archivePath, EngineBaseJar baseJar) {
+    this.archivePath = archivePath;
+    this.baseJar = Optional.of(baseJar);
+  }
+
+  /**
+   * @return all files (directories excluded) of the archive with their SHA-1 and size
+   * @throws IOException if archive cannot be read
+   */
+  public List<AppBitsEntry> getEntries() throws IOException {
+    List<AppBitsEntry> entries = new ArrayList<>();
+    try (ZipFile archive = new ZipFile(archivePath.toFile())) {
+      for (ZipArchiveEntry entry : Collections.list(archive.getEntriesInPhysicalOrder())) {
+        if (entry.isDirectory()) {
+          continue;
+        }
+        Optional<AppBitsEntry> known = baseJar.flatMap(jar -> jar.findAppBitsEntry(entry));
+        entries.add(known.isPresent() ? known.get() : describe(archive, entry));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Creates copy of the archive without given files. Remaining entries are copied without being
+   * recompressed.
+   *
+   * @param excludedFileNames names of files to skip
+   * @param targetFile file for the copy
+   * @return path to the copy
+   * @throws IOException if archive cannot be read or copy cannot be written
+   */
+  public Path copyWithout(Set<String> excludedFileNames, Path targetFile) throws IOException {
+    try (ZipFile archive = new ZipFile(archivePath.toFile());
+        ZipArchiveOutputStream copy = new ZipArchiveOutputStream(targetFile.toFile())) {
+      for (ZipArchiveEntry entry : Collections.list(archive.getEntriesInPhysicalOrder())) {
+        if (excludedFileNames.contains(entry.getName())) {
+          continue;
+        }
+        try (InputStream rawContent = archive.getRawInputStream(entry)) {
+          copy.addRawArchiveEntry(entry, rawContent);
+        }
+      }
+    }
+    return targetFile;
+  }
+
+  static AppBitsEntry describe(ZipFile archive, ZipArchiveEntry entry) throws IOException {
+    try (InputStream content = archive.getInputStream(entry)) {
+      return new AppBitsEntry(entry.getName(), DigestUtils.sha1Hex(content), entry.getSize());
+    }
+  }
+}
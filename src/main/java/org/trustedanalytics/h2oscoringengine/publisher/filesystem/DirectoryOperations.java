@@ -29,4 +29,21 @@ public interface DirectoryOperations {
 
   Path createSubdirectory(Path dir, String subdirectoryName) throws IOException;
 
+  /**
+   * Creates new directory which name starts with given prefix and is not used by any other
+   * directory.
+   * @param parentDir directory to create the directory in
+   * @param prefix beginning of the directory name
+   * @return the directory
+   * @throws IOException if an I/O error occurs
+   */
+  Path createUniqueDirectory(Path parentDir, String prefix) throws IOException;
+
+  /**
+   * Deletes directory with all its content. Does nothing if directory doesn't exist.
+   * @param path directory to delete
+   * @throws IOException if an I/O error occurs
+   */
+  void deleteDirectoryTree(Path path) throws IOException;
+
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Engine base JAR extracted from classpath once and shared by all builds. Its central directory is
+ * parsed and its files are hashed on creation; entries are then read concurrently without reopening
+ * the file.
+ */
+public class EngineBaseJar implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EngineBaseJar.class);
+  private static final String TMP_FILE_EXTENSION = ".tmp";
+
+  private final String resourcePath;
+  private final Path jarPath;
+  private final ZipFile jarFile;
+  private final List<ZipArchiveEntry> entries;
+  private final Map<String, AppBitsEntry> appBitsEntries = new HashMap<>();
+
+  public EngineBaseJar(String resourcePath, Path extractionDirectory) throws IOException {
+    this(extract(resourcePath, Files.createDirectories(extractionDirectory)), resourcePath);
+  }
+
+  EngineBaseJar(Path jarPath) throws IOException {
+    this(jarPath, jarPath.toString());
+  }
+
+  private EngineBaseJar(Path jarPath, String resourcePath) throws IOException {
+    this.resourcePath = resourcePath;
+    this.jarPath = jarPath;
+    this.jarFile = new ZipFile(jarPath.toFile());
+    this.entries = Collections.list(jarFile.getEntriesInPhysicalOrder());
+    for (ZipArchiveEntry entry : entries) {
+      if (!entry.isDirectory()) {
+        appBitsEntries.put(entry.getName(), AppBitsArchive.describe(jarFile, entry));
+      }
+    }
+    LOGGER.info("Engine base JAR " + resourcePath + " indexed in " + jarPath + " with "
+        + entries.size() + " entries");
+  }
+
+  public String getResourcePath() {
+    return resourcePath;
+  }
+
+  public Path getJarPath() {
+    return jarPath;
+  }
+
+  /**
+   * @return entries of the JAR in the order they are stored in the file
+   */
+  public List<ZipArchiveEntry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * @param entry one of {@link #getEntries()}
+   * @return stream of entry data as stored in the JAR, without decompressing it
+   * @throws IOException if entry cannot be read
+   */
+  public InputStream getRawInputStream(ZipArchiveEntry entry) throws IOException {
+    return jarFile.getRawInputStream(entry);
+  }
+
+  /**
+   * Finds description of an app bits file copied unchanged from this JAR, so that its content
+   * doesn't need to be hashed again.
+   *
+   * @param entry entry of a JAR built on top of this one
+   * @return description of the file or empty if entry is not a copy of one of this JAR's files
+   */
+  public Optional<AppBitsEntry> findAppBitsEntry(ZipArchiveEntry entry) {
+    return Optional.ofNullable(appBitsEntries.get(entry.getName()))
+        .filter(known -> isCopy(entry, jarFile.getEntry(entry.getName())));
+  }
+
+  @Override
+  public void close() throws IOException {
+    jarFile.close();
+  }
+
+  private static boolean isCopy(ZipArchiveEntry entry, ZipArchiveEntry baseEntry) {
+    return entry.getCrc() == baseEntry.getCrc() && entry.getSize() == baseEntry.getSize()
+        && entry.getCompressedSize() == baseEntry.getCompressedSize();
+  }
+
+  private static Path extract(String resourcePath, Path extractionDirectory) throws IOException {
+    try (InputStream resource = EngineBaseJar.class.getResourceAsStream(resourcePath)) {
+      if (null == resource) {
+        throw new IOException("JAR resource " + resourcePath + " not found");
+      }
+
+      Path jarPath = extractionDirectory.resolve(Paths.get(resourcePath).getFileName());
+      Path tmpFile = Files.createTempFile(extractionDirectory, jarPath.getFileName().toString(),
+          TMP_FILE_EXTENSION);
+      try {
+        Files.copy(resource, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+        tmpFile.toFile().setReadOnly();
+        return Files.move(tmpFile, jarPath, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmpFile);
+      }
+    }
+  }
+}
@@ -42,6 +42,18 @@ public class FsDirectoryOperations implements DirectoryOperations {
     return Files.createDirectory(subDirPath);
   }
 
+  @Override
+  public Path createUniqueDirectory(Path parentDir, String prefix) throws IOException {
+    return Files.createTempDirectory(Files.createDirectories(parentDir), prefix);
+  }
+
+  @Override
+  public void deleteDirectoryTree(Path path) throws IOException {
+    if (Files.exists(path)) {
+      clearDirectory(path);
+    }
+  }
+
   private void clearDirectory(Path dir) throws IOException {
     Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
 
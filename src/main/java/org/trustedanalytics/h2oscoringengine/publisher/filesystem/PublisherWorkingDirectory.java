@@ -15,29 +15,93 @@ package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Working directory of one build. It's reference counted: creator holds the first reference,
+ * everybody else using files of the build retains one, and the directory is handed over for
+ * deletion once the last reference is released.
+ */
 public class PublisherWorkingDirectory {
 
-  static final String SYSTEM_TMP = System.getProperty("java.io.tmpdir");
-  static final String PUBLISHER_PARENT_DIRECTORY_NAME = "h2o-scoring-engine-publisher";
   static final String H2O_RESOURCES_SUBDIR_NAME = "model";
   static final String COMPILED_MODEL_SUBDIR_NAME = "classes";
+  private static final String UNSAFE_NAME_CHARACTERS = "[^A-Za-z0-9._-]";
 
-  private String workingDirectoryName;
-  private DirectoryOperations directoryOperations;
+  private final DirectoryOperations directoryOperations;
+  private final Consumer<PublisherWorkingDirectory> releaseHandler;
+  private final AtomicInteger references = new AtomicInteger(1);
 
+  private Path workingDir;
   private Path h2oResourcesPath;
   private Path compiledModelPath;
   private Path modelJarPath;
   private Path scoringEngineJarDir;
 
-  public PublisherWorkingDirectory(String workingDirectoryName, DirectoryOperations dirOperations)
-      throws IOException {
-    this.workingDirectoryName = workingDirectoryName;
+  private PublisherWorkingDirectory(Path workingDir, DirectoryOperations dirOperations,
+      Consumer<PublisherWorkingDirectory> releaseHandler) throws IOException {
     this.directoryOperations = dirOperations;
+    this.releaseHandler = releaseHandler;
+
+    createSubdirectories(workingDir);
+  }
+
+  /**
+   * Creates working directory of its own for one build, so concurrent builds never share files,
+   * even of the same model.
+   *
+   * @param parentDir directory to create working directory in
+   * @param modelName model being built; directory name starts with it
+   * @param dirOperations file system operations
+   * @param releaseHandler called once the last reference to the directory is released
+   * @return the working directory, with single reference held by the caller
+   * @throws IOException if directories cannot be created
+   */
+  public static PublisherWorkingDirectory createUnique(Path parentDir, String modelName,
+      DirectoryOperations dirOperations, Consumer<PublisherWorkingDirectory> releaseHandler)
+      throws IOException {
+    String prefix = modelName.replaceAll(UNSAFE_NAME_CHARACTERS, "_") + "-";
+    return new PublisherWorkingDirectory(dirOperations.createUniqueDirectory(parentDir, prefix),
+        dirOperations, releaseHandler);
+  }
 
-    createDirectoryTree();
+  /**
+   * Takes another reference to the directory.
+   *
+   * @return false if the last reference was already released, so the directory mustn't be used
+   */
+  public boolean retain() {
+    while (true) {
+      int current = references.get();
+      if (current <= 0) {
+        return false;
+      }
+      if (references.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases reference taken on creation or by {@link #retain()}. Each reference must be released
+   * exactly once.
+   */
+  public void release() {
+    if (references.decrementAndGet() == 0) {
+      releaseHandler.accept(this);
+    }
+  }
+
+  /**
+   * @return true once the last reference is released
+   */
+  boolean isReleased() {
+    return references.get() <= 0;
+  }
+
+  public Path getPath() {
+    return workingDir;
   }
 
   public Path getCompiledModelPath() {
@@ -55,11 +119,9 @@ public class PublisherWorkingDirectory {
   public Path getScoringEngineJarDir() {
     return scoringEngineJarDir;
   }
-  
-  private void createDirectoryTree() throws IOException {
-    Path workingDir = Paths.get(SYSTEM_TMP, PUBLISHER_PARENT_DIRECTORY_NAME, workingDirectoryName);
-    directoryOperations.createEmptyDirectoryTree(workingDir);
 
+  private void createSubdirectories(Path workingDir) throws IOException {
+    this.workingDir = workingDir;
     this.h2oResourcesPath =
         directoryOperations.createSubdirectory(workingDir, H2O_RESOURCES_SUBDIR_NAME);
     this.compiledModelPath =
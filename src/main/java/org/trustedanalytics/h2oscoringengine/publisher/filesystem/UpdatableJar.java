@@ -15,19 +15,15 @@ package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Enumeration;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
-import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 
-import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 
 public class UpdatableJar implements Closeable {
 
@@ -36,7 +32,7 @@ public class UpdatableJar implements Closeable {
 
   private final Path jarPath;
 
-  private final JarOutputStream jar;
+  private final ZipArchiveOutputStream jar;
 
   public UpdatableJar(String fileName, Path targetDirectory) throws IOException {
 
@@ -47,34 +43,37 @@ public class UpdatableJar implements Closeable {
       jarFileName = fileName.concat(".jar");
     }
     this.jarPath = Paths.get(targetDirectory.toString(), jarFileName);
-    this.jar = new JarOutputStream(new FileOutputStream(jarPath.toFile()));
+    this.jar = new ZipArchiveOutputStream(jarPath.toFile());
   }
 
 
+  /**
+   * Stores given JAR in lib directory without compressing it. Library is streamed into the entry
+   * in one pass; its CRC is computed while writing and, as the JAR is written to a random access
+   * file, filled into the entry header afterwards.
+   */
   public UpdatableJar addUncompressedLibJar(Path libJarPath) throws IOException {
-    JarEntry libEntry = createUncompressedJarEntry(libJarPath);
+    ZipArchiveEntry libEntry = createUncompressedJarEntry(libJarPath);
 
-    jar.putNextEntry(libEntry);
-    jar.write(Files.readAllBytes(libJarPath));
-    jar.closeEntry();
+    jar.putArchiveEntry(libEntry);
+    Files.copy(libJarPath, jar);
+    jar.closeArchiveEntry();
     jar.flush();
     jar.close();
 
     return this;
   }
 
-  public UpdatableJar addJarContent(JarFile jarFile) throws IOException {
-
-    Enumeration<JarEntry> entries = jarFile.entries();
-    while (entries.hasMoreElements()) {
-      JarEntry jarEntry = entries.nextElement();
-      jar.putNextEntry(jarEntry);
-
-      InputStream inputStream = jarFile.getInputStream(jarEntry);
-      jar.write(ByteStreams.toByteArray(inputStream));
-      jar.closeEntry();
+  /**
+   * Copies all entries of given JAR as they are stored in it: compressed data, CRC and sizes are
+   * moved to the new JAR without being decompressed.
+   */
+  public UpdatableJar addRawJarContent(EngineBaseJar baseJar) throws IOException {
+    for (ZipArchiveEntry entry : baseJar.getEntries()) {
+      try (InputStream rawContent = baseJar.getRawInputStream(entry)) {
+        jar.addRawArchiveEntry(entry, rawContent);
+      }
     }
-    jarFile.close();
     jar.flush();
 
     return this;
@@ -94,24 +93,15 @@ public class UpdatableJar implements Closeable {
     jar.close();
   }
 
-  private JarEntry createUncompressedJarEntry(Path jarPath) throws IOException {
+  private ZipArchiveEntry createUncompressedJarEntry(Path jarPath) {
     File jarFile = jarPath.toFile();
 
-    JarEntry uncompressedEntry = new JarEntry(LIB_DIR + jarFile.getName());
-    uncompressedEntry.setMethod(JarOutputStream.STORED);
+    ZipArchiveEntry uncompressedEntry = new ZipArchiveEntry(LIB_DIR + jarFile.getName());
+    uncompressedEntry.setMethod(ZipEntry.STORED);
     uncompressedEntry.setSize(jarFile.length());
-    uncompressedEntry.setCrc(computeCrc32Checksum(jarFile));
 
     return uncompressedEntry;
   }
 
-  private long computeCrc32Checksum(File file) throws IOException {
-    CRC32 checksum = new CRC32();
-    checksum.reset();
-    checksum.update(Files.readAllBytes(file.toPath()));
-
-    return checksum.getValue();
-  }
-
 
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates working directory of its own for each build and deletes it once the last reference to
+ * it is released, i.e. built engine was published or downloaded by everybody sharing the build.
+ * Directories still owned after retention period are deleted in background when they're not used
+ * anymore: either released (but their deletion failed) or leaked, i.e. garbage collected without
+ * being released. Directories still referenced are never deleted. Only directories created by
+ * this instance are deleted, so several publishers may share the parent directory.
+ */
+public class WorkingDirectories {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkingDirectories.class);
+
+  private final Path parentDirectory;
+  private final DirectoryOperations directoryOperations;
+  private final long retentionMs;
+  private final LongSupplier clock;
+
+  private final ConcurrentMap<Path, OwnedDirectory> ownedDirectories = new ConcurrentHashMap<>();
+
+  /**
+   * @param retentionMs how long after creation working directories not released by their users
+   *        are checked for leaks; they're never deleted for age if not positive
+   */
+  public WorkingDirectories(Path parentDirectory, DirectoryOperations directoryOperations,
+      long retentionMs) {
+    this(parentDirectory, directoryOperations, retentionMs, System::currentTimeMillis);
+  }
+
+  WorkingDirectories(Path parentDirectory, DirectoryOperations directoryOperations,
+      long retentionMs, LongSupplier clock) {
+    this.parentDirectory = parentDirectory;
+    this.directoryOperations = directoryOperations;
+    this.retentionMs = retentionMs;
+    this.clock = clock;
+  }
+
+  /**
+   * @param modelName model being built
+   * @return new working directory, not shared with any other build; it's deleted once caller's
+   *         reference and all retained later are released
+   * @throws IOException if directory cannot be created
+   */
+  public PublisherWorkingDirectory create(String modelName) throws IOException {
+    PublisherWorkingDirectory workingDir = PublisherWorkingDirectory
+        .createUnique(parentDirectory, modelName, directoryOperations, this::delete);
+    ownedDirectories.put(workingDir.getPath(), new OwnedDirectory(workingDir, clock.getAsLong()));
+    return workingDir;
+  }
+
+  /**
+   * Deletes expired directories in background every retention period.
+   *
+   * @param scheduler executor running deletions
+   */
+  public void scheduleCleanup(ScheduledExecutorService scheduler) {
+    if (retentionMs <= 0) {
+      return;
+    }
+    scheduler.scheduleWithFixedDelay(this::deleteExpired, retentionMs, retentionMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Deletes owned directories created more than retention period ago that are released or leaked.
+   * Directories still referenced are kept however old they are. Failures are only logged;
+   * deletion is retried on next cleanup.
+   */
+  public void deleteExpired() {
+    if (retentionMs <= 0) {
+      return;
+    }
+    long now = clock.getAsLong();
+    for (Map.Entry<Path, OwnedDirectory> owned : ownedDirectories.entrySet()) {
+      if (now - owned.getValue().createdAt < retentionMs) {
+        continue;
+      }
+      PublisherWorkingDirectory workingDir = owned.getValue().workingDir.get();
+      if (workingDir != null && !workingDir.isReleased()) {
+        LOGGER.debug("Working directory " + owned.getKey() + " still in use. Not deleting it.");
+        continue;
+      }
+      try {
+        directoryOperations.deleteDirectoryTree(owned.getKey());
+        ownedDirectories.remove(owned.getKey());
+        LOGGER.debug("Deleted expired working directory " + owned.getKey());
+      } catch (IOException e) {
+        LOGGER.warn("Unable to delete working directory " + owned.getKey() + ": ", e);
+      }
+    }
+  }
+
+  private void delete(PublisherWorkingDirectory workingDir) {
+    Path path = workingDir.getPath();
+    try {
+      directoryOperations.deleteDirectoryTree(path);
+      ownedDirectories.remove(path);
+      LOGGER.debug("Deleted released working directory " + path);
+    } catch (IOException e) {
+      // still owned, so it's deleted once it expires
+      LOGGER.warn("Unable to delete working directory " + path + ": ", e);
+    }
+  }
+
+  int ownedDirectories() {
+    return ownedDirectories.size();
+  }
+
+  /**
+   * Directory is referenced weakly, so that one whose users dropped it without releasing it is
+   * recognized as leaked once it's garbage collected.
+   */
+  private static class OwnedDirectory {
+
+    private final WeakReference<PublisherWorkingDirectory> workingDir;
+    private final long createdAt;
+
+    private OwnedDirectory(PublisherWorkingDirectory workingDir, long createdAt) {
+      this.workingDir = new WeakReference<>(workingDir);
+      this.createdAt = createdAt;
+    }
+  }
+}
@@ -17,15 +17,25 @@ public final class CloudFoundryEndpoints {
 
   public static final String APP_IN_SPACE_ENDPOINT_TEMPLATE =
       "/v2/spaces/{spaceGuid}/apps?q=name:{appName}";
+  public static final String SPACE_APPS_ENDPOINT_TEMPLATE =
+      "/v2/spaces/{spaceGuid}/apps?results-per-page={pageSize}";
+  public static final String SPACE_APP_EVENTS_ENDPOINT_TEMPLATE = "/v2/events"
+      + "?q=space_guid:{spaceGuid}&q=type IN {eventTypes}&q=timestamp>={since}"
+      + "&order-direction={orderDirection}&results-per-page={pageSize}";
   public static final String APPS_ENDPOINT = "/v2/apps";
   public static final String SHARED_DOMAINS_ENDPOINT = "/v2/shared_domains";
   public static final String ROUTES_ENDPOINT = "/v2/routes";
+  public static final String ROUTE_ENDPOINT_TEMPLATE = "/v2/routes/{routeGuid}";
   public static final String GET_ROUTES_ENDPOINT_TEMPLATE =
       "/v2/routes?q=host:{name};domain_guid:{guid}";
   public static final String BIND_ROUTE_TO_APP_ENDPOINT_TEMPLATE =
       "/v2/apps/{appGuid}/routes/{routeGuid}";
+  public static final String APP_ENDPOINT_TEMPLATE = "/v2/apps/{appGuid}";
+  public static final String APP_RESTAGE_ENDPOINT_TEMPLATE = "/v2/apps/{appGuid}/restage";
   public static final String APP_BITS_ENDPOINT_TEMPLATE = "/v2/apps/{appGuid}/bits";
+  public static final String RESOURCE_MATCH_ENDPOINT = "/v2/resource_match";
   public static final String APP_BROKER_CATALOG_ENDPOINT = "/v2/catalog";
+  public static final String APP_BROKER_SERVICE_ENDPOINT_TEMPLATE = "/v2/catalog/{serviceId}";
   public static final String GET_SERVICE_GUID_BY_NAME_ENDPOINT_TEMPLATE =
       "/v2/services?q=label:{serviceName}";
   public static final String GET_SERVICE_PLANS_ENDPOINT_TEMPLATE =
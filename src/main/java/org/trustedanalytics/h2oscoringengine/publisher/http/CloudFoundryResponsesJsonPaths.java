@@ -23,8 +23,13 @@ public final class CloudFoundryResponsesJsonPaths {
   public static final String ROUTES_NUMBER_JSON_PATH = "/total_results";
   public static final String ROUTE_GUID_JSON_PATH = "/metadata/guid";
   public static final String APP_GUID_JSON_PATH = "/metadata/guid";
+  public static final String FIRST_APP_GUID_JSON_PATH = GUID_PATH;
+  public static final String APP_STATE_JSON_PATH = "/entity/state";
   public static final String SERVICE_GUID_JSON_PATH = GUID_PATH;
   public static final String FIRST_SERVICE_PLAN_GUID = GUID_PATH;
+  public static final String JOB_URL_JSON_PATH = "/metadata/url";
+  public static final String JOB_STATUS_JSON_PATH = "/entity/status";
+  public static final String JOB_ERROR_JSON_PATH = "/entity/error_details/description";
   
 
   private CloudFoundryResponsesJsonPaths() {
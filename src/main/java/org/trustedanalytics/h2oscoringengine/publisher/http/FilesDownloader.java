@@ -14,8 +14,12 @@
 package org.trustedanalytics.h2oscoringengine.publisher.http;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
@@ -23,8 +27,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -33,6 +37,11 @@ import org.springframework.web.client.RestTemplate;
 public class FilesDownloader {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FilesDownloader.class);
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  // shared by all downloaders, so concurrent builds against one server ask it once
+  private static final RequestCoalescer<String, String, IOException> STRING_REQUESTS =
+      new RequestCoalescer<>(IOException::new);
 
   private final String basicAuthToken;
   private final String serverUrl;
@@ -45,26 +54,100 @@ public class FilesDownloader {
     this.basicAuthRestTemplate = basicAuthRestTemplate;
   }
 
+  /**
+   * Streams resource to given file through a fixed-size buffer, so heap usage doesn't depend on
+   * resource size.
+   *
+   * @param resourcePath resource location on the server
+   * @param destinationFilePath file to write resource to
+   * @return destination file
+   * @throws IOException if resource cannot be downloaded or written
+   */
   public Path download(String resourcePath, Path destinationFilePath) throws IOException {
 
-    basicAuthRestTemplate.getMessageConverters().add(new ByteArrayHttpMessageConverter());
-
     String resourceUrl = serverUrl + resourcePath;
 
     LOGGER.info("Downloading " + resourceUrl);
 
     try {
-      ResponseEntity<byte[]> response = basicAuthRestTemplate.exchange(resourceUrl, HttpMethod.GET,
-          HttpCommunication.basicAuthRequest(basicAuthToken), byte[].class);
-      return Files.write(destinationFilePath, response.getBody());
+      long startTime = System.nanoTime();
+      long bytesDownloaded = basicAuthRestTemplate.execute(resourceUrl, HttpMethod.GET,
+          HttpCommunication.basicAuthRequestCallback(basicAuthToken),
+          response -> copy(response.getBody(), destinationFilePath));
+      logThroughput(resourceUrl, bytesDownloaded, System.nanoTime() - startTime);
+      return destinationFilePath;
 
     } catch (HttpClientErrorException e) {
       String errorMessage = prepareErrorMessage(e.getStatusCode(), resourceUrl);
       LOGGER.error(errorMessage);
       throw new IOException(errorMessage, e);
+    } catch (ResourceAccessException e) {
+      String errorMessage = "Unable to download resource " + resourceUrl + " " + e.getMessage();
+      LOGGER.error(errorMessage);
+      throw new IOException(errorMessage, e);
     }
   }
 
+  /**
+   * Fetches resource as string. Identical concurrent requests (same resource and credentials)
+   * are coalesced into one.
+   *
+   * @param resourcePath resource location on the server
+   * @return resource content
+   * @throws IOException if resource cannot be downloaded
+   */
+  public String downloadAsString(String resourcePath) throws IOException {
+    String resourceUrl = serverUrl + resourcePath;
+    return STRING_REQUESTS.execute(basicAuthToken + "@" + resourceUrl,
+        () -> fetchAsString(resourceUrl));
+  }
+
+  private String fetchAsString(String resourceUrl) throws IOException {
+
+    LOGGER.debug("Fetching " + resourceUrl);
+
+    try {
+      ResponseEntity<String> response = basicAuthRestTemplate.exchange(resourceUrl, HttpMethod.GET,
+          HttpCommunication.basicAuthRequest(basicAuthToken), String.class);
+      return response.getBody();
+
+    } catch (HttpClientErrorException e) {
+      String errorMessage = prepareErrorMessage(e.getStatusCode(), resourceUrl);
+      LOGGER.error(errorMessage);
+      throw new IOException(errorMessage, e);
+    } catch (ResourceAccessException e) {
+      String errorMessage = "Unable to fetch resource " + resourceUrl + " " + e.getMessage();
+      LOGGER.error(errorMessage);
+      throw new IOException(errorMessage, e);
+    }
+  }
+
+  public String getServerUrl() {
+    return serverUrl;
+  }
+
+  private long copy(InputStream source, Path destinationFilePath) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long bytesCopied = 0;
+    try (OutputStream destination = Files.newOutputStream(destinationFilePath)) {
+      int bytesRead;
+      while ((bytesRead = source.read(buffer)) != -1) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new InterruptedIOException("Download to " + destinationFilePath + " cancelled");
+        }
+        destination.write(buffer, 0, bytesRead);
+        bytesCopied += bytesRead;
+      }
+    }
+    return bytesCopied;
+  }
+
+  private void logThroughput(String resourceUrl, long bytes, long elapsedNanos) {
+    long elapsedMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), 1);
+    LOGGER.info("Downloaded " + bytes + " bytes from " + resourceUrl + " in " + elapsedMillis
+        + " ms (" + (bytes * 1000 / elapsedMillis) + " bytes/s)");
+  }
+
   private String prepareErrorMessage(HttpStatus httpStatus, String resourceUrl) {
     String errorMessage = "Unable to download resource " + resourceUrl + " ";
 
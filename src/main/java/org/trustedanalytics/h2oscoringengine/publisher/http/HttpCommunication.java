@@ -15,11 +15,13 @@ package org.trustedanalytics.h2oscoringengine.publisher.http;
 
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RequestCallback;
 
 public final class HttpCommunication {
   
   public static final String CONTENT_TYPE_HEADER_NAME = "Content-type";
   public static final String JSON_ACCEPT_HEADER_VALUE = "application/json";
+  public static final String AUTHORIZATION_HEADER_NAME = "Authorization";
   
   private HttpCommunication(){
   }
@@ -28,6 +30,10 @@ public final class HttpCommunication {
     return new HttpEntity<>(createJsonHeaders());
   }
 
+  public static HttpEntity<String> jsonRequest(String body) {
+    return new HttpEntity<>(body, createJsonHeaders());
+  }
+
   public static HttpEntity<String> postRequest(String body) {
     HttpHeaders headers = new HttpHeaders();
     headers.add("Accept", JSON_ACCEPT_HEADER_VALUE);
@@ -38,15 +44,20 @@ public final class HttpCommunication {
 
   public static HttpEntity<String> basicAuthRequest(String basicAuthToken) {
     HttpHeaders headers = new HttpHeaders();
-    headers.add("Authorization", "Basic " + basicAuthToken);
+    headers.add(AUTHORIZATION_HEADER_NAME, "Basic " + basicAuthToken);
 
     return new HttpEntity<>(headers);
   }
+
+  public static RequestCallback basicAuthRequestCallback(String basicAuthToken) {
+    return request -> request.getHeaders().add(AUTHORIZATION_HEADER_NAME,
+        "Basic " + basicAuthToken);
+  }
   
   public static HttpHeaders basicAuthJsonHeaders(String basicAuthToken) {
     HttpHeaders headers = new HttpHeaders();
     headers.add(CONTENT_TYPE_HEADER_NAME, JSON_ACCEPT_HEADER_VALUE);
-    headers.add("Authorization", "Basic " + basicAuthToken);
+    headers.add(AUTHORIZATION_HEADER_NAME, "Basic " + basicAuthToken);
 
     return headers;
   }
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.http;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Lists models available on H2O server.
+ */
+public final class ModelListing {
+
+  public static final String H2O_MODELS_PATH = "/3/Models";
+
+  private ModelListing() {}
+
+  /**
+   * @param h2oFilesDownloader downloader for the H2O server
+   * @return names of models mapped to their creation timestamps (0 if server doesn't report
+   *         them), in order of listing
+   * @throws IOException if listing cannot be fetched or read
+   */
+  public static Map<String, Long> fetch(FilesDownloader h2oFilesDownloader) throws IOException {
+    JsonNode models =
+        new ObjectMapper().readTree(h2oFilesDownloader.downloadAsString(H2O_MODELS_PATH));
+    if (models == null || !models.path("models").isArray()) {
+      throw new IOException("Unexpected models listing response of "
+          + h2oFilesDownloader.getServerUrl());
+    }
+
+    Map<String, Long> modelTimestamps = new LinkedHashMap<>();
+    for (JsonNode model : models.path("models")) {
+      String modelName = model.path("model_id").path("name").asText();
+      if (!modelName.isEmpty()) {
+        modelTimestamps.put(modelName, model.path("timestamp").asLong());
+      }
+    }
+    return modelTimestamps;
+  }
+}
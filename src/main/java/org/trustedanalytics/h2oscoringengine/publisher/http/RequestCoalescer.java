@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.http;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * Lets concurrent callers asking for the same resource share one in-flight request. The first
+ * caller executes the request, the others wait for and receive its result (or its exception).
+ * Nothing is retained once the request completes, so later callers issue a new one. When the
+ * caller executing the request is interrupted (e.g. its own work was cancelled), waiting callers
+ * don't inherit that failure; one of them executes the request again.
+ *
+ * @param <K> type of resource identifier
+ * @param <V> type of request result
+ * @param <E> type of request failure
+ */
+public class RequestCoalescer<K, V, E extends Exception> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final BiFunction<String, Throwable, E> failureFactory;
+
+  /**
+   * @param failureFactory creates failure thrown to waiting callers from message and cause, e.g.
+   *        {@code IOException::new}
+   */
+  public RequestCoalescer(BiFunction<String, Throwable, E> failureFactory) {
+    this.failureFactory = failureFactory;
+  }
+
+  /**
+   * Executes request or joins identical request already in flight.
+   *
+   * @param key resource identifier; requests with equal keys must be interchangeable
+   * @param request request to execute if none is in flight
+   * @return request result
+   * @throws E if request failed
+   */
+  public V execute(K key, Request<V, E> request) throws E {
+    while (true) {
+      CompletableFuture<V> ownRequest = new CompletableFuture<>();
+      CompletableFuture<V> sharedRequest = inFlight.putIfAbsent(key, ownRequest);
+      if (sharedRequest == null) {
+        return executeShared(key, ownRequest, request);
+      }
+      try {
+        return await(sharedRequest);
+      } catch (AbandonedRequestException e) {
+        // executing caller was interrupted, request is executed again
+      }
+    }
+  }
+
+  int inFlightRequests() {
+    return inFlight.size();
+  }
+
+  private V executeShared(K key, CompletableFuture<V> ownRequest, Request<V, E> request)
+      throws E {
+    try {
+      V result = request.execute();
+      ownRequest.complete(result);
+      return result;
+    } catch (Exception | Error e) {
+      ownRequest.completeExceptionally(
+          isInterruption(e) ? new AbandonedRequestException() : e);
+      throw e;
+    } finally {
+      inFlight.remove(key, ownRequest);
+    }
+  }
+
+  private V await(CompletableFuture<V> sharedRequest) throws E {
+    try {
+      return sharedRequest.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failureFactory.apply("Interrupted while waiting for shared request", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw failureFactory.apply(cause.getMessage(), cause);
+    }
+  }
+
+  private static boolean isInterruption(Throwable failure) {
+    if (Thread.currentThread().isInterrupted()) {
+      return true;
+    }
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof InterruptedIOException || cause instanceof ClosedByInterruptException
+          || cause instanceof InterruptedException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @FunctionalInterface
+  public interface Request<V, E extends Exception> {
+    V execute() throws E;
+  }
+
+  private static class AbandonedRequestException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private AbandonedRequestException() {
+      super(null, null, false, false);
+    }
+  }
+}
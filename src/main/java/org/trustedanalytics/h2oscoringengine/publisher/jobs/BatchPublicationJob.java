@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2015 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.trustedanalytics.h2oscoringengine.publisher.BatchPublicationResult;
+
+/**
+ * Batch of publications running in background. Results of its models are available once the
+ * whole batch is finished.
+ */
+public class BatchPublicationJob {
+
+  private final String id;
+  private final int modelCount;
+  private final long submittedAt;
+  private PublicationJob.Status status = PublicationJob.Status.QUEUED;
+  private long startedAt;
+  private long finishedAt;
+  private List<BatchPublicationResult> results;
+  private String error;
+
+  public BatchPublicationJob(String id, int modelCount, long submittedAt) {
+    this.id = id;
+    this.modelCount = modelCount;
+    this.submittedAt = submittedAt;
+  }
+
+  synchronized void started(long time) {
+    status = PublicationJob.Status.RUNNING;
+    startedAt = time;
+  }
+
+  synchronized void succeeded(List<BatchPublicationResult> batchResults, long time) {
+    status = PublicationJob.Status.SUCCEEDED;
+    results = new ArrayList<>(batchResults);
+    finishedAt = time;
+  }
+
+  synchronized void failed(String errorMessage, long time) {
+    status = PublicationJob.Status.FAILED;
+    error = errorMessage;
+    finishedAt = time;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public int getModelCount() {
+    return modelCount;
+  }
+
+  /**
+   * @return SUCCEEDED once every model of the batch was handled, even if some of them failed;
+   *         FAILED only if the batch couldn't be run at all
+   */
+  public synchronized PublicationJob.Status getStatus() {
+    return status;
+  }
+
+  public long getSubmittedAt() {
+    return submittedAt;
+  }
+
+  /**
+   * @return start time in milliseconds since epoch, 0 if job is still queued
+   */
+  public synchronized long getStartedAt() {
+    return startedAt;
+  }
+
+  /**
+   * @return finish time in milliseconds since epoch, 0 if job isn't finished
+   */
+  public synchronized long getFinishedAt() {
+    return finishedAt;
+  }
+
+  /**
+   * @return result of each model in order of requests, null until job succeeds
+   */
+  public synchronized List<BatchPublicationResult> getResults() {
+    return results == null ? null : new ArrayList<>(results);
+  }
+
+  /**
+   * @return reason of failure, null unless job failed
+   */
+  public synchronized String getError() {
+    return error;
+  }
+
+  synchronized boolean isFinished() {
+    return status == PublicationJob.Status.SUCCEEDED || status == PublicationJob.Status.FAILED;
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.jobs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepListener;
+
+/**
+ * Publication running in background. Tracks steps reported by publisher, so its progress can be
+ * polled by clients.
+ */
+public class PublicationJob implements StepListener {
+
+  public enum Status {
+    QUEUED, RUNNING, SUCCEEDED, FAILED
+  }
+
+  private final String id;
+  private final String modelName;
+  private final long submittedAt;
+  private Status status = Status.QUEUED;
+  private long startedAt;
+  private long finishedAt;
+  private final List<String> currentSteps = new ArrayList<>();
+  private final Map<String, Long> stepDurationsMs = new LinkedHashMap<>();
+  private PublishedEngine result;
+  private String error;
+
+  public PublicationJob(String id, String modelName, long submittedAt) {
+    this.id = id;
+    this.modelName = modelName;
+    this.submittedAt = submittedAt;
+  }
+
+  @Override
+  public synchronized void stepStarted(String stepName) {
+    currentSteps.add(stepName);
+  }
+
+  @Override
+  public synchronized void stepFinished(String stepName, long durationMs) {
+    currentSteps.remove(stepName);
+    stepDurationsMs.put(stepName, durationMs);
+  }
+
+  synchronized void started(long time) {
+    status = Status.RUNNING;
+    startedAt = time;
+  }
+
+  synchronized void succeeded(PublishedEngine publishedEngine, long time) {
+    status = Status.SUCCEEDED;
+    result = publishedEngine;
+    finish(time);
+  }
+
+  synchronized void failed(String errorMessage, long time) {
+    status = Status.FAILED;
+    error = errorMessage;
+    finish(time);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getModelName() {
+    return modelName;
+  }
+
+  public synchronized Status getStatus() {
+    return status;
+  }
+
+  public long getSubmittedAt() {
+    return submittedAt;
+  }
+
+  /**
+   * @return start time in milliseconds since epoch, 0 if job is still queued
+   */
+  public synchronized long getStartedAt() {
+    return startedAt;
+  }
+
+  /**
+   * @return finish time in milliseconds since epoch, 0 if job isn't finished
+   */
+  public synchronized long getFinishedAt() {
+    return finishedAt;
+  }
+
+  /**
+   * @return steps running at the moment; more than one when independent steps overlap
+   */
+  public synchronized List<String> getCurrentSteps() {
+    return new ArrayList<>(currentSteps);
+  }
+
+  public synchronized Map<String, Long> getStepDurationsMs() {
+    return new LinkedHashMap<>(stepDurationsMs);
+  }
+
+  /**
+   * @return published engine, null until job succeeds
+   */
+  public synchronized PublishedEngine getResult() {
+    return result;
+  }
+
+  /**
+   * @return reason of failure, null unless job failed
+   */
+  public synchronized String getError() {
+    return error;
+  }
+
+  synchronized boolean isFinished() {
+    return status == Status.SUCCEEDED || status == Status.FAILED;
+  }
+
+  private void finish(long time) {
+    finishedAt = time;
+    currentSteps.clear();
+  }
+}
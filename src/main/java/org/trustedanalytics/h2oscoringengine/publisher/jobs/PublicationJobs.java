@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.jobs;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trustedanalytics.h2oscoringengine.publisher.BatchPublisher;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.Publisher;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.PublishRequest;
+
+/**
+ * Runs publications and batches of publications in background on a bounded pool and keeps their
+ * state for polling. Only given number of most recent jobs of each kind is kept; older finished
+ * ones are forgotten.
+ */
+public class PublicationJobs {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PublicationJobs.class);
+
+  private final Publisher publisher;
+  private final BatchPublisher batchPublisher;
+  private final ExecutorService jobExecutor;
+  private final int maxRetainedJobs;
+  private final LongSupplier clock;
+
+  private final Map<String, PublicationJob> jobs = new LinkedHashMap<>();
+  private final Map<String, BatchPublicationJob> batchJobs = new LinkedHashMap<>();
+
+  public PublicationJobs(Publisher publisher, BatchPublisher batchPublisher,
+      ExecutorService jobExecutor, int maxRetainedJobs) {
+    this(publisher, batchPublisher, jobExecutor, maxRetainedJobs, System::currentTimeMillis);
+  }
+
+  PublicationJobs(Publisher publisher, BatchPublisher batchPublisher, ExecutorService jobExecutor,
+      int maxRetainedJobs, LongSupplier clock) {
+    this.publisher = publisher;
+    this.batchPublisher = batchPublisher;
+    this.jobExecutor = jobExecutor;
+    this.maxRetainedJobs = maxRetainedJobs;
+    this.clock = clock;
+  }
+
+  /**
+   * @return queued job
+   * @throws RejectedExecutionException if job queue is full
+   */
+  public PublicationJob submit(PublishRequest request) {
+    PublicationJob job = new PublicationJob(UUID.randomUUID().toString(),
+        request.getModelName(), clock.getAsLong());
+    synchronized (this) {
+      jobs.put(job.getId(), job);
+      forgetOldJobs(jobs, PublicationJob::isFinished);
+    }
+
+    try {
+      jobExecutor.execute(() -> run(job, request));
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        jobs.remove(job.getId());
+      }
+      throw e;
+    }
+    LOGGER.info("Publication of " + request.getModelName() + " queued as job " + job.getId());
+    return job;
+  }
+
+  /**
+   * Batch occupies a single job thread; its models are published on the pool of batch publisher.
+   *
+   * @return queued job
+   * @throws RejectedExecutionException if job queue is full
+   */
+  public BatchPublicationJob submitBatch(List<PublishRequest> requests) {
+    BatchPublicationJob job = new BatchPublicationJob(UUID.randomUUID().toString(),
+        requests.size(), clock.getAsLong());
+    synchronized (this) {
+      batchJobs.put(job.getId(), job);
+      forgetOldJobs(batchJobs, BatchPublicationJob::isFinished);
+    }
+
+    try {
+      jobExecutor.execute(() -> runBatch(job, requests));
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        batchJobs.remove(job.getId());
+      }
+      throw e;
+    }
+    LOGGER.info("Publication of batch of " + requests.size() + " models queued as job "
+        + job.getId());
+    return job;
+  }
+
+  public synchronized Optional<PublicationJob> get(String jobId) {
+    return Optional.ofNullable(jobs.get(jobId));
+  }
+
+  public synchronized Optional<BatchPublicationJob> getBatch(String jobId) {
+    return Optional.ofNullable(batchJobs.get(jobId));
+  }
+
+  private void run(PublicationJob job, PublishRequest request) {
+    job.started(clock.getAsLong());
+    try {
+      job.succeeded(publisher.publish(request, job), clock.getAsLong());
+      LOGGER.info("Publication job " + job.getId() + " succeeded");
+    } catch (EnginePublicationException | EngineBuildingException | RuntimeException e) {
+      LOGGER.error("Publication job " + job.getId() + " failed: ", e);
+      job.failed(e.getMessage(), clock.getAsLong());
+    }
+  }
+
+  private void runBatch(BatchPublicationJob job, List<PublishRequest> requests) {
+    job.started(clock.getAsLong());
+    try {
+      job.succeeded(batchPublisher.publishAll(requests), clock.getAsLong());
+      LOGGER.info("Batch publication job " + job.getId() + " finished");
+    } catch (RuntimeException e) {
+      LOGGER.error("Batch publication job " + job.getId() + " failed: ", e);
+      job.failed(e.getMessage(), clock.getAsLong());
+    }
+  }
+
+  private <T> void forgetOldJobs(Map<String, T> retainedJobs, Predicate<T> isFinished) {
+    Iterator<T> oldestFirst = retainedJobs.values().iterator();
+    while (retainedJobs.size() > maxRetainedJobs && oldestFirst.hasNext()) {
+      if (isFinished.test(oldestFirst.next())) {
+        oldestFirst.remove();
+      }
+    }
+  }
+}
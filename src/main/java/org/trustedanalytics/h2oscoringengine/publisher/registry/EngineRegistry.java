@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.registry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Record of engines published to CloudFoundry. Persistent registry is kept in a JSON file, read
+ * once at startup and rewritten atomically on every change, so listings and lookups never leave
+ * memory. Registry created without a directory is kept in memory only.
+ */
+public class EngineRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EngineRegistry.class);
+
+  static final String REGISTRY_FILE_NAME = "engines.json";
+  private static final String TMP_FILE_EXTENSION = ".tmp";
+
+  private final Optional<Path> registryFile;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Map<String, PublishedEngine> engines = new TreeMap<>();
+
+  public EngineRegistry(Path registryDirectory) throws IOException {
+    this.registryFile =
+        Optional.of(Files.createDirectories(registryDirectory).resolve(REGISTRY_FILE_NAME));
+    load(registryFile.get());
+  }
+
+  /**
+   * Creates registry kept in memory only, lost on restart.
+   */
+  public EngineRegistry() {
+    this.registryFile = Optional.empty();
+    LOGGER.warn("Engine registry directory not configured. Registry won't survive restart.");
+  }
+
+  public synchronized List<PublishedEngine> list() {
+    return new ArrayList<>(engines.values());
+  }
+
+  public synchronized Optional<PublishedEngine> get(String modelName) {
+    return Optional.ofNullable(engines.get(modelName));
+  }
+
+  /**
+   * Records engine publication, keeping time of the first publication of the model.
+   *
+   * @param engine published engine
+   * @throws IOException if registry cannot be saved
+   */
+  public synchronized void register(PublishedEngine engine) throws IOException {
+    PublishedEngine previous = engines.get(engine.getModelName());
+    if (previous != null) {
+      engine.setFirstPublishedAt(previous.getFirstPublishedAt());
+    }
+    engines.put(engine.getModelName(), engine);
+    save();
+    LOGGER.info("Registered published engine " + engine);
+  }
+
+  /**
+   * Forgets engine of given model, e.g. when its app was deleted outside the publisher.
+   *
+   * @param modelName model to forget
+   * @return removed engine or empty if the model wasn't registered
+   * @throws IOException if registry cannot be saved
+   */
+  public synchronized Optional<PublishedEngine> remove(String modelName) throws IOException {
+    Optional<PublishedEngine> removed = Optional.ofNullable(engines.remove(modelName));
+    if (removed.isPresent()) {
+      save();
+      LOGGER.info("Removed published engine " + removed.get());
+    }
+    return removed;
+  }
+
+  private void load(Path registryFile) throws IOException {
+    if (!Files.exists(registryFile)) {
+      return;
+    }
+    List<PublishedEngine> savedEngines =
+        mapper.readValue(registryFile.toFile(), new TypeReference<List<PublishedEngine>>() {});
+    savedEngines.forEach(engine -> engines.put(engine.getModelName(), engine));
+    LOGGER.info("Engine registry " + registryFile + " loaded with " + engines.size() + " engines");
+  }
+
+  private void save() throws IOException {
+    if (registryFile.isPresent()) {
+      save(registryFile.get());
+    }
+  }
+
+  private void save(Path registryFile) throws IOException {
+    Path tmpFile = Files.createTempFile(registryFile.getParent(), REGISTRY_FILE_NAME,
+        TMP_FILE_EXTENSION);
+    try {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(tmpFile.toFile(), engines.values());
+      Files.move(tmpFile, registryFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+}
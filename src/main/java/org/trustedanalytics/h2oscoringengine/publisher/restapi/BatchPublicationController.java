@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.BatchPublicationJob;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJobs;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@RestController
+public class BatchPublicationController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchPublicationController.class);
+
+  static final String BATCH_JOBS_PATH = PublicationJobController.JOBS_PATH + "batch/";
+
+  private final PublicationJobs publicationJobs;
+
+  @Autowired
+  public BatchPublicationController(PublicationJobs publicationJobs) {
+    this.publicationJobs = publicationJobs;
+  }
+
+  @ApiOperation(
+          value = "Starts publication of many models as service offerings in Marketplace in "
+              + "background; models are published in parallel",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 202, message = "Accepted", response = BatchPublicationJob.class),
+          @ApiResponse(code = 503, message = "Too many publications in progress")
+  })
+  @RequestMapping(method = RequestMethod.POST, consumes = "application/json",
+      value = "/rest/h2o/engines/batch", produces = "application/json")
+  public ResponseEntity<BatchPublicationJob> publishAll(
+      @RequestBody List<PublishRequest> requests) {
+    LOGGER.info("Got batch publish request for " + requests.size() + " models");
+    BatchPublicationJob job = publicationJobs.submitBatch(requests);
+    return ResponseEntity.accepted().location(URI.create(BATCH_JOBS_PATH + job.getId()))
+        .body(job);
+  }
+
+  @ApiOperation(
+          value = "Returns state of batch publication job and, once it's finished, result of "
+              + "each model",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK"),
+          @ApiResponse(code = 404, message = "No such job")
+  })
+  @RequestMapping(method = RequestMethod.GET, value = BATCH_JOBS_PATH + "{jobId}",
+      produces = "application/json")
+  public ResponseEntity<BatchPublicationJob> getBatchJob(@PathVariable String jobId) {
+    return publicationJobs.getBatch(jobId).map(ResponseEntity::ok)
+        .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+  @ResponseBody
+  public String handleRejectedExecutionException(RejectedExecutionException e) {
+    LOGGER.warn("Publication job queue is full - returning HTTP 503 response");
+    return "Too many publications in progress, try again later";
+  }
+}
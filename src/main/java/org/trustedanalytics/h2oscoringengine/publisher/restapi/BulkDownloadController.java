@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.trustedanalytics.h2oscoringengine.publisher.BulkEngineBuilder;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.DownloadRequestValidationRule;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.DownloadRequestValidationRules;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.ValidationException;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@RestController
+public class BulkDownloadController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkDownloadController.class);
+
+  static final String ZIP_CONTENT_TYPE = "application/zip";
+  static final String ZIP_FILE_NAME = "h2o-scoring-engines.zip";
+
+  private final BulkEngineBuilder bulkEngineBuilder;
+  private final List<DownloadRequestValidationRule> validationRules;
+
+  @Autowired
+  public BulkDownloadController(BulkEngineBuilder bulkEngineBuilder,
+      DownloadRequestValidationRules downloadRequestValidationRules) {
+    this.bulkEngineBuilder = bulkEngineBuilder;
+    this.validationRules = downloadRequestValidationRules.get();
+  }
+
+  @ApiOperation(
+          value = "Exposes scoring engines of all models on H2O server for download as ZIP file",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK"),
+          @ApiResponse(code = 400, message = "Request was malformed"),
+          @ApiResponse(code = 500, message = "Internal server error, e.g. error listing models")
+  })
+  @RequestMapping(method = RequestMethod.POST, consumes = "application/x-www-form-urlencoded",
+      value = "/rest/h2o/engines/downloads", produces = ZIP_CONTENT_TYPE)
+  public void downloadAllEngines(@RequestBody MultiValueMap<String, String> request,
+      HttpServletResponse response)
+      throws EngineBuildingException, ValidationException, IOException {
+
+    LOGGER.info("Got bulk download request for " + request.getFirst("host"));
+    validationRules.forEach(rule -> rule.validate(request));
+
+    BasicAuthServerCredentials h2oServerCredentials = new BasicAuthServerCredentials(
+        request.get("host").get(0), request.get("username").get(0), request.get("password").get(0));
+
+    // models are listed before archive headers are set, so that listing failure gets a plain
+    // error response
+    List<String> modelNames = bulkEngineBuilder.listModels(h2oServerCredentials);
+    response.setContentType(ZIP_CONTENT_TYPE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        "attachment; filename=\"" + ZIP_FILE_NAME + "\"");
+    bulkEngineBuilder.buildAllAsZip(h2oServerCredentials, modelNames, response.getOutputStream());
+  }
+
+  @ExceptionHandler(ValidationException.class)
+  @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+  @ResponseBody
+  public String handleValidationException(ValidationException e) {
+    LOGGER.error("Invalid request - returning HTTP 400 response. Reason: ", e);
+    return e.getMessage();
+  }
+
+  @ExceptionHandler(EngineBuildingException.class)
+  @ResponseStatus(value = HttpStatus.INTERNAL_SERVER_ERROR)
+  @ResponseBody
+  public String handleEngineBuildingException(EngineBuildingException e) {
+    LOGGER.error("Problem while building scoring engines: ", e);
+    return e.getMessage();
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CacheStatistics;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.EngineJarCache;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@RestController
+public class CacheStatisticsController {
+
+  static final String ENGINE_CACHE_NAME = "engines";
+  static final String GENMODEL_CACHE_NAME = "genmodel";
+  static final String CF_METADATA_CACHE_NAME = "cf-metadata";
+
+  private final EngineJarCache engineJarCache;
+  private final GenmodelLibCache genmodelLibCache;
+  private final CfMetadataCache cfMetadataCache;
+
+  @Autowired
+  public CacheStatisticsController(EngineJarCache engineJarCache,
+      GenmodelLibCache genmodelLibCache, CfMetadataCache cfMetadataCache) {
+    this.engineJarCache = engineJarCache;
+    this.genmodelLibCache = genmodelLibCache;
+    this.cfMetadataCache = cfMetadataCache;
+  }
+
+  @ApiOperation(
+          value = "Returns hit, miss and eviction counters of publisher caches",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK")
+  })
+  @RequestMapping(method = RequestMethod.GET, value = "/rest/h2o/caches",
+      produces = "application/json")
+  public Map<String, CacheStatistics> getStatistics() {
+    Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+    statistics.put(ENGINE_CACHE_NAME, engineJarCache.getStatistics());
+    statistics.put(GENMODEL_CACHE_NAME, genmodelLibCache.getStatistics());
+    statistics.put(CF_METADATA_CACHE_NAME, cfMetadataCache.getStatistics());
+    return statistics;
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.EngineRegistry;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@RestController
+public class EngineRegistryController {
+
+  private final EngineRegistry engineRegistry;
+
+  @Autowired
+  public EngineRegistryController(EngineRegistry engineRegistry) {
+    this.engineRegistry = engineRegistry;
+  }
+
+  @ApiOperation(
+          value = "Lists scoring engines published to Marketplace",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK")
+  })
+  @RequestMapping(method = RequestMethod.GET, value = "/rest/h2o/engines",
+      produces = "application/json")
+  public List<PublishedEngine> listEngines() {
+    return engineRegistry.list();
+  }
+
+  @ApiOperation(
+          value = "Returns scoring engine published to Marketplace for given model",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK"),
+          @ApiResponse(code = 404, message = "No engine published for the model")
+  })
+  @RequestMapping(method = RequestMethod.GET, value = "/rest/h2o/engines/{modelName}",
+      produces = "application/json")
+  public ResponseEntity<PublishedEngine> getEngine(@PathVariable String modelName) {
+    return engineRegistry.get(modelName).map(ResponseEntity::ok)
+        .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  @ApiOperation(
+          value = "Removes scoring engine of given model from registry, leaving its app untouched",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 204, message = "Engine removed"),
+          @ApiResponse(code = 404, message = "No engine published for the model"),
+          @ApiResponse(code = 500, message = "Internal server error, e.g. registry not saved")
+  })
+  @RequestMapping(method = RequestMethod.DELETE, value = "/rest/h2o/engines/{modelName}")
+  public ResponseEntity<Void> removeEngine(@PathVariable String modelName) throws IOException {
+    HttpStatus status = engineRegistry.remove(modelName).isPresent()
+        ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND;
+    return new ResponseEntity<>(status);
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.validation.Valid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJob;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJobs;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@RestController
+public class PublicationJobController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PublicationJobController.class);
+
+  static final String JOBS_PATH = "/rest/h2o/jobs/";
+
+  private final PublicationJobs publicationJobs;
+
+  @Autowired
+  public PublicationJobController(PublicationJobs publicationJobs) {
+    this.publicationJobs = publicationJobs;
+  }
+
+  @ApiOperation(
+          value = "Starts publication of model as a service offering in Marketplace in background",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 202, message = "Accepted", response = PublicationJob.class),
+          @ApiResponse(code = 503, message = "Too many publications in progress")
+  })
+  @RequestMapping(method = RequestMethod.POST, consumes = "application/json",
+      value = "/rest/h2o/engines", params = "async=true", produces = "application/json")
+  public ResponseEntity<PublicationJob> publishAsync(
+      @Valid @RequestBody PublishRequest publishRequest) {
+    LOGGER.info("Got asynchronous publish request: " + publishRequest);
+    PublicationJob job = publicationJobs.submit(publishRequest);
+    return ResponseEntity.accepted().location(URI.create(JOBS_PATH + job.getId())).body(job);
+  }
+
+  @ApiOperation(
+          value = "Returns state of publication job: current steps, timings and result or error",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK"),
+          @ApiResponse(code = 404, message = "No such job")
+  })
+  @RequestMapping(method = RequestMethod.GET, value = JOBS_PATH + "{jobId}",
+      produces = "application/json")
+  public ResponseEntity<PublicationJob> getJob(@PathVariable String jobId) {
+    return publicationJobs.get(jobId).map(ResponseEntity::ok)
+        .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+  @ResponseBody
+  public String handleRejectedExecutionException(RejectedExecutionException e) {
+    LOGGER.warn("Publication job queue is full - returning HTTP 503 response");
+    return "Too many publications in progress, try again later";
+  }
+}
@@ -73,6 +73,22 @@ public class PublisherController {
     publisher.publish(publishRequest);
   }
 
+  @ApiOperation(
+          value = "Replaces published scoring engine with one built from current version of the model",
+          notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
+  )
+  @ApiResponses(value = {
+          @ApiResponse(code = 200, message = "OK"),
+          @ApiResponse(code = 500, message = "Internal server error, e.g. error building or publishing model")
+  })
+  @RequestMapping(method = RequestMethod.PUT, consumes = "application/json",
+      value = "/rest/h2o/engines")
+  public void update(@Valid @RequestBody PublishRequest publishRequest)
+      throws EnginePublicationException, EngineBuildingException {
+    LOGGER.info("Got update request: " + publishRequest);
+    publisher.update(publishRequest);
+  }
+
   @ApiOperation(
           value = "Exposes H2O scoring engine model for download as JAR file",
           notes = "Privilege level: Any consumer of this endpoint must have a valid access token"
@@ -95,8 +111,8 @@ public class PublisherController {
     BasicAuthServerCredentials h2oServerCredentials = new BasicAuthServerCredentials(
         request.get("host").get(0), request.get("username").get(0), request.get("password").get(0));
 
-    return new FileSystemResource(
-        publisher.getScoringEngineJar(h2oServerCredentials, modelName).toFile());
+    return new ScoringEngineJarResource(
+        publisher.getScoringEngineJar(h2oServerCredentials, modelName));
   }
 
   /**
@@ -137,9 +153,8 @@ public class PublisherController {
   public FileSystemResource downloadEngine(@Valid @RequestBody DownloadRequest downloadRequest)
       throws EngineBuildingException {
     LOGGER.info("Got download request: " + downloadRequest);
-    return new FileSystemResource(publisher
-        .getScoringEngineJar(downloadRequest.getH2oCredentials(), downloadRequest.getModelName())
-        .toFile());
+    return new ScoringEngineJarResource(publisher
+        .getScoringEngineJar(downloadRequest.getH2oCredentials(), downloadRequest.getModelName()));
   }
 
   @ExceptionHandler(ValidationException.class)
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2015 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.FileSystemResource;
+import org.trustedanalytics.h2oscoringengine.publisher.ScoringEngineJar;
+
+/**
+ * Scoring engine sent in response body. Engine is closed once the response is written, i.e. when
+ * stream of the file is closed; engine that's never streamed is left to expire.
+ */
+class ScoringEngineJarResource extends FileSystemResource {
+
+  private final ScoringEngineJar scoringEngineJar;
+
+  ScoringEngineJarResource(ScoringEngineJar scoringEngineJar) {
+    super(scoringEngineJar.getPath().toFile());
+    this.scoringEngineJar = scoringEngineJar;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    try {
+      return new FilterInputStream(super.getInputStream()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            scoringEngineJar.close();
+          }
+        }
+      };
+    } catch (IOException e) {
+      scoringEngineJar.close();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.JOB_ERROR_JSON_PATH;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.JOB_STATUS_JSON_PATH;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
+import org.trustedanalytics.h2oscoringengine.publisher.http.JsonDataFetcher;
+
+/**
+ * CloudFoundry job processing asynchronously uploaded application bits.
+ */
+public class AppBitsUploadJob {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AppBitsUploadJob.class);
+
+  static final String JOB_FINISHED_STATUS = "finished";
+  static final String JOB_FAILED_STATUS = "failed";
+
+  private static final long INITIAL_POLL_INTERVAL_MS = 500;
+  private static final long MAX_POLL_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+  private static final long TIMEOUT_MS = TimeUnit.MINUTES.toMillis(15);
+
+  private final String cfApiUrl;
+  private final RestTemplate cfRestTemplate;
+  private final String jobPath;
+  private final long initialPollIntervalMs;
+  private final long maxPollIntervalMs;
+  private final long timeoutMs;
+
+  private String status;
+
+  /**
+   * @param jobPath job URL path returned by CloudFoundry; empty when bits were processed
+   *        synchronously
+   * @param status job status returned together with its URL
+   */
+  public AppBitsUploadJob(String cfApiUrl, RestTemplate cfRestTemplate, String jobPath,
+      String status) {
+    this(cfApiUrl, cfRestTemplate, jobPath, status, INITIAL_POLL_INTERVAL_MS,
+        MAX_POLL_INTERVAL_MS, TIMEOUT_MS);
+  }
+
+  AppBitsUploadJob(String cfApiUrl, RestTemplate cfRestTemplate, String jobPath, String status,
+      long initialPollIntervalMs, long maxPollIntervalMs, long timeoutMs) {
+    this.cfApiUrl = cfApiUrl;
+    this.cfRestTemplate = cfRestTemplate;
+    this.jobPath = jobPath;
+    this.status = jobPath.isEmpty() ? JOB_FINISHED_STATUS : status;
+    this.initialPollIntervalMs = initialPollIntervalMs;
+    this.maxPollIntervalMs = maxPollIntervalMs;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Waits until CloudFoundry finishes processing bits, polling job status with interval doubled
+   * after each check.
+   *
+   * @throws EnginePublicationException if job failed or didn't finish on time
+   */
+  public synchronized void await() throws EnginePublicationException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    long pollInterval = initialPollIntervalMs;
+    String lastResponse = "{}";
+
+    while (!JOB_FINISHED_STATUS.equals(status)) {
+      if (JOB_FAILED_STATUS.equals(status)) {
+        throw new EnginePublicationException(
+            "Processing of application bits failed: " + errorDescription(lastResponse));
+      }
+      if (System.currentTimeMillis() + pollInterval > deadline) {
+        throw new EnginePublicationException("Processing of application bits not finished in "
+            + TimeUnit.MILLISECONDS.toSeconds(timeoutMs) + " seconds");
+      }
+
+      sleep(pollInterval);
+      pollInterval = Math.min(pollInterval * 2, maxPollIntervalMs);
+      lastResponse = cfRestTemplate.exchange(cfApiUrl + jobPath, HttpMethod.GET,
+          HttpCommunication.simpleJsonRequest(), String.class).getBody();
+      status = readStatus(lastResponse);
+      LOGGER.debug("Job " + jobPath + " status: " + status);
+    }
+  }
+
+  private void sleep(long millis) throws EnginePublicationException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EnginePublicationException("Waiting for job " + jobPath + " interrupted", e);
+    }
+  }
+
+  private String readStatus(String jobResponse) throws EnginePublicationException {
+    try {
+      return JsonDataFetcher.getStringValue(jobResponse, JOB_STATUS_JSON_PATH);
+    } catch (IOException e) {
+      throw new EnginePublicationException("Unable to read status of job " + jobPath, e);
+    }
+  }
+
+  private String errorDescription(String jobResponse) {
+    try {
+      return JsonDataFetcher.getStringValue(jobResponse, JOB_ERROR_JSON_PATH);
+    } catch (IOException e) {
+      return jobResponse;
+    }
+  }
+}
@@ -14,71 +14,228 @@
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BITS_ENDPOINT_TEMPLATE;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.RESOURCE_MATCH_ENDPOINT;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.JOB_STATUS_JSON_PATH;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.JOB_URL_JSON_PATH;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.FormHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.ResourceHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.AppBitsArchive;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.AppBitsEntry;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
+import org.trustedanalytics.h2oscoringengine.publisher.http.JsonDataFetcher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 
 public class AppBitsUploadingStep {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AppBitsUploadingStep.class);
+  private static final String NO_CACHED_RESOURCES = "[]";
+  private static final String PARTIAL_APP_BITS_PREFIX = "partial-";
+  private static final String PARTIAL_APP_BITS_SUFFIX = ".jar";
+  private static final String ASYNC_UPLOAD_QUERY = "?async=true";
+  private static final String NO_JOB = "{}";
 
   private final String cfApiUrl;
   private final RestTemplate cfRestTemplate;
   private final String appGuid;
+  private final Optional<EngineBaseJar> engineBaseJar;
 
   public AppBitsUploadingStep(String cfApiUrl, RestTemplate cfRestTemplate, String appGuid) {
     this.cfApiUrl = cfApiUrl;
     this.cfRestTemplate = cfRestTemplate;
     this.appGuid = appGuid;
+    this.engineBaseJar = Optional.empty();
+  }
+
+  /**
+   * Creates step for bits built on top of given engine base JAR, whose files are already hashed,
+   * so only model specific files are hashed before resource matching.
+   */
+  public AppBitsUploadingStep(String cfApiUrl, RestTemplate cfRestTemplate, String appGuid,
+      EngineBaseJar engineBaseJar) {
+    this.cfApiUrl = cfApiUrl;
+    this.cfRestTemplate = cfRestTemplate;
+    this.appGuid = appGuid;
+    this.engineBaseJar = Optional.of(engineBaseJar);
   }
 
 
   public RegisteringInApplicationBrokerStep uploadBits(Path appBits)
       throws EnginePublicationException {
+    return new RegisteringInApplicationBrokerStep(appGuid, cfApiUrl, cfRestTemplate,
+        uploadBitsAsync(appBits));
+  }
+
+  /**
+   * Replaces bits of already published app. Service registration and plan visibility are left
+   * untouched, app only needs to be restaged.
+   */
+  public AppRestagingStep replaceBits(Path appBits) throws EnginePublicationException {
+    return new AppRestagingStep(cfApiUrl, cfRestTemplate, appGuid, uploadBitsAsync(appBits));
+  }
+
+  private AppBitsUploadJob uploadBitsAsync(Path appBits) throws EnginePublicationException {
+    if (!Files.isReadable(appBits)) {
+      throw new EnginePublicationException(
+          "Unable to read application bits from " + appBits.toString());
+    }
     prepareRestTemplateForMultipartRequest();
-    LOGGER.info("Uploading bits for app " + appGuid + " from " + appBits);
 
+    AppBitsArchive appBitsArchive = engineBaseJar
+        .map(baseJar -> new AppBitsArchive(appBits, baseJar))
+        .orElseGet(() -> new AppBitsArchive(appBits));
+    List<AppBitsEntry> cachedEntries = findEntriesCachedByCloudFoundry(appBitsArchive);
+    if (cachedEntries.isEmpty()) {
+      return upload(appBits, NO_CACHED_RESOURCES);
+    }
+    return uploadNotCachedEntries(appBitsArchive, appBits, cachedEntries);
+  }
+
+  private AppBitsUploadJob uploadNotCachedEntries(AppBitsArchive appBitsArchive, Path appBits,
+      List<AppBitsEntry> cachedEntries) throws EnginePublicationException {
+    Set<String> cachedFileNames =
+        cachedEntries.stream().map(AppBitsEntry::getFn).collect(Collectors.toSet());
+    Path partialAppBits = null;
     try {
+      partialAppBits = Files.createTempFile(appBits.toAbsolutePath().getParent(),
+          PARTIAL_APP_BITS_PREFIX, PARTIAL_APP_BITS_SUFFIX);
+      appBitsArchive.copyWithout(cachedFileNames, partialAppBits);
+      LOGGER.info(cachedEntries.size() + " files of app " + appGuid
+          + " already cached by CloudFoundry. Not uploading them.");
+      return upload(partialAppBits, resourcesJson(cachedEntries, true));
+    } catch (IOException e) {
+      throw new EnginePublicationException(
+          "Unable to prepare application bits from " + appBits.toString(), e);
+    } finally {
+      deletePartialAppBits(partialAppBits);
+    }
+  }
 
-      HttpEntity<MultiValueMap<String, Object>> request = prepareMutlipartRequest(appBits);
+  private void deletePartialAppBits(Path partialAppBits) {
+    if (partialAppBits == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(partialAppBits);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to delete " + partialAppBits + ": ", e);
+    }
+  }
 
-      String cfUploadAppUrl = cfApiUrl + APP_BITS_ENDPOINT_TEMPLATE;
-      cfRestTemplate.exchange(cfUploadAppUrl, HttpMethod.PUT, request, String.class, appGuid);
+  /**
+   * Uploads bits asynchronously: CloudFoundry responds as soon as it receives them and processes
+   * them in a job, so neither the connection nor the router waits for the processing.
+   */
+  private AppBitsUploadJob upload(Path appBits, String cachedResources)
+      throws EnginePublicationException {
+    LOGGER.info("Uploading bits for app " + appGuid + " from " + appBits);
+
+    HttpEntity<MultiValueMap<String, Object>> request =
+        prepareMutlipartRequest(appBits, cachedResources);
 
-      return new RegisteringInApplicationBrokerStep(appGuid, cfApiUrl, cfRestTemplate);
+    String cfUploadAppUrl = cfApiUrl + APP_BITS_ENDPOINT_TEMPLATE + ASYNC_UPLOAD_QUERY;
+    ResponseEntity<String> response =
+        cfRestTemplate.exchange(cfUploadAppUrl, HttpMethod.PUT, request, String.class, appGuid);
+
+    try {
+      String job = Optional.ofNullable(response.getBody()).filter(body -> !body.isEmpty())
+          .orElse(NO_JOB);
+      return new AppBitsUploadJob(cfApiUrl, cfRestTemplate,
+          JsonDataFetcher.getStringValue(job, JOB_URL_JSON_PATH),
+          JsonDataFetcher.getStringValue(job, JOB_STATUS_JSON_PATH));
     } catch (IOException e) {
-      throw new EnginePublicationException(
-          "Unable to read application bits from " + appBits.toString(), e);
+      throw new EnginePublicationException("Unable to read app bits upload job: ", e);
+    }
+  }
+
+  /**
+   * Asks CloudFoundry which of app files it already has in its resource cache. Matching is only an
+   * optimization, so when it fails all files are uploaded.
+   *
+   * @return entries CloudFoundry doesn't need to receive
+   */
+  private List<AppBitsEntry> findEntriesCachedByCloudFoundry(AppBitsArchive appBitsArchive) {
+    try {
+      List<AppBitsEntry> entries = appBitsArchive.getEntries();
+      ResponseEntity<String> response = cfRestTemplate.exchange(
+          cfApiUrl + RESOURCE_MATCH_ENDPOINT, HttpMethod.PUT,
+          HttpCommunication.jsonRequest(resourcesJson(entries, false)), String.class);
+
+      Set<String> cachedResources = new HashSet<>();
+      String matchedResources = Optional.ofNullable(response.getBody()).orElse(NO_CACHED_RESOURCES);
+      for (JsonNode resource : new ObjectMapper().readTree(matchedResources)) {
+        cachedResources.add(resourceKey(resource.path("sha1").asText(),
+            resource.path("size").asLong()));
+      }
+      return entries.stream()
+          .filter(entry -> cachedResources.contains(resourceKey(entry.getSha1(), entry.getSize())))
+          .collect(Collectors.toList());
+    } catch (IOException | RestClientException e) {
+      LOGGER.warn("Unable to match app bits with CloudFoundry resource cache, uploading all: ", e);
+      return Collections.emptyList();
     }
   }
 
+  private String resourcesJson(List<AppBitsEntry> entries, boolean withFileNames) {
+    ArrayNode resources = new ObjectMapper().createArrayNode();
+    for (AppBitsEntry entry : entries) {
+      ObjectNode resource = resources.addObject();
+      if (withFileNames) {
+        resource.put("fn", entry.getFn());
+      }
+      resource.put("sha1", entry.getSha1());
+      resource.put("size", entry.getSize());
+    }
+    return resources.toString();
+  }
+
+  private String resourceKey(String sha1, long size) {
+    return sha1 + ":" + size;
+  }
+
+  /**
+   * Makes sure converters needed for multipart request are registered. Rest template is shared
+   * between uploads, so converters are added only when missing.
+   */
   private void prepareRestTemplateForMultipartRequest() {
-    List<HttpMessageConverter<?>> converters =
-        new ArrayList<>(Arrays.asList(new MappingJackson2HttpMessageConverter(),
-            new ResourceHttpMessageConverter(), new FormHttpMessageConverter()));
-    cfRestTemplate.getMessageConverters().addAll(converters);
+    List<HttpMessageConverter<?>> converters = cfRestTemplate.getMessageConverters();
+    Arrays.asList(new MappingJackson2HttpMessageConverter(), new ResourceHttpMessageConverter(),
+        new FormHttpMessageConverter()).stream()
+        .filter(required -> converters.stream()
+            .noneMatch(registered -> required.getClass().isInstance(registered)))
+        .forEach(converters::add);
   }
 
   /**
@@ -87,13 +244,13 @@ public class AppBitsUploadingStep {
    * </a>
    * 
    * @param dataPath
+   * @param cachedResources JSON array of files CloudFoundry already has in cache
    * @return prepared request
-   * @throws IOException
    */
-  private HttpEntity<MultiValueMap<String, Object>> prepareMutlipartRequest(Path dataPath)
-      throws IOException {
-    HttpEntity<String> resourcesPart = prepareResourcesRequestPart();
-    HttpEntity<ByteArrayResource> dataPart = prepareDataRequestPart(dataPath);
+  private HttpEntity<MultiValueMap<String, Object>> prepareMutlipartRequest(Path dataPath,
+      String cachedResources) {
+    HttpEntity<String> resourcesPart = new HttpEntity<>(cachedResources);
+    HttpEntity<FileSystemResource> dataPart = prepareDataRequestPart(dataPath);
 
     MultiValueMap<String, Object> multiPartRequest = new LinkedMultiValueMap<>();
     multiPartRequest.add("resources", resourcesPart);
@@ -107,30 +264,14 @@ public class AppBitsUploadingStep {
   }
 
   /**
-   * CloudFoundry API requires an array of files it already has in cache.
-   * We're sending an empty array here. 
-   * 
-   * @return
+   * Application bits are sent as file resource, so they're streamed from disk while request body
+   * is written instead of being loaded into memory.
    */
-  private HttpEntity<String> prepareResourcesRequestPart() {
-    String resourcesJson = "[]";
-    return new HttpEntity<>(resourcesJson);
-  }
-
-  private HttpEntity<ByteArrayResource> prepareDataRequestPart(Path dataPath) throws IOException {
+  private HttpEntity<FileSystemResource> prepareDataRequestPart(Path dataPath) {
 
-    ByteArrayResource data = prepareData(dataPath);
+    FileSystemResource data = new FileSystemResource(dataPath.toFile());
     HttpHeaders headers = HttpCommunication.zipHeaders();
 
     return new HttpEntity<>(data, headers);
   }
-
-  private ByteArrayResource prepareData(Path dataPath) throws IOException {
-    return new ByteArrayResource(Files.readAllBytes(dataPath)) {
-      @Override
-      public String getFilename() {
-        return dataPath.getFileName().toString();
-      }
-    };
-  }
 }
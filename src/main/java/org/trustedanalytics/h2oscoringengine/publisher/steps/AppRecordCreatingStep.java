@@ -25,6 +25,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 import org.trustedanalytics.h2oscoringengine.publisher.http.JsonDataFetcher;
 
@@ -38,11 +39,14 @@ public class AppRecordCreatingStep {
   private final RestTemplate cfRestTemplate;
   private final String cfApiUrl;
   private final String cfAppsUrl;
+  private final CfMetadataCache cfMetadataCache;
 
-  public AppRecordCreatingStep(String cfApiUrl, RestTemplate cfRestTemplate) {
+  public AppRecordCreatingStep(String cfApiUrl, RestTemplate cfRestTemplate,
+      CfMetadataCache cfMetadataCache) {
     this.cfRestTemplate = cfRestTemplate;
     this.cfApiUrl = cfApiUrl;
     this.cfAppsUrl = cfApiUrl + APPS_ENDPOINT;
+    this.cfMetadataCache = cfMetadataCache;
   }
 
   public AppRouteCreatingStep createAppRecord(String spaceGuid, String appName)
@@ -56,7 +60,7 @@ public class AppRecordCreatingStep {
 
     try {
       String appGuid = JsonDataFetcher.getStringValue(response.getBody(), APP_GUID_JSON_PATH);
-      return new AppRouteCreatingStep(cfRestTemplate, cfApiUrl, appGuid);
+      return new AppRouteCreatingStep(cfRestTemplate, cfApiUrl, appGuid, cfMetadataCache);
     } catch (IOException e) {
       throw new EnginePublicationException("Unable to create CloudFoundry app record:", e);
     }
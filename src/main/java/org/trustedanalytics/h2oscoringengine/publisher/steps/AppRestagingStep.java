@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_ENDPOINT_TEMPLATE;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_RESTAGE_ENDPOINT_TEMPLATE;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.APP_STATE_JSON_PATH;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
+import org.trustedanalytics.h2oscoringengine.publisher.http.JsonDataFetcher;
+
+public class AppRestagingStep {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AppRestagingStep.class);
+
+  static final String APP_STARTED_STATE = "STARTED";
+
+  private final String cfApiUrl;
+  private final RestTemplate cfRestTemplate;
+  private final String appGuid;
+  private final AppBitsUploadJob appBitsUploadJob;
+
+  public AppRestagingStep(String cfApiUrl, RestTemplate cfRestTemplate, String appGuid,
+      AppBitsUploadJob appBitsUploadJob) {
+    this.cfApiUrl = cfApiUrl;
+    this.cfRestTemplate = cfRestTemplate;
+    this.appGuid = appGuid;
+    this.appBitsUploadJob = appBitsUploadJob;
+  }
+
+  /**
+   * Waits until new bits are processed and restages the app if it's running. Stopped app picks up
+   * new bits when it's started.
+   */
+  public void restage() throws EnginePublicationException {
+    appBitsUploadJob.await();
+
+    try {
+      ResponseEntity<String> response = cfRestTemplate.exchange(cfApiUrl + APP_ENDPOINT_TEMPLATE,
+          HttpMethod.GET, HttpCommunication.simpleJsonRequest(), String.class, appGuid);
+      String state = JsonDataFetcher.getStringValue(response.getBody(), APP_STATE_JSON_PATH);
+      if (!APP_STARTED_STATE.equals(state)) {
+        LOGGER.info("App " + appGuid + " is " + state + ". Not restaging.");
+        return;
+      }
+    } catch (IOException e) {
+      throw new EnginePublicationException("Unable to read state of app " + appGuid, e);
+    }
+
+    LOGGER.info("Restaging app " + appGuid);
+    cfRestTemplate.exchange(cfApiUrl + APP_RESTAGE_ENDPOINT_TEMPLATE, HttpMethod.POST,
+        HttpCommunication.simpleJsonRequest(), String.class, appGuid);
+  }
+}
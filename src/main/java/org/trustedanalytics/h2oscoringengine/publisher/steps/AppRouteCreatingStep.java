@@ -13,9 +13,11 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.BIND_ROUTE_TO_APP_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.GET_ROUTES_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.ROUTES_ENDPOINT;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.ROUTE_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SHARED_DOMAINS_ENDPOINT;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.DOMAIN_JSON_PATH;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.ROUTES_NUMBER_JSON_PATH;
@@ -28,8 +30,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 import org.trustedanalytics.h2oscoringengine.publisher.http.JsonDataFetcher;
 
@@ -43,38 +47,78 @@ public class AppRouteCreatingStep {
   private final RestTemplate cfRestTemplate;
   private final String cfApiUrl;
   private final String appGuid;
+  private final CfMetadataCache cfMetadataCache;
+  private String routeGuid;
+  private boolean routeCreated;
 
-  public AppRouteCreatingStep(RestTemplate cfRestTemplate, String cfApiUrl, String appGuid) {
+  public AppRouteCreatingStep(RestTemplate cfRestTemplate, String cfApiUrl, String appGuid,
+      CfMetadataCache cfMetadataCache) {
     this.cfRestTemplate = cfRestTemplate;
     this.cfApiUrl = cfApiUrl;
     this.appGuid = appGuid;
+    this.cfMetadataCache = cfMetadataCache;
   }
 
   public AppBitsUploadingStep createAppRoute(String spaceGuid, String subdomain)
       throws EnginePublicationException {
 
     LOGGER.info("Assigning route to app...");
+    String cfDomainsUrl = cfApiUrl + SHARED_DOMAINS_ENDPOINT;
     try {
-      String domainGuid = getAvailableDomain();
+      String domainGuid = cfMetadataCache.get(cfDomainsUrl, this::getAvailableDomain);
 
       String appRoutesInfoJson = getAppRoutesInfo(subdomain, domainGuid);
       int routesNumber = JsonDataFetcher.getIntValue(appRoutesInfoJson, ROUTES_NUMBER_JSON_PATH);
 
-      String routeGuid;
       if (routesNumber > 0) {
         LOGGER.info("Fetching routes for " + subdomain + " subdomain");
         routeGuid = JsonDataFetcher.getStringValue(appRoutesInfoJson, ROUTE_JSON_PATH);
       } else {
         LOGGER.info("No route exists. Creating new one.");
         routeGuid = createNewRoute(subdomain, domainGuid, spaceGuid);
+        routeCreated = true;
       }
       LOGGER.info("Binding route " + routeGuid + " to app " + appGuid);
       bindRouteToApp(routeGuid, appGuid);
       return new AppBitsUploadingStep(cfApiUrl, cfRestTemplate, appGuid);
     } catch (IOException e) {
+      cfMetadataCache.invalidate(cfDomainsUrl);
       throw new EnginePublicationException("Unable to create route for app " + subdomain, e);
+    } catch (RestClientException e) {
+      cfMetadataCache.invalidate(cfDomainsUrl);
+      throw e;
+    }
+
+  }
+
+  /**
+   * Deletes app record and route created for it. Route that existed before is left in place.
+   * Failures are only logged, as rollback is done when publication has already failed.
+   */
+  public void rollback() {
+    try {
+      if (routeCreated) {
+        LOGGER.info("Deleting route " + routeGuid);
+        cfRestTemplate.exchange(cfApiUrl + ROUTE_ENDPOINT_TEMPLATE, HttpMethod.DELETE,
+            HttpCommunication.simpleJsonRequest(), String.class, routeGuid);
+      }
+      LOGGER.info("Deleting app " + appGuid);
+      cfRestTemplate.exchange(cfApiUrl + APP_ENDPOINT_TEMPLATE, HttpMethod.DELETE,
+          HttpCommunication.simpleJsonRequest(), String.class, appGuid);
+    } catch (RestClientException e) {
+      LOGGER.error("Unable to delete app " + appGuid + " and its route: ", e);
     }
+  }
+
+  public String getAppGuid() {
+    return appGuid;
+  }
 
+  /**
+   * @return GUID of route bound to the app, null until route is created
+   */
+  public String getRouteGuid() {
+    return routeGuid;
   }
 
   private String getAvailableDomain() throws IOException {
@@ -15,8 +15,10 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_IN_SPACE_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.APPS_NUMBER_JSON_PATH;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryResponsesJsonPaths.FIRST_APP_GUID_JSON_PATH;
 
 import java.io.IOException;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +26,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.SpaceAppIndex;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 import org.trustedanalytics.h2oscoringengine.publisher.http.JsonDataFetcher;
 
@@ -33,15 +36,23 @@ public class CheckingIfAppExistsStep {
 
   private final RestTemplate cfRestTemplate;
   private final String cfAppInSpaceUrl;
+  private final SpaceAppIndex spaceAppIndex;
 
-  public CheckingIfAppExistsStep(String cfApiUrl, RestTemplate cfRestTemplate) {
+  public CheckingIfAppExistsStep(String cfApiUrl, RestTemplate cfRestTemplate,
+      SpaceAppIndex spaceAppIndex) {
     this.cfRestTemplate = cfRestTemplate;
     this.cfAppInSpaceUrl = cfApiUrl + APP_IN_SPACE_ENDPOINT_TEMPLATE;
+    this.spaceAppIndex = spaceAppIndex;
   }
 
 
   public boolean check(String appName, String spaceGuid) throws EnginePublicationException {
 
+    if (spaceAppIndex.isKnownMissing(spaceGuid, appName)) {
+      LOGGER.info("App " + appName + " not found in index of apps in space " + spaceGuid);
+      return false;
+    }
+
     LOGGER.info("Checking if app " + appName + " already exists in CloudFoundry");
     ResponseEntity<String> response = cfRestTemplate.exchange(cfAppInSpaceUrl, HttpMethod.GET,
         HttpCommunication.simpleJsonRequest(), String.class, spaceGuid, appName);
@@ -56,4 +67,28 @@ public class CheckingIfAppExistsStep {
           e);
     }
   }
+
+  /**
+   * @return GUID of app with given name or empty if there's no such app in the space
+   */
+  public Optional<String> findAppGuid(String appName, String spaceGuid)
+      throws EnginePublicationException {
+    if (spaceAppIndex.isKnownMissing(spaceGuid, appName)) {
+      return Optional.empty();
+    }
+
+    LOGGER.info("Looking for app " + appName + " in CloudFoundry");
+    ResponseEntity<String> response = cfRestTemplate.exchange(cfAppInSpaceUrl, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, spaceGuid, appName);
+
+    try {
+      if (JsonDataFetcher.getIntValue(response.getBody(), APPS_NUMBER_JSON_PATH) == 0) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          JsonDataFetcher.getStringValue(response.getBody(), FIRST_APP_GUID_JSON_PATH));
+    } catch (IOException e) {
+      throw new EnginePublicationException("Unable to find CloudFoundry app " + appName, e);
+    }
+  }
 }
@@ -39,19 +39,37 @@ public class CreatingPlanVisibilityStep {
 
   private final String cfApiUrl;
   private final RestTemplate cfRestTemplate;
-
-  public CreatingPlanVisibilityStep(String cfApiUrl, RestTemplate cfRestTemplate) {
+  private final AppBitsUploadJob appBitsUploadJob;
+  private String serviceGuid;
+  private String planGuid;
+
+  /**
+   * @param appBitsUploadJob processing of bits of the service's app, awaited before the service
+   *        is made visible
+   */
+  public CreatingPlanVisibilityStep(String cfApiUrl, RestTemplate cfRestTemplate,
+      AppBitsUploadJob appBitsUploadJob) {
     this.cfApiUrl = cfApiUrl;
     this.cfRestTemplate = cfRestTemplate;
+    this.appBitsUploadJob = appBitsUploadJob;
   }
 
+  /**
+   * Makes service visible once CloudFoundry has processed bits of its app. Service and plan GUIDs
+   * are looked up every time, as they're new for each published engine.
+   *
+   * @throws EnginePublicationException if processing of app bits failed or visibility cannot be
+   *         set
+   */
   public void addServicePlanVisibility(String orgGuid, String serviceName)
       throws EnginePublicationException {
+    appBitsUploadJob.await();
+
     LOGGER.info("Setting plan visibility for " + serviceName + " in " + orgGuid + " organization");
 
     try {
-      String serviceGuid = getServiceGuidByName(serviceName);
-      String planGuid = getServicePlanGuid(serviceGuid);
+      serviceGuid = getServiceGuidByName(serviceName);
+      planGuid = getServicePlanGuid(serviceGuid);
 
       String requestBody = prepareServiceVisibilityJsonRequest(planGuid, orgGuid);
       String cfPlanVisibilityUrl = cfApiUrl + SERVICE_PLAN_VISIBILITIES_ENDPOINT;
@@ -64,6 +82,20 @@ public class CreatingPlanVisibilityStep {
     }
   }
 
+  /**
+   * @return GUID of CloudFoundry service, null until visibility is added
+   */
+  public String getServiceGuid() {
+    return serviceGuid;
+  }
+
+  /**
+   * @return GUID of CloudFoundry service plan, null until visibility is added
+   */
+  public String getPlanGuid() {
+    return planGuid;
+  }
+
   private String getServiceGuidByName(String serviceName) throws IOException {
     String cfServiceGuidUrl = cfApiUrl + GET_SERVICE_GUID_BY_NAME_ENDPOINT_TEMPLATE;
     ResponseEntity<String> response = cfRestTemplate.exchange(cfServiceGuidUrl, HttpMethod.GET,
@@ -15,8 +15,15 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
 import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
 
 public class H2oResourcesDownloadingStep {
@@ -25,21 +32,59 @@ public class H2oResourcesDownloadingStep {
   public static final String H2O_SERVER_LIB_PATH = "/3/h2o-genmodel.jar";
   public static final String H2O_LIB_FILE_NAME = "genmodel.jar";
 
+  private final GenmodelLibCache genmodelLibCache;
+  private final ExecutorService downloadExecutor;
+
+  public H2oResourcesDownloadingStep(GenmodelLibCache genmodelLibCache,
+      ExecutorService downloadExecutor) {
+    this.genmodelLibCache = genmodelLibCache;
+    this.downloadExecutor = downloadExecutor;
+  }
+
+  /**
+   * Downloads model POJO and genmodel library in parallel. When one of the downloads fails the
+   * other one is cancelled.
+   */
   public ModelCompilationStep downloadResources(FilesDownloader h2oFilesDownloader,
       String modelName, Path targetDirectory) throws EngineBuildingException {
     Path fileForModelPojo = targetDirectory.resolve(getModelPojoFileName(modelName));
     Path fileForLib = targetDirectory.resolve(H2O_LIB_FILE_NAME);
 
+    CompletionService<Path> downloads = new ExecutorCompletionService<>(downloadExecutor);
+    Future<Path> modelDownload = downloads.submit(() -> h2oFilesDownloader
+        .download(H2O_SERVER_MODEL_PATH_PREFIX + modelName, fileForModelPojo));
+    Future<Path> libDownload = downloads.submit(() -> downloadLib(h2oFilesDownloader, fileForLib));
+
     try {
-      Path downloadedModelPath =
-          h2oFilesDownloader.download(H2O_SERVER_MODEL_PATH_PREFIX + modelName, fileForModelPojo);
-      Path downloadedLibPath = h2oFilesDownloader.download(H2O_SERVER_LIB_PATH, fileForLib);
-      return new ModelCompilationStep(downloadedModelPath, downloadedLibPath);
+      downloads.take().get();
+      downloads.take().get();
+      return new ModelCompilationStep(modelDownload.get(), libDownload.get());
 
-    } catch (IOException e) {
+    } catch (ExecutionException e) {
+      cancel(modelDownload, libDownload);
       throw new EngineBuildingException(
-          "Unable to download resources for scoring engine: " + e.getMessage(), e);
+          "Unable to download resources for scoring engine: " + e.getCause().getMessage(),
+          e.getCause());
+    } catch (InterruptedException e) {
+      cancel(modelDownload, libDownload);
+      Thread.currentThread().interrupt();
+      throw new EngineBuildingException("Downloading resources for scoring engine interrupted", e);
+    }
+  }
+
+  private void cancel(Future<?>... downloads) {
+    for (Future<?> download : downloads) {
+      download.cancel(true);
+    }
+  }
+
+  private Path downloadLib(FilesDownloader h2oFilesDownloader, Path fileForLib)
+      throws IOException {
+    Optional<Path> cachedLib = genmodelLibCache.getLibrary(h2oFilesDownloader, H2O_SERVER_LIB_PATH);
+    if (cachedLib.isPresent()) {
+      return cachedLib.get();
     }
+    return h2oFilesDownloader.download(H2O_SERVER_LIB_PATH, fileForLib);
   }
 
   /**
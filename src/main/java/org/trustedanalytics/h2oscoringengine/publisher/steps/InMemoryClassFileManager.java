@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * Keeps class files produced by compiler in memory instead of writing them to output directory.
+ */
+class InMemoryClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+  private final Map<String, ByteArrayOutputStream> classFiles = new TreeMap<>();
+
+  InMemoryClassFileManager(StandardJavaFileManager fileManager) {
+    super(fileManager);
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+      Kind kind, FileObject sibling) throws IOException {
+    if (location != StandardLocation.CLASS_OUTPUT || kind != Kind.CLASS) {
+      return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+
+    String classFileName = className.replace('.', '/') + kind.extension;
+    ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+    classFiles.put(classFileName, classFile);
+    return new SimpleJavaFileObject(URI.create("mem:///" + classFileName), kind) {
+      @Override
+      public OutputStream openOutputStream() {
+        return classFile;
+      }
+    };
+  }
+
+  /**
+   * @return compiled classes keyed by their path inside a JAR, sorted by it
+   */
+  Map<String, byte[]> getClassFiles() {
+    Map<String, byte[]> classes = new TreeMap<>();
+    classFiles.forEach((name, content) -> classes.put(name, content.toByteArray()));
+    return classes;
+  }
+}
@@ -15,12 +15,16 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
@@ -42,20 +46,33 @@ public class ModelCompilationStep {
   }
 
   public ModelPackagingStep compileModel(Path targetDir) throws EngineBuildingException {
-    Path classesDir = compile(targetDir);
-    return new ModelPackagingStep(classesDir);
+    compile(Function.identity(), Arrays.asList("-d", targetDir.toString()));
+    return new ModelPackagingStep(targetDir);
   }
 
-  private Path compile(Path targetDir) throws EngineBuildingException {
+  /**
+   * Compiles model keeping class files in memory, so they can be packaged without writing them to
+   * disk and reading them back.
+   */
+  public ModelPackagingStep compileModelInMemory() throws EngineBuildingException {
+    InMemoryClassFileManager fileManager =
+        compile(InMemoryClassFileManager::new, Collections.emptyList());
+    return new ModelPackagingStep(fileManager.getClassFiles());
+  }
+
+  private <T extends JavaFileManager> T compile(
+      Function<StandardJavaFileManager, T> fileManagerFactory, List<String> outputOptions)
+      throws EngineBuildingException {
 
     JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
     DiagnosticCollector<JavaFileObject> diagnosticListener = new DiagnosticCollector<>();
-    StandardJavaFileManager fileManager =
+    StandardJavaFileManager standardFileManager =
         compiler.getStandardFileManager(diagnosticListener, null, null);
+    T fileManager = fileManagerFactory.apply(standardFileManager);
     Iterable<? extends JavaFileObject> compilationUnit =
-        fileManager.getJavaFileObjects(modelPojoPath.toFile());
-    List<String> compilerOptions =
-        Arrays.asList("-classpath", libPath.toString(), "-d", targetDir.toString());
+        standardFileManager.getJavaFileObjects(modelPojoPath.toFile());
+    List<String> compilerOptions = new ArrayList<>(Arrays.asList("-classpath", libPath.toString()));
+    compilerOptions.addAll(outputOptions);
 
     LOGGER.info("Compiling file " + modelPojoPath.toString() + " with options " + compilerOptions);
 
@@ -72,7 +89,7 @@ public class ModelCompilationStep {
     } catch (IOException e) {
       LOGGER.warn("Problem while closing files after compilation: ", e);
     }
-    return targetDir;
+    return fileManager;
   }
 
   private String compilationFailureMessage(DiagnosticCollector<JavaFileObject> diagnostics) {
@@ -13,13 +13,25 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
@@ -28,20 +40,87 @@ public class ModelPackagingStep {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ModelPackagingStep.class);
   private static final String MODEL_JAR_FILE_NAME = "model.jar";
+  private static final int DEFLATE_BUFFER_SIZE = 8 * 1024;
 
   private final Path classesDir;
+  private final Map<String, byte[]> compiledClasses;
 
 
   public ModelPackagingStep(Path classesDir) {
     this.classesDir = classesDir;
+    this.compiledClasses = null;
+  }
+
+  /**
+   * @param compiledClasses class files content keyed by their path inside JAR
+   */
+  public ModelPackagingStep(Map<String, byte[]> compiledClasses) {
+    this.classesDir = null;
+    this.compiledClasses = compiledClasses;
   }
 
   public ScoringEngineBuildingStep packageModel(Path targetDir) throws EngineBuildingException {
     Path fileForJar = targetDir.resolve(MODEL_JAR_FILE_NAME);
-    Path jar = createJar(classesDir, fileForJar);
+    Path jar = compiledClasses == null ? createJar(classesDir, fileForJar)
+        : createJar(compiledClasses, fileForJar);
+    return new ScoringEngineBuildingStep(jar);
+  }
+
+  /**
+   * Packages in-memory compiled classes compressing them in parallel on given pool. Entries are
+   * written in the same order as by {@link #packageModel(Path)}. Classes compiled to directory are
+   * packaged sequentially.
+   */
+  public ScoringEngineBuildingStep packageModel(Path targetDir, ForkJoinPool compressionPool)
+      throws EngineBuildingException {
+    if (compiledClasses == null) {
+      return packageModel(targetDir);
+    }
+    Path fileForJar = targetDir.resolve(MODEL_JAR_FILE_NAME);
+    Path jar = createJarInParallel(compiledClasses, fileForJar, compressionPool);
     return new ScoringEngineBuildingStep(jar);
   }
 
+  private Path createJarInParallel(Map<String, byte[]> compiledClasses, Path fileForJar,
+      ForkJoinPool compressionPool) throws EngineBuildingException {
+
+    List<ForkJoinTask<CompressedClassFile>> compressions = compiledClasses.entrySet().stream()
+        .map(classFile -> compressionPool
+            .submit(() -> CompressedClassFile.deflate(classFile.getKey(), classFile.getValue())))
+        .collect(Collectors.toList());
+
+    try (ZipArchiveOutputStream jar = new ZipArchiveOutputStream(fileForJar.toFile())) {
+      for (ForkJoinTask<CompressedClassFile> compression : compressions) {
+        CompressedClassFile classFile = compression.join();
+        jar.addRawArchiveEntry(classFile.entry, new ByteArrayInputStream(classFile.content));
+      }
+    } catch (IOException e) {
+      compressions.forEach(compression -> compression.cancel(true));
+      LOGGER.error("Error while creating model jar file: ", e);
+      throw new EngineBuildingException("Error while creating model jar file ", e);
+    }
+
+    return fileForJar;
+  }
+
+  private Path createJar(Map<String, byte[]> compiledClasses, Path fileForJar)
+      throws EngineBuildingException {
+
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(fileForJar.toString()))) {
+      for (Map.Entry<String, byte[]> classFile : compiledClasses.entrySet()) {
+        jar.putNextEntry(new JarEntry(classFile.getKey()));
+        jar.write(classFile.getValue());
+        jar.closeEntry();
+      }
+      jar.flush();
+    } catch (IOException e) {
+      LOGGER.error("Error while creating model jar file: ", e);
+      throw new EngineBuildingException("Error while creating model jar file ", e);
+    }
+
+    return fileForJar;
+  }
+
   private Path createJar(Path classesDir, Path fileForJar) throws EngineBuildingException {
 
     try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(fileForJar.toString()))) {
@@ -68,6 +147,41 @@ public class ModelPackagingStep {
     }
   }
 
+  private static class CompressedClassFile {
+
+    private final ZipArchiveEntry entry;
+    private final byte[] content;
+
+    private CompressedClassFile(ZipArchiveEntry entry, byte[] content) {
+      this.entry = entry;
+      this.content = content;
+    }
+
+    static CompressedClassFile deflate(String name, byte[] classFile) {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try {
+        deflater.setInput(classFile);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(classFile.length / 2 + 64);
+        byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+        while (!deflater.finished()) {
+          compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(classFile);
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        entry.setSize(classFile.length);
+        entry.setCompressedSize(compressed.size());
+        entry.setCrc(crc.getValue());
+        return new CompressedClassFile(entry, compressed.toByteArray());
+      } finally {
+        deflater.end();
+      }
+    }
+  }
+
   class DirectoryTraversingException extends RuntimeException {
 
     private static final long serialVersionUID = 9117429708749767380L;
@@ -14,6 +14,7 @@
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BROKER_CATALOG_ENDPOINT;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BROKER_SERVICE_ENDPOINT_TEMPLATE;
 
 import java.util.UUID;
 
@@ -22,7 +23,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
 import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 
@@ -38,16 +41,27 @@ public class RegisteringInApplicationBrokerStep {
   private final String appGuid;
   private final String cfApiUrl;
   private final RestTemplate cfRestTemplate;
+  private final AppBitsUploadJob appBitsUploadJob;
+  private final String serviceId = UUID.randomUUID().toString();
+  private final String planId = UUID.randomUUID().toString();
+  private boolean registered;
 
   public RegisteringInApplicationBrokerStep(String appGuid, String cfApiUrl,
-      RestTemplate cfRestTemplate) {
+      RestTemplate cfRestTemplate, AppBitsUploadJob appBitsUploadJob) {
     this.appGuid = appGuid;
     this.cfApiUrl = cfApiUrl;
     this.cfRestTemplate = cfRestTemplate;
+    this.appBitsUploadJob = appBitsUploadJob;
   }
 
+  /**
+   * Registers service in application-broker while CloudFoundry is still processing app bits. The
+   * returned step awaits the processing before making the service visible, so a failed upload is
+   * never offered; its service is deleted with {@link #unregister} on rollback.
+   */
   public CreatingPlanVisibilityStep register(BasicAuthServerCredentials appBrokerCredentials,
-      RestTemplate appBrokerRestTemplate, String serviceName, String serviceDescription) {
+      RestTemplate appBrokerRestTemplate, String serviceName, String serviceDescription)
+      throws EnginePublicationException {
 
     LOGGER.info("Registering service " + serviceName + " in application-broker");
 
@@ -58,15 +72,50 @@ public class RegisteringInApplicationBrokerStep {
 
     String appBrokerEndpoint = appBrokerCredentials.getHost() + APP_BROKER_CATALOG_ENDPOINT;
     appBrokerRestTemplate.exchange(appBrokerEndpoint, HttpMethod.POST, request, String.class);
+    registered = true;
 
-    return new CreatingPlanVisibilityStep(cfApiUrl, cfRestTemplate);
+    return new CreatingPlanVisibilityStep(cfApiUrl, cfRestTemplate, appBitsUploadJob);
 
   }
 
-  private String prepareAppBrokerJsonRequest(String serviceName, String serviceDescription) {
-    String planId = UUID.randomUUID().toString();
-    String serviceId = UUID.randomUUID().toString();
+  /**
+   * Deletes service registered by this step from application-broker catalog, so that app deleted
+   * by rollback isn't offered anymore. Does nothing when service wasn't registered. Failures are
+   * only logged, as it's done when publication has already failed.
+   */
+  public void unregister(BasicAuthServerCredentials appBrokerCredentials,
+      RestTemplate appBrokerRestTemplate) {
+    if (!registered) {
+      return;
+    }
+    try {
+      LOGGER.info("Deleting service " + serviceId + " from application-broker");
+      HttpHeaders headers =
+          HttpCommunication.basicAuthJsonHeaders(appBrokerCredentials.getBasicAuthToken());
+      appBrokerRestTemplate.exchange(
+          appBrokerCredentials.getHost() + APP_BROKER_SERVICE_ENDPOINT_TEMPLATE, HttpMethod.DELETE,
+          new HttpEntity<>(headers), String.class, serviceId);
+      registered = false;
+    } catch (RestClientException e) {
+      LOGGER.error("Unable to delete service " + serviceId + " from application-broker: ", e);
+    }
+  }
+
+  /**
+   * @return id of service registered in application-broker
+   */
+  public String getServiceId() {
+    return serviceId;
+  }
 
+  /**
+   * @return id of service plan registered in application-broker
+   */
+  public String getPlanId() {
+    return planId;
+  }
+
+  private String prepareAppBrokerJsonRequest(String serviceName, String serviceDescription) {
     ObjectMapper mapper = new ObjectMapper();
 
     ArrayNode plansArray = mapper.createArrayNode();
@@ -14,22 +14,18 @@
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.jar.JarFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.filesystem.EngineBaseJar;
 import org.trustedanalytics.h2oscoringengine.publisher.filesystem.UpdatableJar;
 
 public class ScoringEngineBuildingStep {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ScoringEngineBuildingStep.class);
-  private static final String SCORING_ENGINE_FILE_NAME = "scoring-engine.jar";
-  private static final String ENGINE_BASE_JAR_NAME = "scoring-engine-base.jar";
+  public static final String SCORING_ENGINE_FILE_NAME = "scoring-engine.jar";
 
   private final Path modelJarPath;
 
@@ -37,10 +33,19 @@ public class ScoringEngineBuildingStep {
     this.modelJarPath = modelJarPath;
   }
 
-  public Path buildScoringEngine(Path scoringEngineDir, String engineBaseJarResourcePath) throws EngineBuildingException {
+  public Path buildScoringEngine(Path scoringEngineDir, EngineBaseJar engineBaseJar) throws EngineBuildingException {
+    return buildScoringEngine(createEngineBase(scoringEngineDir, engineBaseJar));
+  }
+
+  /**
+   * Completes scoring engine JAR started with {@link #createEngineBase(Path, EngineBaseJar)} by
+   * adding model JAR to it.
+   */
+  public Path buildScoringEngine(UpdatableJar engineBase) throws EngineBuildingException {
     try {
       LOGGER.info("Creating scoring engine JAR for model: " + modelJarPath);
-      Path scoringEngineJar = buildScoringEngine(modelJarPath, engineBaseJarResourcePath, scoringEngineDir);
+      Path scoringEngineJar = engineBase.addUncompressedLibJar(modelJarPath).getJarPath();
+      engineBase.close();
       LOGGER.info("Generated JAR: " + scoringEngineJar);
       return scoringEngineJar;
     } catch (IOException e) {
@@ -49,28 +54,20 @@ public class ScoringEngineBuildingStep {
     }
   }
 
-  private Path buildScoringEngine(Path modelJarPath, String engineBaseResourcePath, Path targetDir) throws IOException {
-    UpdatableJar engineJar = new UpdatableJar(SCORING_ENGINE_FILE_NAME, targetDir);
-    Path engineJarPath =
-        engineJar.addJarContent(createTemplateJar(engineBaseResourcePath, targetDir))
-            .addUncompressedLibJar(modelJarPath).getJarPath();
-    engineJar.close();
-    return engineJarPath;
-  }
-
-  private JarFile createTemplateJar(String baseJarResourcePath, Path targetDir)
-      throws IOException {
-    URL resource = this.getClass().getResource(baseJarResourcePath);
-    if (null == resource) {
-      throw new IOException("JAR resource " + baseJarResourcePath + " not found");
+  /**
+   * Starts scoring engine JAR with content of engine base JAR. It doesn't depend on the model, so
+   * it can be done while model is being downloaded and compiled.
+   */
+  public static UpdatableJar createEngineBase(Path scoringEngineDir, EngineBaseJar engineBaseJar)
+      throws EngineBuildingException {
+    try {
+      UpdatableJar engineJar = new UpdatableJar(SCORING_ENGINE_FILE_NAME, scoringEngineDir);
+      return engineJar.addRawJarContent(engineBaseJar);
+    } catch (IOException e) {
+      LOGGER.error("Error while copying engine base to scoring engine JAR: ", e);
+      throw new EngineBuildingException("Error while copying engine base to scoring engine JAR: ",
+          e);
     }
-
-    Path templateJar = targetDir.resolve(ENGINE_BASE_JAR_NAME);
-    InputStream templateResource = this.getClass().getResourceAsStream(baseJarResourcePath);
-    Files.copy(templateResource, templateJar);
-    templateResource.close();
-    
-    return new JarFile(templateJar.toFile());
   }
 
 }
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Runs steps of engine building on given executor, each one as soon as steps it depends on are
+ * finished, so independent steps overlap. Steps can only depend on steps added before them, which
+ * keeps the graph acyclic.
+ */
+public class StepGraph {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StepGraph.class);
+
+  private final ExecutorService executor;
+  private final StepListener listener;
+  private final List<Node<?>> nodes = new ArrayList<>();
+
+  public StepGraph(ExecutorService executor) {
+    this(executor, StepListener.NONE);
+  }
+
+  public StepGraph(ExecutorService executor, StepListener listener) {
+    this.executor = executor;
+    this.listener = listener;
+  }
+
+  /**
+   * @param name step name used in logs and timings
+   * @param step step to run; it must not return null
+   * @param inputs steps which outputs this step reads
+   * @return key of step output
+   * @throws IllegalArgumentException if one of inputs isn't added to this graph
+   */
+  public <T> StepKey<T> add(String name, Step<T> step, StepKey<?>... inputs) {
+    List<StepKey<?>> addedKeys = new ArrayList<>();
+    nodes.forEach(node -> addedKeys.add(node.key));
+    for (StepKey<?> input : inputs) {
+      if (!addedKeys.contains(input)) {
+        throw new IllegalArgumentException("Input " + input + " of step " + name
+            + " has to be added to the graph before the step");
+      }
+    }
+
+    StepKey<T> key = new StepKey<>(name);
+    nodes.add(new Node<>(key, step, Arrays.asList(inputs)));
+    return key;
+  }
+
+  /**
+   * Runs all steps and waits until they're finished. When a step fails, steps depending on it are
+   * skipped and independent ones are left to finish; their {@link Closeable} outputs, also ones
+   * wrapped in {@link Optional}, are closed. When the calling thread is interrupted, steps not
+   * started yet are skipped and running ones are interrupted; the call returns only once none of
+   * them runs anymore, with all outputs closed.
+   *
+   * @return outputs of all steps
+   * @throws EngineBuildingException failure of a failed step
+   */
+  public StepResults run() throws EngineBuildingException {
+    Map<StepKey<?>, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+    Map<String, Long> durationsMs = new ConcurrentHashMap<>();
+    RunningSteps runningSteps = new RunningSteps();
+    for (Node<?> node : nodes) {
+      Map<StepKey<?>, CompletableFuture<Object>> inputs = new HashMap<>();
+      node.inputs.forEach(input -> inputs.put(input, futures.get(input)));
+      futures.put(node.key,
+          CompletableFuture.allOf(inputs.values().toArray(new CompletableFuture[inputs.size()]))
+              .thenApplyAsync(ignored -> runStep(node, inputs, durationsMs, runningSteps),
+                  executor));
+    }
+
+    CompletableFuture<Void> allSteps =
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()]));
+    try {
+      allSteps.get();
+    } catch (ExecutionException e) {
+      closeOutputs(futures);
+      Throwables.propagateIfPossible(e.getCause(), EngineBuildingException.class);
+      throw new EngineBuildingException("Engine building step failed: ", e.getCause());
+    } catch (InterruptedException e) {
+      // futures aren't cancelled, as output of a step finishing afterwards would never be closed;
+      // caller releases working directory next, so no step may still be writing into it
+      runningSteps.cancel();
+      allSteps.handle((result, failure) -> result).join();
+      closeOutputs(futures);
+      Thread.currentThread().interrupt();
+      throw new EngineBuildingException("Engine building interrupted", e);
+    }
+
+    Map<StepKey<?>, Object> outputs = new HashMap<>();
+    futures.forEach((key, future) -> outputs.put(key, future.join()));
+    Map<String, Long> orderedDurationsMs = new LinkedHashMap<>();
+    nodes.forEach(node -> orderedDurationsMs.put(node.key.getName(),
+        durationsMs.get(node.key.getName())));
+    return new StepResults(outputs, orderedDurationsMs);
+  }
+
+  private Object runStep(Node<?> node, Map<StepKey<?>, CompletableFuture<Object>> inputFutures,
+      Map<String, Long> durationsMs, RunningSteps runningSteps) {
+    Map<StepKey<?>, Object> inputs = new HashMap<>();
+    inputFutures.forEach((input, future) -> inputs.put(input, future.join()));
+
+    runningSteps.start(node.key);
+    listener.stepStarted(node.key.getName());
+    long start = System.nanoTime();
+    try {
+      return Objects.requireNonNull(
+          node.step.run(new StepResults(inputs, new HashMap<>())),
+          "Step " + node.key + " returned no output");
+    } catch (EngineBuildingException e) {
+      throw new CompletionException(e);
+    } finally {
+      runningSteps.finish();
+      long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      durationsMs.put(node.key.getName(), durationMs);
+      listener.stepFinished(node.key.getName(), durationMs);
+      LOGGER.debug("Step " + node.key + " took " + durationMs + " ms");
+    }
+  }
+
+  private void closeOutputs(Map<StepKey<?>, CompletableFuture<Object>> futures) {
+    futures.forEach((key, future) -> {
+      if (!future.isDone() || future.isCompletedExceptionally()) {
+        return;
+      }
+      Object output = future.join();
+      if (output instanceof Optional) {
+        output = ((Optional<?>) output).orElse(null);
+      }
+      if (output instanceof Closeable) {
+        try {
+          ((Closeable) output).close();
+        } catch (IOException e) {
+          LOGGER.warn("Unable to close output of step " + key + ": ", e);
+        }
+      }
+    });
+  }
+
+  @FunctionalInterface
+  public interface Step<T> {
+
+    /**
+     * @param inputs outputs of steps declared as inputs of this one
+     */
+    T run(StepResults inputs) throws EngineBuildingException;
+  }
+
+  /**
+   * Threads running steps of one graph run, interrupted when the run is cancelled.
+   */
+  private static class RunningSteps {
+
+    private final Set<Thread> threads = new HashSet<>();
+    private boolean cancelled;
+
+    private synchronized void start(StepKey<?> key) {
+      if (cancelled) {
+        throw new CancellationException("Step " + key + " skipped, engine building cancelled");
+      }
+      threads.add(Thread.currentThread());
+    }
+
+    private synchronized void finish() {
+      threads.remove(Thread.currentThread());
+      if (cancelled) {
+        // interrupt meant for the step mustn't leak to the next task of the executor thread
+        Thread.interrupted();
+      }
+    }
+
+    private synchronized void cancel() {
+      cancelled = true;
+      threads.forEach(Thread::interrupt);
+    }
+  }
+
+  private static class Node<T> {
+
+    private final StepKey<T> key;
+    private final Step<T> step;
+    private final List<StepKey<?>> inputs;
+
+    private Node(StepKey<T> key, Step<T> step, List<StepKey<?>> inputs) {
+      this.key = key;
+      this.step = step;
+      this.inputs = inputs;
+    }
+  }
+}
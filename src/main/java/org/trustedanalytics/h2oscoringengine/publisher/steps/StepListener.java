@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+/**
+ * Notified about steps of engine building and publication, e.g. to report progress of
+ * publication job. Steps running in parallel are reported concurrently.
+ */
+public interface StepListener {
+
+  StepListener NONE = new StepListener() {};
+
+  default void stepStarted(String stepName) {}
+
+  default void stepFinished(String stepName, long durationMs) {}
+}
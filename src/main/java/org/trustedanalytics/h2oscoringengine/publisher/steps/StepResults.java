@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outputs of {@link StepGraph} steps. Step is given only outputs of steps it declared as its
+ * inputs; graph run returns outputs of all steps together with their durations.
+ */
+public class StepResults {
+
+  private final Map<StepKey<?>, Object> outputs;
+  private final Map<String, Long> durationsMs;
+
+  StepResults(Map<StepKey<?>, Object> outputs, Map<String, Long> durationsMs) {
+    this.outputs = outputs;
+    this.durationsMs = durationsMs;
+  }
+
+  /**
+   * @throws IllegalArgumentException if there's no output of given step
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(StepKey<T> key) {
+    Object output = outputs.get(key);
+    if (output == null) {
+      throw new IllegalArgumentException("No output of step " + key + " available");
+    }
+    return (T) output;
+  }
+
+  /**
+   * @return step durations in milliseconds keyed by step name, in order steps were added to graph
+   */
+  public Map<String, Long> getDurationsMs() {
+    return Collections.unmodifiableMap(durationsMs);
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.resource.UserRedirectRequiredException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.PublishRequest;
+
+public class BatchPublisherTest {
+
+  private final Publisher publisherMock = mock(Publisher.class);
+  private final OAuth2RestTemplate cfRestTemplateMock = mock(OAuth2RestTemplate.class);
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+  private final PublishedEngine testEngine = new PublishedEngine();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void publishAll_oneModelFails_resultOfEachModelReturnedInOrder() throws Exception {
+    // given
+    BatchPublisher batchPublisher =
+        new BatchPublisher(publisherMock, cfRestTemplateMock, executor, validator);
+    PublishRequest first = testRequest("first-model");
+    PublishRequest second = testRequest("second-model");
+    when(publisherMock.publish(first)).thenThrow(new EnginePublicationException("some error"));
+    when(publisherMock.publish(second)).thenReturn(testEngine);
+
+    // when
+    List<BatchPublicationResult> results = batchPublisher.publishAll(Arrays.asList(first, second));
+
+    // then
+    assertThat(results.size(), equalTo(2));
+    assertThat(results.get(0).getModelName(), equalTo("first-model"));
+    assertThat(results.get(0).isPublished(), is(false));
+    assertThat(results.get(0).getError(), equalTo("some error"));
+    assertThat(results.get(1).getModelName(), equalTo("second-model"));
+    assertThat(results.get(1).isPublished(), is(true));
+    assertThat(results.get(1).getEngine(), equalTo(testEngine));
+    assertThat(results.get(1).getError(), nullValue());
+  }
+
+  @Test
+  public void publishAll_manyModels_accessTokenFetchedOnce() throws Exception {
+    // given
+    BatchPublisher batchPublisher =
+        new BatchPublisher(publisherMock, cfRestTemplateMock, executor, validator);
+    when(publisherMock.publish(any())).thenReturn(testEngine);
+
+    // when
+    batchPublisher.publishAll(Arrays.asList(testRequest("first-model"),
+        testRequest("second-model"), testRequest("third-model")));
+
+    // then
+    verify(cfRestTemplateMock, times(1)).getAccessToken();
+    verify(publisherMock, times(3)).publish(any());
+  }
+
+  @Test
+  public void publishAll_accessTokenNotFetched_modelsPublishedAnyway() throws Exception {
+    // given
+    BatchPublisher batchPublisher =
+        new BatchPublisher(publisherMock, cfRestTemplateMock, executor, validator);
+    when(cfRestTemplateMock.getAccessToken())
+        .thenThrow(new UserRedirectRequiredException("some-uri", null));
+    when(publisherMock.publish(any())).thenReturn(testEngine);
+
+    // when
+    List<BatchPublicationResult> results =
+        batchPublisher.publishAll(Arrays.asList(testRequest("some-model")));
+
+    // then
+    assertThat(results.get(0).isPublished(), is(true));
+  }
+
+  @Test
+  public void publishAll_modelRequestedTwice_modelPublishedOnce() throws Exception {
+    // given
+    BatchPublisher batchPublisher =
+        new BatchPublisher(publisherMock, cfRestTemplateMock, executor, validator);
+    when(publisherMock.publish(any())).thenReturn(testEngine);
+
+    // when
+    List<BatchPublicationResult> results = batchPublisher
+        .publishAll(Arrays.asList(testRequest("some-model"), testRequest("some-model")));
+
+    // then
+    verify(publisherMock, times(1)).publish(any());
+    assertThat(results.get(0).isPublished(), is(true));
+    assertThat(results.get(1).isPublished(), is(false));
+  }
+
+  @Test
+  public void publishAll_invalidRequest_failureReportedForThatModelOnly() throws Exception {
+    // given
+    BatchPublisher batchPublisher =
+        new BatchPublisher(publisherMock, cfRestTemplateMock, executor, validator);
+    PublishRequest invalid = testRequest("first-model");
+    invalid.setOrgGuid(null);
+    when(publisherMock.publish(any())).thenReturn(testEngine);
+
+    // when
+    List<BatchPublicationResult> results =
+        batchPublisher.publishAll(Arrays.asList(invalid, testRequest("second-model")));
+
+    // then
+    verify(publisherMock, times(1)).publish(any());
+    assertThat(results.get(0).isPublished(), is(false));
+    assertThat(results.get(0).getError(), containsString("orgGuid"));
+    assertThat(results.get(1).isPublished(), is(true));
+  }
+
+  @Test
+  public void publishAll_emptyRequest_failureReported() throws Exception {
+    // given
+    BatchPublisher batchPublisher =
+        new BatchPublisher(publisherMock, cfRestTemplateMock, executor, validator);
+
+    // when
+    List<BatchPublicationResult> results =
+        batchPublisher.publishAll(Arrays.asList((PublishRequest) null));
+
+    // then
+    assertThat(results.get(0).isPublished(), is(false));
+  }
+
+  private PublishRequest testRequest(String modelName) {
+    PublishRequest request = new PublishRequest();
+    request.setH2oCredentials(
+        new BasicAuthServerCredentials("some-host", "some-user", "some-password"));
+    request.setModelName(modelName);
+    request.setOrgGuid("some-org-guid");
+    return request;
+  }
+}
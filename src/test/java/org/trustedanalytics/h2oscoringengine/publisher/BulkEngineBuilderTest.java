@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
+import org.trustedanalytics.h2oscoringengine.publisher.http.ModelListing;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepListener;
+
+public class BulkEngineBuilderTest {
+
+  private final String testHost = "http://h2o-host";
+  private final String modelsResponse = "{\"models\":[{\"model_id\":{\"name\":\"first-model\"}},"
+      + "{\"model_id\":{\"name\":\"second-model\"}}]}";
+  private final BasicAuthServerCredentials testCredentials =
+      new BasicAuthServerCredentials(testHost, "some-user", "some-password");
+  private final List<String> testModelNames = Arrays.asList("first-model", "second-model");
+
+  private final Publisher publisherMock = mock(Publisher.class);
+  private final RestTemplate restTemplateMock = mock(RestTemplate.class);
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final ScoringEngineJar engineJarMock = mock(ScoringEngineJar.class);
+  private Path testEngineJar;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() throws Exception {
+    this.testEngineJar = Files.write(
+        Files.createTempDirectory("h2o-publisher-test-bulk").resolve("engine.jar"),
+        "engine".getBytes(StandardCharsets.UTF_8));
+    when(engineJarMock.getPath()).thenReturn(testEngineJar);
+    when(restTemplateMock.exchange(eq(testHost + ModelListing.H2O_MODELS_PATH),
+        eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+            .thenReturn(new ResponseEntity<>(modelsResponse, HttpStatus.OK));
+    doAnswer(invocation -> {
+      ((StepListener) invocation.getArguments()[2]).stepFinished("model-compiling", 5);
+      return engineJarMock;
+    }).when(publisherMock).getScoringEngineJar(eq(testCredentials), eq("first-model"), any());
+    when(publisherMock.getScoringEngineJar(eq(testCredentials), eq("second-model"), any()))
+        .thenThrow(new EngineBuildingException("some error"));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void buildAll_oneModelFails_resultOfEachModelReturned() throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+
+    // when
+    List<BulkBuildResult> results = builder.buildAll(testCredentials);
+
+    // then
+    assertThat(results.size(), equalTo(2));
+    assertThat(results.get(0).getModelName(), equalTo("first-model"));
+    assertThat(results.get(0).isBuilt(), is(true));
+    assertThat(results.get(0).getEngineJar().getPath(), equalTo(testEngineJar));
+    assertThat(results.get(0).getStepDurationsMs().get("model-compiling"), equalTo(5L));
+    assertThat(results.get(1).getModelName(), equalTo("second-model"));
+    assertThat(results.get(1).isBuilt(), is(false));
+    assertThat(results.get(1).getError(), equalTo("some error"));
+  }
+
+  @Test
+  public void buildAllAsZip_builtEnginesAndReportArchived() throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+
+    // when
+    builder.buildAllAsZip(testCredentials, testModelNames, archive);
+
+    // then
+    Map<String, String> entries = readZip(archive.toByteArray());
+    assertThat(entries.keySet().toString(),
+        equalTo("[first-model.jar, " + BulkEngineBuilder.REPORT_FILE_NAME + "]"));
+    assertThat(entries.get("first-model.jar"), equalTo("engine"));
+    assertThat(entries.get(BulkEngineBuilder.REPORT_FILE_NAME),
+        containsString("\"first-model\",true,"));
+    assertThat(entries.get(BulkEngineBuilder.REPORT_FILE_NAME),
+        containsString(",\"some error\"\n"));
+  }
+
+  @Test
+  public void buildAllAsZip_builtEnginesClosedAfterArchiving() throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+
+    // when
+    builder.buildAllAsZip(testCredentials, testModelNames, new ByteArrayOutputStream());
+
+    // then
+    verify(engineJarMock).close();
+  }
+
+  @Test
+  public void buildAllAsZip_slowerBuildStillRunning_builtEngineArchivedAndClosedMeanwhile()
+      throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+    CountDownLatch firstEngineClosed = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      firstEngineClosed.countDown();
+      return null;
+    }).when(engineJarMock).close();
+    AtomicBoolean closedWhileSecondBuilding = new AtomicBoolean();
+    when(publisherMock.getScoringEngineJar(eq(testCredentials), eq("second-model"), any()))
+        .thenAnswer(invocation -> {
+          closedWhileSecondBuilding.set(firstEngineClosed.await(5, TimeUnit.SECONDS));
+          throw new EngineBuildingException("some error");
+        });
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+
+    // when
+    builder.buildAllAsZip(testCredentials, testModelNames, archive);
+
+    // then
+    assertThat(closedWhileSecondBuilding.get(), is(true));
+    assertThat(readZip(archive.toByteArray()).get("first-model.jar"), equalTo("engine"));
+  }
+
+  @Test
+  public void buildAllAsZip_archiveNotWritable_builtEnginesClosed() throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+    ScoringEngineJar secondEngineJarMock = mock(ScoringEngineJar.class);
+    when(secondEngineJarMock.getPath()).thenReturn(testEngineJar);
+    when(publisherMock.getScoringEngineJar(eq(testCredentials), eq("second-model"), any()))
+        .thenReturn(secondEngineJarMock);
+    OutputStream brokenStream = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+
+    // when
+    IOException failure = null;
+    try {
+      builder.buildAllAsZip(testCredentials, testModelNames, brokenStream);
+    } catch (IOException e) {
+      failure = e;
+    }
+
+    // then
+    assertThat(failure, notNullValue());
+    verify(engineJarMock, timeout(5000).atLeastOnce()).close();
+    verify(secondEngineJarMock, timeout(5000).atLeastOnce()).close();
+  }
+
+  @Test
+  public void buildAllAsZip_modelNameWithPathSeparator_modelReportedAndNotBuilt()
+      throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+
+    // when
+    builder.buildAllAsZip(testCredentials, Arrays.asList("first-model", "../../etc/model"),
+        archive);
+
+    // then
+    verify(publisherMock, never()).getScoringEngineJar(any(), eq("../../etc/model"), any());
+    Map<String, String> entries = readZip(archive.toByteArray());
+    assertThat(entries.keySet().toString(),
+        equalTo("[first-model.jar, " + BulkEngineBuilder.REPORT_FILE_NAME + "]"));
+    assertThat(entries.get(BulkEngineBuilder.REPORT_FILE_NAME), containsString(
+        "\"../../etc/model\",false,0,,\"" + BulkEngineBuilder.INVALID_MODEL_NAME_ERROR + "\"\n"));
+  }
+
+  @Test
+  public void listModels_modelNamesReturned() throws Exception {
+    // given
+    BulkEngineBuilder builder = new BulkEngineBuilder(publisherMock, restTemplateMock, executor);
+
+    // when
+    List<String> modelNames = builder.listModels(testCredentials);
+
+    // then
+    assertThat(modelNames, equalTo(testModelNames));
+  }
+
+  @Test
+  public void listModels_serverUnreachable_exceptionThrown() throws Exception {
+    // given
+    FilesDownloader downloaderMock = mock(FilesDownloader.class);
+    when(downloaderMock.getServerUrl()).thenReturn(testHost);
+    when(downloaderMock.downloadAsString(ModelListing.H2O_MODELS_PATH))
+        .thenThrow(new IOException());
+
+    // then
+    thrown.expect(EngineBuildingException.class);
+
+    // when
+    BulkEngineBuilder.listModels(downloaderMock);
+  }
+
+  @Test
+  public void formatReport_stepDurationsInColumns() {
+    // given
+    Map<String, Long> durations = new LinkedHashMap<>();
+    durations.put("model-compiling", 5L);
+    durations.put("model-packaging", 7L);
+    BulkBuildResult result = new BulkBuildResult("some-model", engineJarMock, null, durations, 20);
+
+    // when
+    String report = BulkEngineBuilder.formatReport(Collections.singletonList(result));
+
+    // then
+    assertThat(report, equalTo("model,built,total_ms,model-compiling_ms,model-packaging_ms,error\n"
+        + "\"some-model\",true,20,5,7,\n"));
+  }
+
+  private Map<String, String> readZip(byte[] archive) throws IOException {
+    Map<String, String> entries = new LinkedHashMap<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entries.put(entry.getName(), StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+      }
+    }
+    return entries;
+  }
+}
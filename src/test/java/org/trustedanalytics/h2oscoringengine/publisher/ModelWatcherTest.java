@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.ModelWatcherProperties.WatchedServer;
+import org.trustedanalytics.h2oscoringengine.publisher.http.ModelListing;
+
+public class ModelWatcherTest {
+
+  private final String testHost = "http://h2o-host";
+  private final String modelsResponse =
+      "{\"models\":[{\"model_id\":{\"name\":\"first-model\"},\"timestamp\":1000},"
+          + "{\"model_id\":{\"name\":\"second-model\"},\"timestamp\":2000}]}";
+  private final String retrainedModelsResponse = modelsResponse.replace("1000", "3000");
+
+  private final Publisher publisherMock = mock(Publisher.class);
+  private final RestTemplate restTemplateMock = mock(RestTemplate.class);
+  private final WatchedServer testServer = new WatchedServer();
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    testServer.setHost(testHost);
+    testServer.setUsername("some-user");
+    testServer.setPassword("some-password");
+    executor = mock(ExecutorService.class);
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(executor).execute(any(Runnable.class));
+    setModelsResponse(modelsResponse);
+  }
+
+  @Test
+  public void poll_newModels_enginesBuilt() throws Exception {
+    // given
+    ModelWatcher watcher = testWatcher();
+
+    // when
+    watcher.poll();
+
+    // then
+    verify(publisherMock).prebuildScoringEngine(testServer, "first-model");
+    verify(publisherMock).prebuildScoringEngine(testServer, "second-model");
+  }
+
+  @Test
+  public void poll_modelsUnchanged_enginesNotRebuilt() throws Exception {
+    // given
+    ModelWatcher watcher = testWatcher();
+    watcher.poll();
+
+    // when
+    watcher.poll();
+
+    // then
+    verify(publisherMock, times(1)).prebuildScoringEngine(testServer, "first-model");
+    verify(publisherMock, times(1)).prebuildScoringEngine(testServer, "second-model");
+  }
+
+  @Test
+  public void poll_modelRetrained_engineRebuilt() throws Exception {
+    // given
+    ModelWatcher watcher = testWatcher();
+    watcher.poll();
+
+    // when
+    setModelsResponse(retrainedModelsResponse);
+    watcher.poll();
+
+    // then
+    verify(publisherMock, times(2)).prebuildScoringEngine(testServer, "first-model");
+    verify(publisherMock, times(1)).prebuildScoringEngine(testServer, "second-model");
+  }
+
+  @Test
+  public void poll_modelsAllowed_onlyAllowedModelsBuilt() throws Exception {
+    // given
+    testServer.setModels(Collections.singletonList("second-model"));
+    ModelWatcher watcher = testWatcher();
+
+    // when
+    watcher.poll();
+
+    // then
+    verify(publisherMock, never()).prebuildScoringEngine(testServer, "first-model");
+    verify(publisherMock).prebuildScoringEngine(testServer, "second-model");
+  }
+
+  @Test
+  public void poll_buildFailed_buildRetriedOnNextPoll() throws Exception {
+    // given
+    ModelWatcher watcher = testWatcher();
+    doThrow(new EngineBuildingException("some error")).doNothing().when(publisherMock)
+        .prebuildScoringEngine(testServer, "first-model");
+    watcher.poll();
+
+    // when
+    watcher.poll();
+
+    // then
+    verify(publisherMock, times(2)).prebuildScoringEngine(testServer, "first-model");
+  }
+
+  private ModelWatcher testWatcher() {
+    return new ModelWatcher(publisherMock, restTemplateMock, Arrays.asList(testServer), executor);
+  }
+
+  private void setModelsResponse(String response) {
+    when(restTemplateMock.exchange(eq(testHost + ModelListing.H2O_MODELS_PATH),
+        eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+            .thenReturn(new ResponseEntity<>(response, HttpStatus.OK));
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class CfMetadataCacheTest {
+
+  private static final long TEST_TTL = 1000;
+
+  private final AtomicLong testClock = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final CfMetadataCache.Loader testLoader = () -> "guid-" + loads.incrementAndGet();
+
+  @Test
+  public void get_valueCached_valueNotLoadedAgain() throws Exception {
+    // given
+    CfMetadataCache cache = new CfMetadataCache(TEST_TTL, testClock::get);
+
+    // when
+    String first = cache.get("key", testLoader);
+    String second = cache.get("key", testLoader);
+
+    // then
+    assertThat(second, equalTo(first));
+    assertThat(loads.get(), equalTo(1));
+    assertThat(cache.getStatistics().getHitRate(), equalTo(0.5));
+  }
+
+  @Test
+  public void get_valueExpired_valueLoadedAgain() throws Exception {
+    // given
+    CfMetadataCache cache = new CfMetadataCache(TEST_TTL, testClock::get);
+    cache.get("key", testLoader);
+
+    // when
+    testClock.addAndGet(TEST_TTL);
+    String value = cache.get("key", testLoader);
+
+    // then
+    assertThat(value, equalTo("guid-2"));
+    assertThat(cache.getStatistics().getEvictions(), equalTo(1L));
+  }
+
+  @Test
+  public void get_valueInvalidated_valueLoadedAgain() throws Exception {
+    // given
+    CfMetadataCache cache = new CfMetadataCache(TEST_TTL, testClock::get);
+    cache.get("key", testLoader);
+
+    // when
+    cache.invalidate("key");
+    String value = cache.get("key", testLoader);
+
+    // then
+    assertThat(value, equalTo("guid-2"));
+  }
+
+  @Test
+  public void get_emptyValueLoaded_valueNotCached() throws Exception {
+    // given
+    CfMetadataCache cache = new CfMetadataCache(TEST_TTL, testClock::get);
+
+    // when
+    cache.get("key", () -> "");
+    cache.get("key", testLoader);
+
+    // then
+    assertThat(loads.get(), equalTo(1));
+    assertThat(cache.getStatistics().getEntries(), equalTo(1L));
+  }
+
+  @Test
+  public void get_cachingDisabled_valueLoadedEveryTime() throws Exception {
+    // given
+    CfMetadataCache cache = new CfMetadataCache(0, testClock::get);
+
+    // when
+    cache.get("key", testLoader);
+    cache.get("key", testLoader);
+
+    // then
+    assertThat(loads.get(), equalTo(2));
+  }
+}
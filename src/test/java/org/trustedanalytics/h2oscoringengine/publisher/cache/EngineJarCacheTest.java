@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EngineJarCacheTest {
+
+  private static final long TEST_MAX_SIZE = 100;
+
+  private Path cacheDir;
+  private Path workDir;
+  private Path testEngineJar;
+
+  @Before
+  public void setUp() throws IOException {
+    this.cacheDir = Files.createTempDirectory("h2o-publisher-test-cache");
+    this.workDir = Files.createTempDirectory("h2o-publisher-test-work");
+    this.testEngineJar = testFile("engine.jar", 40);
+  }
+
+  @Test
+  public void get_entryNotCached_emptyReturnedAndMissCounted() throws Exception {
+    // given
+    EngineJarCache cache = new EngineJarCache(cacheDir, TEST_MAX_SIZE);
+
+    // when
+    Optional<Path> result = cache.get("some-key", workDir.resolve("result.jar"));
+
+    // then
+    assertThat(result.isPresent(), is(false));
+    assertThat(cache.getStatistics().getMisses(), equalTo(1L));
+  }
+
+  @Test
+  public void get_entryCached_copyOfEngineReturnedAndHitCounted() throws Exception {
+    // given
+    EngineJarCache cache = new EngineJarCache(cacheDir, TEST_MAX_SIZE);
+    cache.put("some-key", testEngineJar);
+
+    // when
+    Optional<Path> result = cache.get("some-key", workDir.resolve("result.jar"));
+
+    // then
+    assertThat(result.isPresent(), is(true));
+    assertThat(Files.readAllBytes(result.get()), equalTo(Files.readAllBytes(testEngineJar)));
+    assertThat(cache.getStatistics().getHits(), equalTo(1L));
+  }
+
+  @Test
+  public void put_sizeLimitExceeded_leastRecentlyUsedEntryEvicted() throws Exception {
+    // given
+    EngineJarCache cache = new EngineJarCache(cacheDir, TEST_MAX_SIZE);
+    cache.put("first", testEngineJar);
+    cache.put("second", testEngineJar);
+    cache.get("first", workDir.resolve("result.jar"));
+
+    // when
+    cache.put("third", testEngineJar);
+
+    // then
+    assertThat(cache.get("first", workDir.resolve("first.jar")).isPresent(), is(true));
+    assertThat(cache.get("second", workDir.resolve("second.jar")).isPresent(), is(false));
+    assertThat(cache.getStatistics().getEvictions(), equalTo(1L));
+    assertThat(cache.getStatistics().getSizeBytes(), equalTo(80L));
+  }
+
+  @Test
+  public void put_engineLargerThanCache_engineNotCached() throws Exception {
+    // given
+    EngineJarCache cache = new EngineJarCache(cacheDir, TEST_MAX_SIZE);
+
+    // when
+    cache.put("some-key", testFile("big.jar", 101));
+
+    // then
+    assertThat(cache.getStatistics().getEntries(), equalTo(0L));
+  }
+
+  @Test
+  public void engineJarCache_existingEntriesLoadedFromDirectory() throws Exception {
+    // given
+    new EngineJarCache(cacheDir, TEST_MAX_SIZE).put("some-key", testEngineJar);
+
+    // when
+    EngineJarCache cache = new EngineJarCache(cacheDir, TEST_MAX_SIZE);
+
+    // then
+    assertThat(cache.get("some-key", workDir.resolve("result.jar")).isPresent(), is(true));
+  }
+
+  @Test
+  public void computeKey_differentModelHashes_differentKeysReturned() throws Exception {
+    // given
+    Path lib = testFile("genmodel.jar", 10);
+    String firstModelHash = DigestUtils.sha256Hex("class A {}");
+    String secondModelHash = DigestUtils.sha256Hex("class B {}");
+
+    // when
+    String firstKey = EngineJarCache.computeKey(firstModelHash, lib, "base-0.5.1");
+    String secondKey = EngineJarCache.computeKey(secondModelHash, lib, "base-0.5.1");
+
+    // then
+    assertThat(firstKey, not(equalTo(secondKey)));
+    assertThat(firstKey, equalTo(EngineJarCache.computeKey(firstModelHash, lib, "base-0.5.1")));
+  }
+
+  @Test
+  public void computeKey_differentGenmodelLibs_differentKeysReturned() throws Exception {
+    // given
+    String modelHash = DigestUtils.sha256Hex("class A {}");
+    Path firstLib = testFile("first-genmodel.jar", 10);
+    Path secondLib = testFile("second-genmodel.jar", 20);
+
+    // when
+    String firstKey = EngineJarCache.computeKey(modelHash, firstLib, "base-0.5.1");
+    String secondKey = EngineJarCache.computeKey(modelHash, secondLib, "base-0.5.1");
+
+    // then
+    assertThat(firstKey, not(equalTo(secondKey)));
+  }
+
+  @Test
+  public void computeKey_differentEngineBaseVersions_differentKeysReturned() throws Exception {
+    // given
+    Path lib = testFile("genmodel.jar", 10);
+    String modelHash = DigestUtils.sha256Hex("class A {}");
+
+    // when
+    String firstKey = EngineJarCache.computeKey(modelHash, lib, "base-0.5.0");
+    String secondKey = EngineJarCache.computeKey(modelHash, lib, "base-0.5.1");
+
+    // then
+    assertThat(firstKey, not(equalTo(secondKey)));
+  }
+
+  private Path testFile(String name, int size) throws IOException {
+    return Files.write(workDir.resolve(name), new byte[size]);
+  }
+}
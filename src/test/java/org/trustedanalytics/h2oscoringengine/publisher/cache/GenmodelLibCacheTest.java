@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
+
+public class GenmodelLibCacheTest {
+
+  private final String testLibResourcePath = "/3/h2o-genmodel.jar";
+  private final String testHost = "http://h2o-host";
+  private final String aboutResponse =
+      "{\"entries\":[{\"name\":\"Build git branch\",\"value\":\"master\"},"
+          + "{\"name\":\"" + GenmodelLibCache.H2O_VERSION_ENTRY_NAME + "\",\"value\":\"3.8.2.3\"}]}";
+  private final String upgradedAboutResponse = aboutResponse.replace("3.8.2.3", "3.8.2.6");
+
+  private Path cacheDir;
+  private FilesDownloader downloaderMock;
+
+  @Before
+  public void setUp() throws IOException {
+    this.cacheDir = Files.createTempDirectory("h2o-publisher-test-genmodel");
+    this.downloaderMock = mock(FilesDownloader.class);
+    when(downloaderMock.getServerUrl()).thenReturn(testHost);
+    when(downloaderMock.downloadAsString(GenmodelLibCache.H2O_SERVER_ABOUT_PATH))
+        .thenReturn(aboutResponse);
+    when(downloaderMock.download(eq(testLibResourcePath), any()))
+        .thenAnswer(invocation -> Files.write((Path) invocation.getArguments()[1], new byte[10]));
+  }
+
+  @Test
+  public void getLibrary_firstRequest_libraryDownloaded() throws Exception {
+    // given
+    GenmodelLibCache cache = new GenmodelLibCache(cacheDir);
+
+    // when
+    Optional<Path> library = cache.getLibrary(downloaderMock, testLibResourcePath);
+
+    // then
+    assertThat(library.isPresent(), is(true));
+    assertThat(Files.exists(library.get()), is(true));
+    assertThat(cache.getStatistics().getMisses(), equalTo(1L));
+  }
+
+  @Test
+  public void getLibrary_sameServerVersion_libraryDownloadedOnce() throws Exception {
+    // given
+    GenmodelLibCache cache = new GenmodelLibCache(cacheDir);
+
+    // when
+    Path first = cache.getLibrary(downloaderMock, testLibResourcePath).get();
+    Path second = cache.getLibrary(downloaderMock, testLibResourcePath).get();
+
+    // then
+    assertThat(second, equalTo(first));
+    verify(downloaderMock, times(1)).download(eq(testLibResourcePath), any());
+    assertThat(cache.getStatistics().getHits(), equalTo(1L));
+  }
+
+  @Test
+  public void getLibrary_serverUpgraded_newLibraryDownloaded() throws Exception {
+    // given
+    GenmodelLibCache cache = new GenmodelLibCache(cacheDir);
+    Path beforeUpgrade = cache.getLibrary(downloaderMock, testLibResourcePath).get();
+
+    // when
+    when(downloaderMock.downloadAsString(GenmodelLibCache.H2O_SERVER_ABOUT_PATH))
+        .thenReturn(upgradedAboutResponse);
+    Path afterUpgrade = cache.getLibrary(downloaderMock, testLibResourcePath).get();
+
+    // then
+    assertThat(afterUpgrade, not(equalTo(beforeUpgrade)));
+    verify(downloaderMock, times(2)).download(eq(testLibResourcePath), any());
+  }
+
+  @Test
+  public void getLibrary_libraryCachedByPreviousInstance_libraryNotDownloaded() throws Exception {
+    // given
+    new GenmodelLibCache(cacheDir).getLibrary(downloaderMock, testLibResourcePath);
+    GenmodelLibCache cache = new GenmodelLibCache(cacheDir);
+
+    // when
+    cache.getLibrary(downloaderMock, testLibResourcePath);
+
+    // then
+    verify(downloaderMock, times(1)).download(eq(testLibResourcePath), any());
+  }
+
+  @Test
+  public void prewarm_twoServers_downloadOfEachServerSubmittedToExecutor() throws Exception {
+    // given
+    GenmodelLibCache cache = new GenmodelLibCache(cacheDir);
+    Executor executorMock = mock(Executor.class);
+    List<BasicAuthServerCredentials> servers =
+        Arrays.asList(new BasicAuthServerCredentials(testHost, "some-user", "some-password"),
+            new BasicAuthServerCredentials("http://other-host", "some-user", "some-password"));
+
+    // when
+    cache.prewarm(servers, mock(RestTemplate.class), testLibResourcePath, executorMock);
+
+    // then
+    verify(executorMock, times(2)).execute(any(Runnable.class));
+    assertThat(cache.getStatistics().getEntries(), equalTo(0L));
+  }
+
+  @Test
+  public void getLibrary_serverVersionUnknown_emptyReturned() throws Exception {
+    // given
+    GenmodelLibCache cache = new GenmodelLibCache(cacheDir);
+
+    // when
+    when(downloaderMock.downloadAsString(GenmodelLibCache.H2O_SERVER_ABOUT_PATH))
+        .thenThrow(new IOException());
+    Optional<Path> library = cache.getLibrary(downloaderMock, testLibResourcePath);
+
+    // then
+    assertThat(library.isPresent(), is(false));
+    verify(downloaderMock, never()).download(any(), any());
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SPACE_APPS_ENDPOINT_TEMPLATE;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.SPACE_APP_EVENTS_ENDPOINT_TEMPLATE;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
+
+public class SpaceAppIndexTest {
+
+  private static final long TEST_REFRESH_INTERVAL = 1000;
+
+  private final String testCfApi = "http://cf-api";
+  private final String testSpaceGuid = "space-guid";
+  private final String latestEventTimestamp = "2016-05-10T10:00:00Z";
+  private final String latestEvent = "{\"next_url\":null,\"resources\":[{\"entity\":"
+      + "{\"type\":\"audit.app.create\",\"timestamp\":\"" + latestEventTimestamp + "\"}}]}";
+  private final String secondPagePath = "/v2/spaces/space-guid/apps?page=2&results-per-page=100";
+  private final String firstPage = "{\"next_url\":\"" + secondPagePath + "\",\"resources\":["
+      + "{\"entity\":{\"name\":\"first-app\"}},{\"entity\":{\"name\":\"second-app\"}}]}";
+  private final String secondPage =
+      "{\"next_url\":null,\"resources\":[{\"entity\":{\"name\":\"third-app\"}}]}";
+  private final String noEvents = "{\"next_url\":null,\"resources\":[]}";
+
+  private final AtomicLong testClock = new AtomicLong();
+  private RestTemplate restTemplateMock;
+  private SpaceAppIndex index;
+
+  @Before
+  public void setUp() {
+    this.restTemplateMock = mock(RestTemplate.class);
+    when(restTemplateMock.exchange(testCfApi + SPACE_APP_EVENTS_ENDPOINT_TEMPLATE, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, testSpaceGuid,
+        SpaceAppIndex.APP_EVENT_TYPES, SpaceAppIndex.NO_EVENTS_TIMESTAMP, "desc", 1))
+            .thenReturn(new ResponseEntity<>(latestEvent, HttpStatus.OK));
+    when(restTemplateMock.exchange(testCfApi + SPACE_APPS_ENDPOINT_TEMPLATE, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, testSpaceGuid,
+        SpaceAppIndex.PAGE_SIZE)).thenReturn(new ResponseEntity<>(firstPage, HttpStatus.OK));
+    when(restTemplateMock.exchange(URI.create(testCfApi + secondPagePath), HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class))
+            .thenReturn(new ResponseEntity<>(secondPage, HttpStatus.OK));
+    this.index = new SpaceAppIndex(testCfApi, restTemplateMock, testSpaceGuid,
+        TEST_REFRESH_INTERVAL, testClock::get);
+  }
+
+  @Test
+  public void isKnownMissing_indexNotLoaded_falseReturned() throws Exception {
+    // given
+    // when
+    // then
+    assertThat(index.isKnownMissing(testSpaceGuid, "new-app"), is(false));
+  }
+
+  @Test
+  public void isKnownMissing_appNotListedOnAnyPage_trueReturned() throws Exception {
+    // given
+    index.refresh();
+
+    // when
+    // then
+    assertThat(index.isKnownMissing(testSpaceGuid, "new-app"), is(true));
+    assertThat(index.isKnownMissing(testSpaceGuid, "first-app"), is(false));
+    assertThat(index.isKnownMissing(testSpaceGuid, "third-app"), is(false));
+  }
+
+  @Test
+  public void isKnownMissing_appAddedAfterRefresh_falseReturned() throws Exception {
+    // given
+    index.refresh();
+
+    // when
+    index.add("new-app");
+
+    // then
+    assertThat(index.isKnownMissing(testSpaceGuid, "new-app"), is(false));
+  }
+
+  @Test
+  public void isKnownMissing_indexOutdated_falseReturned() throws Exception {
+    // given
+    index.refresh();
+
+    // when
+    testClock.addAndGet(10 * TEST_REFRESH_INTERVAL);
+
+    // then
+    assertThat(index.isKnownMissing(testSpaceGuid, "new-app"), is(false));
+  }
+
+  @Test
+  public void isKnownMissing_otherSpace_falseReturned() throws Exception {
+    // given
+    index.refresh();
+
+    // when
+    // then
+    assertThat(index.isKnownMissing("other-space-guid", "new-app"), is(false));
+  }
+
+  @Test
+  public void refresh_indexLoaded_onlyAppEventsSinceLatestOneApplied() throws Exception {
+    // given
+    index.refresh();
+    String events = "{\"next_url\":null,\"resources\":["
+        + "{\"entity\":{\"type\":\"audit.app.create\",\"actee_name\":\"new-app\","
+        + "\"timestamp\":\"2016-05-10T10:00:01Z\"}},"
+        + "{\"entity\":{\"type\":\"audit.app.delete-request\",\"actee_name\":\"first-app\","
+        + "\"timestamp\":\"2016-05-10T10:00:02Z\"}}]}";
+    whenEventsRequestedSince(latestEventTimestamp, events);
+
+    // when
+    index.refresh();
+
+    // then
+    assertThat(index.isKnownMissing(testSpaceGuid, "new-app"), is(false));
+    assertThat(index.isKnownMissing(testSpaceGuid, "first-app"), is(true));
+    verify(restTemplateMock, times(1)).exchange(testCfApi + SPACE_APPS_ENDPOINT_TEMPLATE,
+        HttpMethod.GET, HttpCommunication.simpleJsonRequest(), String.class, testSpaceGuid,
+        SpaceAppIndex.PAGE_SIZE);
+  }
+
+  @Test
+  public void refresh_eventsApplied_nextRefreshStartsFromLatestAppliedEvent() throws Exception {
+    // given
+    index.refresh();
+    whenEventsRequestedSince(latestEventTimestamp, "{\"next_url\":null,\"resources\":["
+        + "{\"entity\":{\"type\":\"audit.app.create\",\"actee_name\":\"new-app\","
+        + "\"timestamp\":\"2016-05-10T10:00:01Z\"}}]}");
+    index.refresh();
+    whenEventsRequestedSince("2016-05-10T10:00:01Z", noEvents);
+
+    // when
+    index.refresh();
+
+    // then
+    verify(restTemplateMock).exchange(testCfApi + SPACE_APP_EVENTS_ENDPOINT_TEMPLATE,
+        HttpMethod.GET, HttpCommunication.simpleJsonRequest(), String.class, testSpaceGuid,
+        SpaceAppIndex.APP_EVENT_TYPES, "2016-05-10T10:00:01Z", "asc", SpaceAppIndex.PAGE_SIZE);
+  }
+
+  @Test
+  public void refresh_appRenamed_newNameIndexed() throws Exception {
+    // given
+    index.refresh();
+    whenEventsRequestedSince(latestEventTimestamp, "{\"next_url\":null,\"resources\":["
+        + "{\"entity\":{\"type\":\"audit.app.update\",\"actee_name\":\"first-app\","
+        + "\"timestamp\":\"2016-05-10T10:00:01Z\","
+        + "\"metadata\":{\"request\":{\"name\":\"renamed-app\"}}}}]}");
+
+    // when
+    index.refresh();
+
+    // then
+    assertThat(index.isKnownMissing(testSpaceGuid, "renamed-app"), is(false));
+  }
+
+  private void whenEventsRequestedSince(String timestamp, String events) {
+    when(restTemplateMock.exchange(testCfApi + SPACE_APP_EVENTS_ENDPOINT_TEMPLATE, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, testSpaceGuid,
+        SpaceAppIndex.APP_EVENT_TYPES, timestamp, "asc", SpaceAppIndex.PAGE_SIZE))
+            .thenReturn(new ResponseEntity<>(events, HttpStatus.OK));
+  }
+}
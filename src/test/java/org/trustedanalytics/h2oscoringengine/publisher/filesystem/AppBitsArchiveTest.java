@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AppBitsArchiveTest {
+
+  private final byte[] libContent = "library content".getBytes();
+  private final byte[] classContent = "class content".getBytes();
+
+  private Path workDir;
+  private Path testAppBits;
+
+  @Before
+  public void setUp() throws IOException {
+    this.workDir = Files.createTempDirectory("h2o-publisher-test-bits");
+    this.testAppBits = workDir.resolve("engine.jar");
+    try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(testAppBits))) {
+      jar.putNextEntry(new JarEntry("lib/"));
+      jar.closeEntry();
+      jar.putNextEntry(new JarEntry("lib/library.jar"));
+      jar.write(libContent);
+      jar.closeEntry();
+      jar.putNextEntry(new JarEntry("Model.class"));
+      jar.write(classContent);
+      jar.closeEntry();
+    }
+  }
+
+  @Test
+  public void getEntries_filesDescribedWithSha1AndSize() throws Exception {
+    // given
+    AppBitsArchive appBits = new AppBitsArchive(testAppBits);
+
+    // when
+    List<AppBitsEntry> entries = appBits.getEntries();
+
+    // then
+    assertThat(entries, contains(
+        new AppBitsEntry("lib/library.jar", DigestUtils.sha1Hex(libContent), libContent.length),
+        new AppBitsEntry("Model.class", DigestUtils.sha1Hex(classContent), classContent.length)));
+  }
+
+  @Test
+  public void getEntries_engineBaseJarGiven_filesDescribedWithSha1AndSize() throws Exception {
+    // given
+    Path testBaseJar = workDir.resolve("base.jar");
+    try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(testBaseJar))) {
+      jar.putNextEntry(new JarEntry("lib/library.jar"));
+      jar.write(libContent);
+      jar.closeEntry();
+      jar.putNextEntry(new JarEntry("Model.class"));
+      jar.write("other class content".getBytes());
+      jar.closeEntry();
+    }
+
+    // when
+    List<AppBitsEntry> entries;
+    try (EngineBaseJar baseJar = new EngineBaseJar(testBaseJar)) {
+      entries = new AppBitsArchive(testAppBits, baseJar).getEntries();
+    }
+
+    // then
+    assertThat(entries, contains(
+        new AppBitsEntry("lib/library.jar", DigestUtils.sha1Hex(libContent), libContent.length),
+        new AppBitsEntry("Model.class", DigestUtils.sha1Hex(classContent), classContent.length)));
+  }
+
+  @Test
+  public void copyWithout_excludedFilesSkipped() throws Exception {
+    // given
+    AppBitsArchive appBits = new AppBitsArchive(testAppBits);
+
+    // when
+    Path copy = appBits.copyWithout(Collections.singleton("lib/library.jar"),
+        workDir.resolve("partial.jar"));
+
+    // then
+    try (JarFile copiedJar = new JarFile(copy.toFile())) {
+      List<String> names = Collections.list(copiedJar.entries()).stream()
+          .map(JarEntry::getName).collect(Collectors.toList());
+      assertThat(names, contains("lib/", "Model.class"));
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class EngineBaseJarTest {
+
+  private Path workDir;
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() throws IOException {
+    this.workDir = Files.createTempDirectory("h2o-publisher-test-base");
+  }
+
+  @Test
+  public void engineBaseJar_resourceNotFound_exceptionThrown() throws Exception {
+    // then
+    thrown.expect(IOException.class);
+
+    // when
+    new EngineBaseJar("/sajfdk/dkgjfk.jar", workDir);
+  }
+
+  @Test
+  public void getEntries_entriesReturnedInFileOrder() throws Exception {
+    // given
+    Path testJar = workDir.resolve("base.jar");
+    try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(testJar))) {
+      for (String name : new String[] {"META-INF/MANIFEST.MF", "b/Second.class", "a/Third.class"}) {
+        jar.putNextEntry(new JarEntry(name));
+        jar.write(name.getBytes());
+        jar.closeEntry();
+      }
+    }
+
+    // when
+    List<String> entryNames;
+    try (EngineBaseJar baseJar = new EngineBaseJar(testJar)) {
+      entryNames =
+          baseJar.getEntries().stream().map(e -> e.getName()).collect(Collectors.toList());
+    }
+
+    // then
+    assertThat(entryNames, contains("META-INF/MANIFEST.MF", "b/Second.class", "a/Third.class"));
+  }
+
+  @Test
+  public void findAppBitsEntry_entryCopiedFromBaseJar_descriptionReturned() throws Exception {
+    // given
+    byte[] content = "class content".getBytes();
+    Path testJar = testJar("base.jar", "a/First.class", content);
+    Path engineJar = testJar("engine.jar", "a/First.class", content);
+
+    // when
+    Optional<AppBitsEntry> description;
+    try (EngineBaseJar baseJar = new EngineBaseJar(testJar);
+        ZipFile engine = new ZipFile(engineJar.toFile())) {
+      description = baseJar.findAppBitsEntry(engine.getEntry("a/First.class"));
+    }
+
+    // then
+    assertThat(description, equalTo(Optional.of(
+        new AppBitsEntry("a/First.class", DigestUtils.sha1Hex(content), content.length))));
+  }
+
+  @Test
+  public void findAppBitsEntry_entryContentChanged_emptyReturned() throws Exception {
+    // given
+    Path testJar = testJar("base.jar", "a/First.class", "class content".getBytes());
+    Path engineJar = testJar("engine.jar", "a/First.class", "changed content".getBytes());
+
+    // when
+    Optional<AppBitsEntry> description;
+    try (EngineBaseJar baseJar = new EngineBaseJar(testJar);
+        ZipFile engine = new ZipFile(engineJar.toFile())) {
+      description = baseJar.findAppBitsEntry(engine.getEntry("a/First.class"));
+    }
+
+    // then
+    assertThat(description, equalTo(Optional.empty()));
+  }
+
+  private Path testJar(String fileName, String entryName, byte[] content) throws IOException {
+    Path testJar = workDir.resolve(fileName);
+    try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(testJar))) {
+      jar.putNextEntry(new JarEntry(entryName));
+      jar.write(content);
+      jar.closeEntry();
+    }
+    return testJar;
+  }
+}
@@ -16,21 +16,26 @@ package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.function.Consumer;
 
 import org.junit.Before;
 import org.junit.Test;
 
 public class PublisherWorkingDirectoryTest {
 
-  private static String TEST_DIR_NAME = "kajshfskjhf";
+  private static String TEST_MODEL_NAME = "some-model";
   private DirectoryOperations dirOperationsMock;
+  private Consumer<PublisherWorkingDirectory> releaseHandlerMock;
+  private Path parentDir;
   private Path expectedMainDir;
   private String expectedSubDirForClasses;
   private String expectedSubDirForH2oResources;
@@ -38,16 +43,20 @@ public class PublisherWorkingDirectoryTest {
   private Path expectedDirForH2oResources;
 
   @Before
+  @SuppressWarnings("unchecked")
   public void setUp() throws IOException {
     // given
-    this.expectedMainDir = Paths.get(PublisherWorkingDirectory.SYSTEM_TMP,
-        PublisherWorkingDirectory.PUBLISHER_PARENT_DIRECTORY_NAME, TEST_DIR_NAME);
+    this.parentDir = Paths.get("some-parent");
+    this.expectedMainDir = parentDir.resolve("some-model-123");
     this.expectedSubDirForClasses = PublisherWorkingDirectory.COMPILED_MODEL_SUBDIR_NAME;
     this.expectedSubDirForH2oResources = PublisherWorkingDirectory.H2O_RESOURCES_SUBDIR_NAME;
     this.expectedDirForClasses = expectedMainDir.resolve(expectedSubDirForClasses);
     this.expectedDirForH2oResources = expectedMainDir.resolve(expectedSubDirForH2oResources);
 
     this.dirOperationsMock = mock(FsDirectoryOperations.class);
+    this.releaseHandlerMock = mock(Consumer.class);
+    when(dirOperationsMock.createUniqueDirectory(parentDir, TEST_MODEL_NAME + "-"))
+        .thenReturn(expectedMainDir);
     when(dirOperationsMock.createSubdirectory(expectedMainDir, expectedSubDirForClasses))
         .thenReturn(expectedMainDir.resolve(expectedSubDirForClasses));
     when(dirOperationsMock.createSubdirectory(expectedMainDir, expectedSubDirForH2oResources))
@@ -55,27 +64,28 @@ public class PublisherWorkingDirectoryTest {
   }
 
   @Test
-  public void publisherWorkingDirectory_createsMainDir() throws Exception {
+  public void createUnique_createsMainDir() throws Exception {
     // when
-    new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
 
     // then
-    verify(dirOperationsMock).createEmptyDirectoryTree(expectedMainDir);
+    verify(dirOperationsMock).createUniqueDirectory(parentDir, TEST_MODEL_NAME + "-");
+    assertThat(workingDirectory.getPath(), is(equalTo(expectedMainDir)));
   }
 
   @Test
-  public void publisherWorkingDirectory_createsDirForClasses() throws IOException {
+  public void createUnique_createsDirForClasses() throws IOException {
     // when
-    new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    createTestDirectory();
 
     // then
     verify(dirOperationsMock).createSubdirectory(expectedMainDir, expectedSubDirForClasses);
   }
 
   @Test
-  public void publisherWorkingDirectory_createsDirForH2oResources() throws IOException {
+  public void createUnique_createsDirForH2oResources() throws IOException {
     // when
-    new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    createTestDirectory();
 
     // then
     verify(dirOperationsMock).createSubdirectory(expectedMainDir, expectedSubDirForH2oResources);
@@ -84,8 +94,7 @@ public class PublisherWorkingDirectoryTest {
   @Test
   public void getModelJarPath_returnsMainDirAsDirForJar() throws IOException {
     // when
-    PublisherWorkingDirectory workingDirectory =
-        new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
     Path modelJarPath = workingDirectory.getModelJarPath();
 
     // then
@@ -95,8 +104,7 @@ public class PublisherWorkingDirectoryTest {
   @Test
   public void getScoringEngineJarDir_returnsMainDirAsDirForScoringEngine() throws IOException {
     // when
-    PublisherWorkingDirectory workingDirectory =
-        new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
     Path engineJarDir = workingDirectory.getScoringEngineJarDir();
 
     // then
@@ -106,8 +114,7 @@ public class PublisherWorkingDirectoryTest {
   @Test
   public void getCompiledModelPath_returnsExpectedCompiledModelPath() throws IOException {
     // when
-    PublisherWorkingDirectory workingDirectory =
-        new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
     Path compiledModelPath = workingDirectory.getCompiledModelPath();
 
     // then
@@ -117,12 +124,71 @@ public class PublisherWorkingDirectoryTest {
   @Test
   public void getH2oResourcesPath_returnsExpectedH2oResourcesPath() throws IOException {
     // when
-    PublisherWorkingDirectory workingDirectory =
-        new PublisherWorkingDirectory(TEST_DIR_NAME, dirOperationsMock);
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
     Path h2oResourcesPath = workingDirectory.getH2oResourcesPath();
     
     //then
     assertThat(h2oResourcesPath, is(equalTo(expectedDirForH2oResources)));
   }
 
+  @Test
+  public void createUnique_modelNameWithUnsafeCharacters_uniqueDirWithSafePrefixCreated()
+      throws IOException {
+    // given
+    Path uniqueDir = parentDir.resolve("some_model-123");
+    when(dirOperationsMock.createUniqueDirectory(parentDir, "some_model-")).thenReturn(uniqueDir);
+
+    // when
+    PublisherWorkingDirectory workingDirectory = PublisherWorkingDirectory
+        .createUnique(parentDir, "some/model", dirOperationsMock, releaseHandlerMock);
+
+    // then
+    assertThat(workingDirectory.getPath(), is(equalTo(uniqueDir)));
+    assertThat(workingDirectory.getScoringEngineJarDir(), is(equalTo(uniqueDir)));
+    verify(dirOperationsMock).createSubdirectory(uniqueDir, expectedSubDirForClasses);
+    verify(dirOperationsMock).createSubdirectory(uniqueDir, expectedSubDirForH2oResources);
+  }
+
+  @Test
+  public void release_retainedReferenceLeft_releaseHandlerNotCalled() throws IOException {
+    // given
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
+    workingDirectory.retain();
+
+    // when
+    workingDirectory.release();
+
+    // then
+    verify(releaseHandlerMock, never()).accept(any());
+  }
+
+  @Test
+  public void release_lastReference_releaseHandlerCalled() throws IOException {
+    // given
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
+
+    // when
+    workingDirectory.release();
+
+    // then
+    verify(releaseHandlerMock).accept(workingDirectory);
+  }
+
+  @Test
+  public void retain_lastReferenceReleased_falseReturned() throws IOException {
+    // given
+    PublisherWorkingDirectory workingDirectory = createTestDirectory();
+    workingDirectory.release();
+
+    // when
+    boolean retained = workingDirectory.retain();
+
+    // then
+    assertThat(retained, is(false));
+  }
+
+  private PublisherWorkingDirectory createTestDirectory() throws IOException {
+    return PublisherWorkingDirectory.createUnique(parentDir, TEST_MODEL_NAME, dirOperationsMock,
+        releaseHandlerMock);
+  }
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class UpdatableJarTest {
+
+  private final String compressedEntryName = "org/example/Engine.class";
+  private final String storedEntryName = "lib/dependency.jar";
+  private final byte[] compressedEntryContent = new byte[10000];
+  private final byte[] storedEntryContent = "stored content".getBytes();
+
+  private Path workDir;
+  private Path testBaseJar;
+
+  @Before
+  public void setUp() throws IOException {
+    this.workDir = Files.createTempDirectory("h2o-publisher-test-jar");
+    this.testBaseJar = workDir.resolve("base.jar");
+
+    try (JarOutputStream baseJar = new JarOutputStream(Files.newOutputStream(testBaseJar))) {
+      baseJar.putNextEntry(new JarEntry(compressedEntryName));
+      baseJar.write(compressedEntryContent);
+      baseJar.closeEntry();
+
+      JarEntry storedEntry = new JarEntry(storedEntryName);
+      storedEntry.setMethod(ZipEntry.STORED);
+      storedEntry.setSize(storedEntryContent.length);
+      storedEntry.setCrc(crc32(storedEntryContent));
+      baseJar.putNextEntry(storedEntry);
+      baseJar.write(storedEntryContent);
+      baseJar.closeEntry();
+    }
+  }
+
+  @Test
+  public void addRawJarContent_entriesCopiedWithTheirCompression() throws Exception {
+    // given
+    UpdatableJar engineJar = new UpdatableJar("engine", workDir);
+
+    // when
+    try (EngineBaseJar baseJar = new EngineBaseJar(testBaseJar)) {
+      engineJar.addRawJarContent(baseJar).close();
+    }
+
+    // then
+    try (JarFile base = new JarFile(testBaseJar.toFile());
+        JarFile result = new JarFile(engineJar.getJarPath().toFile())) {
+      assertEntryCopied(base, result, compressedEntryName, compressedEntryContent);
+      assertEntryCopied(base, result, storedEntryName, storedEntryContent);
+    }
+  }
+
+  @Test
+  public void addUncompressedLibJar_afterRawJarContent_libStoredInLibDir() throws Exception {
+    // given
+    UpdatableJar engineJar = new UpdatableJar("engine", workDir);
+    Path modelJar = Files.write(workDir.resolve("model.jar"), storedEntryContent);
+
+    // when
+    try (EngineBaseJar baseJar = new EngineBaseJar(testBaseJar)) {
+      engineJar.addRawJarContent(baseJar).addUncompressedLibJar(modelJar);
+    }
+
+    // then
+    try (JarFile result = new JarFile(engineJar.getJarPath().toFile())) {
+      JarEntry modelEntry = result.getJarEntry("lib/model.jar");
+      assertThat(modelEntry.getMethod(), equalTo(ZipEntry.STORED));
+      assertThat(modelEntry.getCrc(), equalTo(crc32(storedEntryContent)));
+      assertThat(ByteStreams.toByteArray(result.getInputStream(modelEntry)),
+          equalTo(storedEntryContent));
+    }
+  }
+
+  private void assertEntryCopied(JarFile base, JarFile result, String name, byte[] content)
+      throws IOException {
+    JarEntry baseEntry = base.getJarEntry(name);
+    JarEntry copiedEntry = result.getJarEntry(name);
+
+    assertThat(copiedEntry, notNullValue());
+    assertThat(copiedEntry.getMethod(), equalTo(baseEntry.getMethod()));
+    assertThat(copiedEntry.getCompressedSize(), equalTo(baseEntry.getCompressedSize()));
+    assertThat(copiedEntry.getCrc(), equalTo(baseEntry.getCrc()));
+    assertThat(ByteStreams.toByteArray(result.getInputStream(copiedEntry)), equalTo(content));
+  }
+
+  private long crc32(byte[] content) {
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    return crc.getValue();
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.filesystem;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkingDirectoriesTest {
+
+  private static final long TEST_RETENTION_MS = 1000;
+
+  private final Path parentDir = Paths.get("some-parent");
+  private final Path firstDir = parentDir.resolve("some-model-1");
+  private final Path secondDir = parentDir.resolve("some-model-2");
+  private final AtomicLong clock = new AtomicLong();
+  private DirectoryOperations dirOperationsMock;
+
+  @Before
+  public void setUp() throws IOException {
+    this.dirOperationsMock = mock(DirectoryOperations.class);
+    when(dirOperationsMock.createUniqueDirectory(parentDir, "some-model-"))
+        .thenReturn(firstDir, secondDir);
+  }
+
+  @Test
+  public void create_sameModelTwice_differentDirectoriesReturned() throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+
+    // when
+    PublisherWorkingDirectory first = directories.create("some-model");
+    PublisherWorkingDirectory second = directories.create("some-model");
+
+    // then
+    assertThat(first.getPath(), not(equalTo(second.getPath())));
+  }
+
+  @Test
+  public void create_lastReferenceReleased_directoryDeleted() throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    PublisherWorkingDirectory workingDir = directories.create("some-model");
+    workingDir.retain();
+
+    // when
+    workingDir.release();
+    workingDir.release();
+
+    // then
+    verify(dirOperationsMock).deleteDirectoryTree(firstDir);
+    assertThat(directories.ownedDirectories(), equalTo(0));
+  }
+
+  @Test
+  public void create_referenceStillHeld_directoryNotDeleted() throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    PublisherWorkingDirectory workingDir = directories.create("some-model");
+    workingDir.retain();
+
+    // when
+    workingDir.release();
+
+    // then
+    verify(dirOperationsMock, never()).deleteDirectoryTree(any());
+    assertThat(directories.ownedDirectories(), equalTo(1));
+  }
+
+  @Test
+  public void create_deletionOfReleasedDirectoryFailed_directoryDeletedOnceExpired()
+      throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    doThrow(new IOException()).doNothing().when(dirOperationsMock).deleteDirectoryTree(firstDir);
+    directories.create("some-model").release();
+    clock.set(TEST_RETENTION_MS);
+
+    // when
+    directories.deleteExpired();
+
+    // then
+    verify(dirOperationsMock, times(2)).deleteDirectoryTree(firstDir);
+    assertThat(directories.ownedDirectories(), equalTo(0));
+  }
+
+  @Test
+  public void deleteExpired_onlyDirectoriesOlderThanRetentionDeleted() throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    doThrow(new IOException()).doNothing().when(dirOperationsMock).deleteDirectoryTree(any());
+    directories.create("some-model").release();
+    clock.set(TEST_RETENTION_MS);
+    directories.create("some-model").release();
+
+    // when
+    directories.deleteExpired();
+
+    // then
+    verify(dirOperationsMock, times(2)).deleteDirectoryTree(firstDir);
+    verify(dirOperationsMock, times(1)).deleteDirectoryTree(secondDir);
+    assertThat(directories.ownedDirectories(), equalTo(1));
+  }
+
+  @Test
+  public void deleteExpired_expiredDirectoryStillReferenced_directoryNotDeleted()
+      throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    PublisherWorkingDirectory workingDir = directories.create("some-model");
+    clock.set(TEST_RETENTION_MS);
+
+    // when
+    directories.deleteExpired();
+
+    // then
+    verify(dirOperationsMock, never()).deleteDirectoryTree(any());
+    assertThat(directories.ownedDirectories(), equalTo(1));
+    assertThat(workingDir.retain(), equalTo(true));
+  }
+
+  @Test
+  public void deleteExpired_expiredDirectoryLeaked_directoryDeleted() throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    directories.create("some-model");
+    clock.set(TEST_RETENTION_MS);
+
+    // when
+    for (int attempt = 0; attempt < 50 && directories.ownedDirectories() > 0; attempt++) {
+      System.gc();
+      directories.deleteExpired();
+    }
+
+    // then
+    verify(dirOperationsMock).deleteDirectoryTree(firstDir);
+    assertThat(directories.ownedDirectories(), equalTo(0));
+  }
+
+  @Test
+  public void deleteExpired_deletionFailed_directoryDeletedOnNextCleanup() throws Exception {
+    // given
+    WorkingDirectories directories = testDirectories();
+    doThrow(new IOException()).when(dirOperationsMock).deleteDirectoryTree(firstDir);
+    directories.create("some-model").release();
+    clock.set(TEST_RETENTION_MS);
+
+    // when
+    directories.deleteExpired();
+
+    // then
+    verify(dirOperationsMock, times(2)).deleteDirectoryTree(firstDir);
+    assertThat(directories.ownedDirectories(), equalTo(1));
+  }
+
+  @Test
+  public void deleteExpired_retentionDisabled_nothingDeleted() throws Exception {
+    // given
+    WorkingDirectories directories =
+        new WorkingDirectories(parentDir, dirOperationsMock, 0, clock::get);
+    doThrow(new IOException()).when(dirOperationsMock).deleteDirectoryTree(firstDir);
+    directories.create("some-model").release();
+    clock.set(TEST_RETENTION_MS);
+
+    // when
+    directories.deleteExpired();
+
+    // then
+    verify(dirOperationsMock, times(1)).deleteDirectoryTree(firstDir);
+    assertThat(directories.ownedDirectories(), equalTo(1));
+  }
+
+  private WorkingDirectories testDirectories() {
+    return new WorkingDirectories(parentDir, dirOperationsMock, TEST_RETENTION_MS, clock::get);
+  }
+}
@@ -15,10 +15,13 @@ package org.trustedanalytics.h2oscoringengine.publisher.http;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -28,10 +31,17 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
 public class FilesDownloaderTest {
@@ -39,10 +49,11 @@ public class FilesDownloaderTest {
   private final BasicAuthServerCredentials testCredentials =
       new BasicAuthServerCredentials("somehost", "username", "password");
   private final String testResource = "/skjfks/asf";
+  private final String testResourceUrl = testCredentials.getHost() + testResource;
   private Path testPath;
   private String testServerResponse = "Some server response";
   private final RestTemplate restTemplateMock = mock(RestTemplate.class);
-  private final ResponseEntity<byte[]> responseMock = mock(ResponseEntity.class);
+  private final ClientHttpResponse responseMock = mock(ClientHttpResponse.class);
 
   @Rule
   public final ExpectedException thrown = ExpectedException.none();
@@ -51,9 +62,10 @@ public class FilesDownloaderTest {
   public void setUp() throws IOException {
     this.testPath = Files.createTempFile("some", "file");
 
-    when(restTemplateMock.exchange(testCredentials.getHost() + testResource, HttpMethod.GET,
-        HttpCommunication.basicAuthRequest(testCredentials.getBasicAuthToken()), byte[].class))
-            .thenReturn(responseMock);
+    when(restTemplateMock.execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
+            .thenAnswer(invocation -> ((ResponseExtractor<?>) invocation.getArguments()[3])
+                .extractData(responseMock));
   }
 
   @Test
@@ -62,15 +74,52 @@ public class FilesDownloaderTest {
     FilesDownloader downloader = new FilesDownloader(testCredentials, restTemplateMock);
 
     // when
-    when(responseMock.getBody()).thenReturn(testServerResponse.getBytes());
+    when(responseMock.getBody())
+        .thenReturn(new ByteArrayInputStream(testServerResponse.getBytes()));
     downloader.download(testResource, testPath);
 
     // then
-    verify(restTemplateMock).exchange(testCredentials.getHost() + testResource, HttpMethod.GET,
-        HttpCommunication.basicAuthRequest(testCredentials.getBasicAuthToken()), byte[].class);
+    verify(restTemplateMock).execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(RequestCallback.class), any(ResponseExtractor.class));
     assertThat(new String(Files.readAllBytes(testPath)), equalTo(testServerResponse));
   }
 
+  @Test
+  public void download_resourceLargerThanBuffer_wholeResourceWritten() throws Exception {
+    // given
+    FilesDownloader downloader = new FilesDownloader(testCredentials, restTemplateMock);
+    byte[] largeResource = new byte[FilesDownloader.BUFFER_SIZE * 3 + 17];
+    largeResource[largeResource.length - 1] = 42;
+
+    // when
+    when(responseMock.getBody()).thenReturn(new ByteArrayInputStream(largeResource));
+    downloader.download(testResource, testPath);
+
+    // then
+    assertThat(Files.readAllBytes(testPath), equalTo(largeResource));
+  }
+
+  @Test
+  public void download_basicAuthHeaderAddedToRequest() throws Exception {
+    // given
+    FilesDownloader downloader = new FilesDownloader(testCredentials, restTemplateMock);
+    ArgumentCaptor<RequestCallback> callbackCaptor = ArgumentCaptor.forClass(RequestCallback.class);
+    ClientHttpRequest requestMock = mock(ClientHttpRequest.class);
+    HttpHeaders requestHeaders = new HttpHeaders();
+
+    // when
+    when(responseMock.getBody()).thenReturn(new ByteArrayInputStream(new byte[0]));
+    when(requestMock.getHeaders()).thenReturn(requestHeaders);
+    downloader.download(testResource, testPath);
+    verify(restTemplateMock).execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        callbackCaptor.capture(), any(ResponseExtractor.class));
+    callbackCaptor.getValue().doWithRequest(requestMock);
+
+    // then
+    assertThat(requestHeaders.getFirst(HttpCommunication.AUTHORIZATION_HEADER_NAME),
+        equalTo("Basic " + testCredentials.getBasicAuthToken()));
+  }
+
   @Test
   public void download_serverResponse401_excpetionWithProperMessageThrown() throws IOException {
     // given
@@ -79,8 +128,8 @@ public class FilesDownloaderTest {
         + new String(Base64.decodeBase64(testCredentials.getBasicAuthToken().getBytes())) + " failed";
 
     // when
-    when(restTemplateMock.exchange(testCredentials.getHost() + testResource, HttpMethod.GET,
-        HttpCommunication.basicAuthRequest(testCredentials.getBasicAuthToken()), byte[].class))
+    when(restTemplateMock.execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
             .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
 
     // then
@@ -96,8 +145,8 @@ public class FilesDownloaderTest {
     String expectedExceptionMessage = "Resource not found.";
 
     // when
-    when(restTemplateMock.exchange(testCredentials.getHost() + testResource, HttpMethod.GET,
-        HttpCommunication.basicAuthRequest(testCredentials.getBasicAuthToken()), byte[].class))
+    when(restTemplateMock.execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
             .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
 
     // then
@@ -114,8 +163,8 @@ public class FilesDownloaderTest {
     String expectedExceptionMessage = "Server response status: " + expectedErrorStatus;
 
     // when
-    when(restTemplateMock.exchange(testCredentials.getHost() + testResource, HttpMethod.GET,
-        HttpCommunication.basicAuthRequest(testCredentials.getBasicAuthToken()), byte[].class))
+    when(restTemplateMock.execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
             .thenThrow(new HttpClientErrorException(expectedErrorStatus));
 
     // then
@@ -124,4 +173,36 @@ public class FilesDownloaderTest {
     downloader.download(testResource, testPath);
   }
 
+  @Test
+  public void download_connectionBroken_ioExceptionThrown() throws IOException {
+    // given
+    FilesDownloader downloader = new FilesDownloader(testCredentials, restTemplateMock);
+
+    // when
+    when(restTemplateMock.execute(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(RequestCallback.class), any(ResponseExtractor.class)))
+            .thenThrow(new ResourceAccessException("Connection reset"));
+
+    // then
+    thrown.expect(IOException.class);
+    thrown.expectMessage("Connection reset");
+    downloader.download(testResource, testPath);
+  }
+
+  @Test
+  public void downloadAsString_connectionBroken_ioExceptionThrown() throws IOException {
+    // given
+    FilesDownloader downloader = new FilesDownloader(testCredentials, restTemplateMock);
+
+    // when
+    when(restTemplateMock.exchange(eq(testResourceUrl), eq(HttpMethod.GET),
+        any(HttpEntity.class), eq(String.class)))
+            .thenThrow(new ResourceAccessException("Connection reset"));
+
+    // then
+    thrown.expect(IOException.class);
+    thrown.expectMessage("Connection reset");
+    downloader.downloadAsString(testResource);
+  }
+
 }
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.http;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+
+public class RequestCoalescerTest {
+
+  private final RequestCoalescer<String, String, IOException> coalescer =
+      new RequestCoalescer<>(IOException::new);
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void execute_concurrentCallsForSameResource_requestExecutedOnce() throws Exception {
+    // given
+    FutureTask<String> concurrentCall =
+        new FutureTask<>(() -> coalescer.execute("resource", () -> "other result"));
+
+    // when
+    String result = coalescer.execute("resource", () -> {
+      executions.incrementAndGet();
+      joinWhileInFlight(concurrentCall);
+      return "result";
+    });
+
+    // then
+    assertThat(result, equalTo("result"));
+    assertThat(concurrentCall.get(), equalTo("result"));
+    assertThat(executions.get(), equalTo(1));
+  }
+
+  @Test
+  public void execute_sharedRequestFailed_exceptionPassedToAllCallers() throws Exception {
+    // given
+    FutureTask<String> concurrentCall =
+        new FutureTask<>(() -> coalescer.execute("resource", () -> "other result"));
+
+    // when
+    try {
+      coalescer.execute("resource", () -> {
+        joinWhileInFlight(concurrentCall);
+        throw new IOException("Server unavailable");
+      });
+    } catch (IOException e) {
+      // expected
+    }
+
+    // then
+    thrown.expect(ExecutionException.class);
+    thrown.expectCause(instanceOf(IOException.class));
+    concurrentCall.get();
+  }
+
+  @Test
+  public void execute_executingCallerInterrupted_requestExecutedAgainForWaitingCaller()
+      throws Exception {
+    // given
+    FutureTask<String> concurrentCall = new FutureTask<>(() -> coalescer.execute("resource", () -> {
+      executions.incrementAndGet();
+      return "other result";
+    }));
+
+    // when
+    try {
+      coalescer.execute("resource", () -> {
+        joinWhileInFlight(concurrentCall);
+        throw new InterruptedIOException("Download cancelled");
+      });
+    } catch (InterruptedIOException e) {
+      // expected
+    }
+
+    // then
+    assertThat(concurrentCall.get(), equalTo("other result"));
+    assertThat(executions.get(), equalTo(1));
+  }
+
+  @Test
+  public void execute_sharedBuildFailed_failureOfGivenTypePassedToWaitingCaller()
+      throws Exception {
+    // given
+    RequestCoalescer<String, String, EngineBuildingException> builds =
+        new RequestCoalescer<>(EngineBuildingException::new);
+    FutureTask<String> concurrentCall =
+        new FutureTask<>(() -> builds.execute("engine", () -> "other engine"));
+
+    // when
+    try {
+      builds.execute("engine", () -> {
+        joinWhileInFlight(concurrentCall);
+        throw new EngineBuildingException("Compilation failed");
+      });
+    } catch (EngineBuildingException e) {
+      // expected
+    }
+
+    // then
+    thrown.expect(ExecutionException.class);
+    thrown.expectCause(instanceOf(EngineBuildingException.class));
+    concurrentCall.get();
+  }
+
+  @Test
+  public void execute_previousRequestCompleted_newRequestExecuted() throws Exception {
+    // given
+    RequestCoalescer.Request<String, IOException> request = () -> "result-" + executions.incrementAndGet();
+
+    // when
+    coalescer.execute("resource", request);
+    String result = coalescer.execute("resource", request);
+
+    // then
+    assertThat(result, equalTo("result-2"));
+    assertThat(coalescer.inFlightRequests(), equalTo(0));
+  }
+
+  @Test
+  public void execute_differentResources_requestsNotShared() throws Exception {
+    // given
+    FutureTask<String> concurrentCall =
+        new FutureTask<>(() -> coalescer.execute("other-resource", () -> "other result"));
+
+    // when
+    coalescer.execute("resource", () -> {
+      concurrentCall.run();
+      return "result";
+    });
+
+    // then
+    assertThat(concurrentCall.get(), equalTo("other result"));
+  }
+
+  /**
+   * Starts given call in another thread and returns once it waits for the request in flight.
+   */
+  private void joinWhileInFlight(FutureTask<String> call) {
+    Thread caller = new Thread(call);
+    caller.start();
+    while (caller.getState() != Thread.State.WAITING && !call.isDone()) {
+      Thread.yield();
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.jobs;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.trustedanalytics.h2oscoringengine.publisher.BatchPublicationResult;
+import org.trustedanalytics.h2oscoringengine.publisher.BatchPublisher;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.Publisher;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.PublishRequest;
+import org.trustedanalytics.h2oscoringengine.publisher.steps.StepListener;
+
+public class PublicationJobsTest {
+
+  private final Publisher publisherMock = mock(Publisher.class);
+  private final BatchPublisher batchPublisherMock = mock(BatchPublisher.class);
+  private final PublishRequest testRequest = new PublishRequest();
+  private final PublishedEngine testEngine = new PublishedEngine();
+  private ExecutorService executor;
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() {
+    testRequest.setModelName("some-model");
+    executor = mock(ExecutorService.class);
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(executor).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void submit_publicationSucceeded_jobSucceededWithPublishedEngine() throws Exception {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 10);
+    when(publisherMock.publish(same(testRequest), any(StepListener.class))).thenReturn(testEngine);
+
+    // when
+    PublicationJob job = jobs.submit(testRequest);
+
+    // then
+    assertThat(job.getStatus(), equalTo(PublicationJob.Status.SUCCEEDED));
+    assertThat(job.getResult(), equalTo(testEngine));
+    assertThat(jobs.get(job.getId()).get(), equalTo(job));
+  }
+
+  @Test
+  public void submit_publicationFailed_jobFailedWithError() throws Exception {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 10);
+    when(publisherMock.publish(same(testRequest), any(StepListener.class)))
+        .thenThrow(new EngineBuildingException("some error"));
+
+    // when
+    PublicationJob job = jobs.submit(testRequest);
+
+    // then
+    assertThat(job.getStatus(), equalTo(PublicationJob.Status.FAILED));
+    assertThat(job.getError(), equalTo("some error"));
+  }
+
+  @Test
+  public void submit_publisherReportsSteps_stepDurationsRecorded() throws Exception {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 10);
+    when(publisherMock.publish(same(testRequest), any(StepListener.class)))
+        .thenAnswer(invocation -> {
+          StepListener listener = (StepListener) invocation.getArguments()[1];
+          listener.stepStarted("some-step");
+          listener.stepFinished("some-step", 42);
+          return testEngine;
+        });
+
+    // when
+    PublicationJob job = jobs.submit(testRequest);
+
+    // then
+    assertThat(job.getStepDurationsMs(), equalTo(Collections.singletonMap("some-step", 42L)));
+    assertThat(job.getCurrentSteps().isEmpty(), is(true));
+  }
+
+  @Test
+  public void submit_queueFull_exceptionThrownAndJobNotKept() throws Exception {
+    // given
+    ExecutorService fullExecutor = mock(ExecutorService.class);
+    doThrow(new RejectedExecutionException()).when(fullExecutor).execute(any(Runnable.class));
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, fullExecutor, 10);
+
+    // then
+    thrown.expect(RejectedExecutionException.class);
+
+    // when
+    jobs.submit(testRequest);
+  }
+
+  @Test
+  public void submit_retainedJobsLimitExceeded_oldestFinishedJobForgotten() throws Exception {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 1);
+    when(publisherMock.publish(same(testRequest), any(StepListener.class))).thenReturn(testEngine);
+    PublicationJob first = jobs.submit(testRequest);
+
+    // when
+    PublicationJob second = jobs.submit(testRequest);
+
+    // then
+    assertThat(jobs.get(first.getId()).isPresent(), is(false));
+    assertThat(jobs.get(second.getId()).isPresent(), is(true));
+  }
+
+  @Test
+  public void submit_retainedJobsLimitExceeded_queuedJobsKept() throws Exception {
+    // given
+    PublicationJobs jobs =
+        new PublicationJobs(publisherMock, batchPublisherMock, mock(ExecutorService.class), 1);
+    PublicationJob first = jobs.submit(testRequest);
+
+    // when
+    PublicationJob second = jobs.submit(testRequest);
+
+    // then
+    assertThat(jobs.get(first.getId()).isPresent(), is(true));
+    assertThat(jobs.get(second.getId()).isPresent(), is(true));
+  }
+
+  @Test
+  public void submitBatch_batchPublished_jobSucceededWithResultOfEachModel() throws Exception {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 10);
+    List<PublishRequest> requests = Collections.singletonList(testRequest);
+    List<BatchPublicationResult> results = Collections
+        .singletonList(new BatchPublicationResult("some-model", false, null, "some error", 10));
+    when(batchPublisherMock.publishAll(requests)).thenReturn(results);
+
+    // when
+    BatchPublicationJob job = jobs.submitBatch(requests);
+
+    // then
+    assertThat(job.getStatus(), equalTo(PublicationJob.Status.SUCCEEDED));
+    assertThat(job.getModelCount(), equalTo(1));
+    assertThat(job.getResults(), equalTo(results));
+    assertThat(jobs.getBatch(job.getId()).get(), equalTo(job));
+  }
+
+  @Test
+  public void submitBatch_jobNotStartedYet_jobQueuedAndBatchNotPublished() throws Exception {
+    // given
+    PublicationJobs jobs =
+        new PublicationJobs(publisherMock, batchPublisherMock, mock(ExecutorService.class), 10);
+
+    // when
+    BatchPublicationJob job = jobs.submitBatch(Collections.singletonList(testRequest));
+
+    // then
+    assertThat(job.getStatus(), equalTo(PublicationJob.Status.QUEUED));
+    assertThat(job.getResults(), nullValue());
+    verify(batchPublisherMock, never()).publishAll(any());
+  }
+
+  @Test
+  public void submitBatch_batchPublisherFailed_jobFailedWithError() throws Exception {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 10);
+    List<PublishRequest> requests = Collections.singletonList(testRequest);
+    when(batchPublisherMock.publishAll(requests)).thenThrow(new IllegalStateException("error"));
+
+    // when
+    BatchPublicationJob job = jobs.submitBatch(requests);
+
+    // then
+    assertThat(job.getStatus(), equalTo(PublicationJob.Status.FAILED));
+    assertThat(job.getError(), equalTo("error"));
+  }
+
+  @Test
+  public void submitBatch_queueFull_exceptionThrownAndJobNotKept() throws Exception {
+    // given
+    ExecutorService fullExecutor = mock(ExecutorService.class);
+    doThrow(new RejectedExecutionException()).when(fullExecutor).execute(any(Runnable.class));
+    PublicationJobs jobs =
+        new PublicationJobs(publisherMock, batchPublisherMock, fullExecutor, 10);
+
+    // then
+    thrown.expect(RejectedExecutionException.class);
+
+    // when
+    jobs.submitBatch(Collections.singletonList(testRequest));
+  }
+
+  @Test
+  public void get_unknownJob_emptyReturned() {
+    // given
+    PublicationJobs jobs = new PublicationJobs(publisherMock, batchPublisherMock, executor, 10);
+
+    // when
+    // then
+    assertThat(jobs.get("unknown-id").isPresent(), is(false));
+  }
+}
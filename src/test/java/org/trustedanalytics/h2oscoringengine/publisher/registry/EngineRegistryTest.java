@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.registry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EngineRegistryTest {
+
+  private Path registryDir;
+
+  @Before
+  public void setUp() throws IOException {
+    this.registryDir = Files.createTempDirectory("h2o-publisher-test-registry");
+  }
+
+  @Test
+  public void list_enginesRegistered_enginesSortedByModelNameReturned() throws Exception {
+    // given
+    EngineRegistry registry = new EngineRegistry(registryDir);
+
+    // when
+    registry.register(testEngine("second-model", 1));
+    registry.register(testEngine("first-model", 2));
+
+    // then
+    assertThat(registry.list().stream().map(PublishedEngine::getModelName)
+        .collect(Collectors.toList()), contains("first-model", "second-model"));
+  }
+
+  @Test
+  public void get_engineNotRegistered_emptyReturned() throws Exception {
+    // given
+    EngineRegistry registry = new EngineRegistry(registryDir);
+
+    // when
+    // then
+    assertThat(registry.get("some-model").isPresent(), is(false));
+  }
+
+  @Test
+  public void register_modelPublishedAgain_firstPublicationTimeKept() throws Exception {
+    // given
+    EngineRegistry registry = new EngineRegistry(registryDir);
+    registry.register(testEngine("some-model", 1));
+
+    // when
+    registry.register(testEngine("some-model", 5));
+
+    // then
+    PublishedEngine engine = registry.get("some-model").get();
+    assertThat(engine.getFirstPublishedAt(), equalTo(1L));
+    assertThat(engine.getLastPublishedAt(), equalTo(5L));
+  }
+
+  @Test
+  public void engineRegistry_enginesRegisteredByPreviousInstance_enginesLoaded() throws Exception {
+    // given
+    PublishedEngine engine = testEngine("some-model", 1);
+    new EngineRegistry(registryDir).register(engine);
+
+    // when
+    EngineRegistry registry = new EngineRegistry(registryDir);
+
+    // then
+    assertThat(registry.get("some-model").get(), equalTo(engine));
+  }
+
+  @Test
+  public void remove_engineRegistered_engineRemovedAlsoFromSavedRegistry() throws Exception {
+    // given
+    EngineRegistry registry = new EngineRegistry(registryDir);
+    PublishedEngine engine = testEngine("some-model", 1);
+    registry.register(engine);
+
+    // when
+    Optional<PublishedEngine> removed = registry.remove("some-model");
+
+    // then
+    assertThat(removed, equalTo(Optional.of(engine)));
+    assertThat(registry.get("some-model").isPresent(), is(false));
+    assertThat(new EngineRegistry(registryDir).get("some-model").isPresent(), is(false));
+  }
+
+  @Test
+  public void remove_engineNotRegistered_emptyReturned() throws Exception {
+    // given
+    EngineRegistry registry = new EngineRegistry(registryDir);
+
+    // when
+    // then
+    assertThat(registry.remove("some-model").isPresent(), is(false));
+  }
+
+  @Test
+  public void register_registryInMemory_engineRegisteredWithoutFile() throws Exception {
+    // given
+    EngineRegistry registry = new EngineRegistry();
+
+    // when
+    registry.register(testEngine("some-model", 1));
+
+    // then
+    assertThat(registry.get("some-model").isPresent(), is(true));
+  }
+
+  private PublishedEngine testEngine(String modelName, long publishedAt) {
+    return new PublishedEngine(modelName, "pojo-hash", "app-guid", "route-guid",
+        "broker-service-id", "broker-plan-id", "service-guid", "plan-guid", publishedAt,
+        publishedAt);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.BatchPublicationJob;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJobs;
+
+public class BatchPublicationControllerTest {
+
+  private PublicationJobs jobsMock = mock(PublicationJobs.class);
+  private BatchPublicationJob testJob = new BatchPublicationJob("some-job-id", 1, 0);
+
+  @Test
+  public void publishAll_batchSubmitted_acceptedReturnedWithJobLocation() {
+    // given
+    BatchPublicationController controller = new BatchPublicationController(jobsMock);
+    List<PublishRequest> requests = Collections.singletonList(new PublishRequest());
+    when(jobsMock.submitBatch(requests)).thenReturn(testJob);
+
+    // when
+    ResponseEntity<BatchPublicationJob> response = controller.publishAll(requests);
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.ACCEPTED));
+    assertThat(response.getBody(), equalTo(testJob));
+    assertThat(response.getHeaders().getLocation(),
+        equalTo(URI.create("/rest/h2o/jobs/batch/some-job-id")));
+  }
+
+  @Test
+  public void getBatchJob_jobKnown_jobReturned() {
+    // given
+    BatchPublicationController controller = new BatchPublicationController(jobsMock);
+    when(jobsMock.getBatch("some-job-id")).thenReturn(Optional.of(testJob));
+
+    // when
+    ResponseEntity<BatchPublicationJob> response = controller.getBatchJob("some-job-id");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+    assertThat(response.getBody(), equalTo(testJob));
+  }
+
+  @Test
+  public void getBatchJob_jobUnknown_notFoundReturned() {
+    // given
+    BatchPublicationController controller = new BatchPublicationController(jobsMock);
+    when(jobsMock.getBatch("some-job-id")).thenReturn(Optional.empty());
+
+    // when
+    ResponseEntity<BatchPublicationJob> response = controller.getBatchJob("some-job-id");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_FOUND));
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.trustedanalytics.h2oscoringengine.publisher.BulkEngineBuilder;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.DownloadRequestValidationRules;
+import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.ValidationException;
+
+public class BulkDownloadControllerTest {
+
+  private BulkEngineBuilder bulkEngineBuilderMock = mock(BulkEngineBuilder.class);
+  private final List<String> testModelNames = Collections.singletonList("some-model");
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void downloadAllEngines_validRequest_zipOfEnginesWrittenToResponse() throws Exception {
+    // given
+    BulkDownloadController controller =
+        new BulkDownloadController(bulkEngineBuilderMock, new DownloadRequestValidationRules());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(bulkEngineBuilderMock.listModels(any())).thenReturn(testModelNames);
+
+    // when
+    controller.downloadAllEngines(testRequest("http://example.com"), response);
+
+    // then
+    ArgumentCaptor<BasicAuthServerCredentials> credentials =
+        ArgumentCaptor.forClass(BasicAuthServerCredentials.class);
+    verify(bulkEngineBuilderMock).buildAllAsZip(credentials.capture(), eq(testModelNames),
+        eq(response.getOutputStream()));
+    assertThat(credentials.getValue().getHost(), equalTo("http://example.com"));
+    assertThat(response.getContentType(), equalTo(BulkDownloadController.ZIP_CONTENT_TYPE));
+  }
+
+  @Test
+  public void downloadAllEngines_invalidHost_exceptionThrownAndNothingBuilt() throws Exception {
+    // given
+    BulkDownloadController controller =
+        new BulkDownloadController(bulkEngineBuilderMock, new DownloadRequestValidationRules());
+
+    // then
+    thrown.expect(ValidationException.class);
+
+    // when
+    try {
+      controller.downloadAllEngines(testRequest("not a host"), new MockHttpServletResponse());
+    } finally {
+      verify(bulkEngineBuilderMock, never()).buildAllAsZip(any(), any(), any());
+    }
+  }
+
+  @Test
+  public void downloadAllEngines_modelsCannotBeListed_exceptionThrownAndNoArchiveHeadersSet()
+      throws Exception {
+    // given
+    BulkDownloadController controller =
+        new BulkDownloadController(bulkEngineBuilderMock, new DownloadRequestValidationRules());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(bulkEngineBuilderMock.listModels(any()))
+        .thenThrow(new EngineBuildingException("some error"));
+
+    // then
+    thrown.expect(EngineBuildingException.class);
+
+    // when
+    try {
+      controller.downloadAllEngines(testRequest("http://example.com"), response);
+    } finally {
+      assertThat(response.getContentType(), nullValue());
+      assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION), nullValue());
+      verify(bulkEngineBuilderMock, never()).buildAllAsZip(any(), any(), any());
+    }
+  }
+
+  private MultiValueMap<String, String> testRequest(String host) {
+    MultiValueMap<String, String> request = new LinkedMultiValueMap<>();
+    request.add("host", host);
+    request.add("username", "username");
+    request.add("password", "password");
+    return request;
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.EngineRegistry;
+import org.trustedanalytics.h2oscoringengine.publisher.registry.PublishedEngine;
+
+public class EngineRegistryControllerTest {
+
+  private EngineRegistry registryMock = mock(EngineRegistry.class);
+
+  @Test
+  public void getEngine_engineRegistered_engineReturned() {
+    // given
+    EngineRegistryController controller = new EngineRegistryController(registryMock);
+    PublishedEngine engine = new PublishedEngine();
+    when(registryMock.get("some-model")).thenReturn(Optional.of(engine));
+
+    // when
+    ResponseEntity<PublishedEngine> response = controller.getEngine("some-model");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+    assertThat(response.getBody(), equalTo(engine));
+  }
+
+  @Test
+  public void getEngine_engineNotRegistered_notFoundReturned() {
+    // given
+    EngineRegistryController controller = new EngineRegistryController(registryMock);
+    when(registryMock.get("some-model")).thenReturn(Optional.empty());
+
+    // when
+    ResponseEntity<PublishedEngine> response = controller.getEngine("some-model");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_FOUND));
+  }
+
+  @Test
+  public void removeEngine_engineRegistered_noContentReturned() throws Exception {
+    // given
+    EngineRegistryController controller = new EngineRegistryController(registryMock);
+    when(registryMock.remove("some-model")).thenReturn(Optional.of(new PublishedEngine()));
+
+    // when
+    ResponseEntity<Void> response = controller.removeEngine("some-model");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.NO_CONTENT));
+  }
+
+  @Test
+  public void removeEngine_engineNotRegistered_notFoundReturned() throws Exception {
+    // given
+    EngineRegistryController controller = new EngineRegistryController(registryMock);
+    when(registryMock.remove("some-model")).thenReturn(Optional.empty());
+
+    // when
+    ResponseEntity<Void> response = controller.removeEngine("some-model");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_FOUND));
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJob;
+import org.trustedanalytics.h2oscoringengine.publisher.jobs.PublicationJobs;
+
+public class PublicationJobControllerTest {
+
+  private PublicationJobs jobsMock = mock(PublicationJobs.class);
+  private PublicationJob testJob = new PublicationJob("some-job-id", "some-model", 0);
+
+  @Test
+  public void publishAsync_jobSubmitted_acceptedReturnedWithJobLocation() {
+    // given
+    PublicationJobController controller = new PublicationJobController(jobsMock);
+    PublishRequest request = new PublishRequest();
+    when(jobsMock.submit(request)).thenReturn(testJob);
+
+    // when
+    ResponseEntity<PublicationJob> response = controller.publishAsync(request);
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.ACCEPTED));
+    assertThat(response.getBody(), equalTo(testJob));
+    assertThat(response.getHeaders().getLocation(),
+        equalTo(URI.create("/rest/h2o/jobs/some-job-id")));
+  }
+
+  @Test
+  public void getJob_jobKnown_jobReturned() {
+    // given
+    PublicationJobController controller = new PublicationJobController(jobsMock);
+    when(jobsMock.get("some-job-id")).thenReturn(Optional.of(testJob));
+
+    // when
+    ResponseEntity<PublicationJob> response = controller.getJob("some-job-id");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+    assertThat(response.getBody(), equalTo(testJob));
+  }
+
+  @Test
+  public void getJob_jobUnknown_notFoundReturned() {
+    // given
+    PublicationJobController controller = new PublicationJobController(jobsMock);
+    when(jobsMock.get("some-job-id")).thenReturn(Optional.empty());
+
+    // when
+    ResponseEntity<PublicationJob> response = controller.getJob("some-job-id");
+
+    // then
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_FOUND));
+  }
+}
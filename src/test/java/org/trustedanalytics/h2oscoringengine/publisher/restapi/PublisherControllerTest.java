@@ -34,6 +34,7 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
 import org.trustedanalytics.h2oscoringengine.publisher.Publisher;
+import org.trustedanalytics.h2oscoringengine.publisher.ScoringEngineJar;
 import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
 import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.DownloadRequestValidationRules;
 import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.ValidationException;
@@ -41,6 +42,7 @@ import org.trustedanalytics.h2oscoringengine.publisher.restapi.validation.Valida
 public class PublisherControllerTest {
 
   private Publisher publisherMock = mock(Publisher.class);
+  private ScoringEngineJar engineJarMock = mock(ScoringEngineJar.class);
   private PublishRequest testPublishRequest;
   private DownloadRequest testDownloadRequest;
   private String testHost = "http://example.com";
@@ -60,6 +62,7 @@ public class PublisherControllerTest {
     testPublishRequest.setOrgGuid("some-org-guid");
 
     testDownloadRequest = new DownloadRequest(testH2oCredentials, testModelName);
+    when(engineJarMock.getPath()).thenReturn(Paths.get("/tmp/"));
 
   }
 
@@ -76,6 +79,19 @@ public class PublisherControllerTest {
     verify(publisherMock).publish(testPublishRequest);
   }
 
+  @Test
+  public void update_callsPublisher() throws Exception {
+    // given
+    PublisherController controller =
+        new PublisherController(publisherMock, new DownloadRequestValidationRules());
+
+    // when
+    controller.update(testPublishRequest);
+
+    // then
+    verify(publisherMock).update(testPublishRequest);
+  }
+
   @Test
   public void downloadEngine_callsPublisher() throws Exception {
     // given
@@ -88,7 +104,7 @@ public class PublisherControllerTest {
         ArgumentCaptor.forClass(BasicAuthServerCredentials.class);
 
     // when
-    when(publisherMock.getScoringEngineJar(any(), any())).thenReturn(Paths.get("/tmp/"));
+    when(publisherMock.getScoringEngineJar(any(), any())).thenReturn(engineJarMock);
     controller.downloadEngine(testPostRequest, testModelName);
 
     // then
@@ -139,7 +155,7 @@ public class PublisherControllerTest {
 
     // when
     when(publisherMock.getScoringEngineJar(testH2oCredentials, testModelName))
-        .thenReturn(Paths.get("/tmp/"));
+        .thenReturn(engineJarMock);
     controller.downloadEngine(testDownloadRequest);
 
     // then
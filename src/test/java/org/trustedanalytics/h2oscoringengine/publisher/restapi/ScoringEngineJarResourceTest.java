@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2015 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.restapi;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trustedanalytics.h2oscoringengine.publisher.ScoringEngineJar;
+
+public class ScoringEngineJarResourceTest {
+
+  private final ScoringEngineJar engineJarMock = mock(ScoringEngineJar.class);
+
+  @Before
+  public void setUp() throws Exception {
+    Path testEngineJar = Files.write(
+        Files.createTempDirectory("h2o-publisher-test-resource").resolve("engine.jar"),
+        "engine".getBytes(StandardCharsets.UTF_8));
+    when(engineJarMock.getPath()).thenReturn(testEngineJar);
+  }
+
+  @Test
+  public void getInputStream_streamOpen_engineNotClosed() throws Exception {
+    // given
+    ScoringEngineJarResource resource = new ScoringEngineJarResource(engineJarMock);
+
+    // when
+    resource.getInputStream().read();
+
+    // then
+    verify(engineJarMock, never()).close();
+  }
+
+  @Test
+  public void getInputStream_streamClosed_engineClosed() throws Exception {
+    // given
+    ScoringEngineJarResource resource = new ScoringEngineJarResource(engineJarMock);
+
+    // when
+    try (InputStream stream = resource.getInputStream()) {
+      stream.read();
+    }
+
+    // then
+    verify(engineJarMock).close();
+  }
+}
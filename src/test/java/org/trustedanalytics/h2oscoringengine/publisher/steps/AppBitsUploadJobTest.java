@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+
+public class AppBitsUploadJobTest {
+
+  private final String testCfApi = "http://cf-api";
+  private final String testJobPath = "/v2/jobs/job-guid";
+  private final RestTemplate restTemplateMock = mock(RestTemplate.class);
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void await_jobFinishedOnUpload_jobNotPolled() throws Exception {
+    // given
+    AppBitsUploadJob job = testJob(AppBitsUploadJob.JOB_FINISHED_STATUS, 1000);
+
+    // when
+    job.await();
+
+    // then
+    verify(restTemplateMock, never()).exchange(any(String.class), any(HttpMethod.class),
+        any(HttpEntity.class), same(String.class));
+  }
+
+  @Test
+  public void await_jobQueued_jobPolledUntilFinished() throws Exception {
+    // given
+    AppBitsUploadJob job = testJob("queued", 1000);
+    whenJobPolled().thenReturn(jobResponse("queued"), jobResponse("running"),
+        jobResponse(AppBitsUploadJob.JOB_FINISHED_STATUS));
+
+    // when
+    job.await();
+
+    // then
+    verify(restTemplateMock, times(3)).exchange(eq(testCfApi + testJobPath),
+        same(HttpMethod.GET), any(HttpEntity.class), same(String.class));
+  }
+
+  @Test
+  public void await_jobFailed_exceptionThrown() throws Exception {
+    // given
+    AppBitsUploadJob job = testJob("queued", 1000);
+    whenJobPolled().thenReturn(new ResponseEntity<>("{\"entity\":{\"status\":\"failed\","
+        + "\"error_details\":{\"description\":\"staging error\"}}}", HttpStatus.OK));
+
+    // when
+    // then
+    thrown.expect(EnginePublicationException.class);
+    thrown.expectMessage("staging error");
+    job.await();
+  }
+
+  @Test
+  public void await_jobNotFinishedOnTime_exceptionThrown() throws Exception {
+    // given
+    AppBitsUploadJob job = testJob("queued", 10);
+    whenJobPolled().thenReturn(jobResponse("running"));
+
+    // when
+    // then
+    thrown.expect(EnginePublicationException.class);
+    job.await();
+  }
+
+  @Test
+  public void await_emptyJobPath_jobTreatedAsFinished() throws Exception {
+    // given
+    AppBitsUploadJob job = new AppBitsUploadJob(testCfApi, restTemplateMock, "", "");
+
+    // when
+    job.await();
+
+    // then
+    verify(restTemplateMock, never()).exchange(any(String.class), any(HttpMethod.class),
+        any(HttpEntity.class), same(String.class));
+  }
+
+  private AppBitsUploadJob testJob(String status, long timeoutMs) {
+    return new AppBitsUploadJob(testCfApi, restTemplateMock, testJobPath, status, 1, 4,
+        timeoutMs);
+  }
+
+  private OngoingStubbing<ResponseEntity<String>> whenJobPolled() {
+    return when(restTemplateMock.exchange(eq(testCfApi + testJobPath), same(HttpMethod.GET),
+        any(HttpEntity.class), same(String.class)));
+  }
+
+  private ResponseEntity<String> jobResponse(String status) {
+    return new ResponseEntity<>("{\"entity\":{\"status\":\"" + status + "\"}}", HttpStatus.OK);
+  }
+}
@@ -13,29 +13,46 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.springframework.core.io.ByteArrayResource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.BasicAuthServerCredentials;
 import org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 
@@ -43,8 +60,14 @@ public class AppBitsUploadingStepTest {
 
   private Path testAppBitsPath;
   private final String testCfApi = "skaflakjg";
-  private final String cfUploadEndpoint = testCfApi + CloudFoundryEndpoints.APP_BITS_ENDPOINT_TEMPLATE;
+  private final String cfUploadEndpoint =
+      testCfApi + CloudFoundryEndpoints.APP_BITS_ENDPOINT_TEMPLATE + "?async=true";
+  private final String cfResourceMatchEndpoint =
+      testCfApi + CloudFoundryEndpoints.RESOURCE_MATCH_ENDPOINT;
   private final String testAppGuid = "adjsa-dgf-asg";
+  private final byte[] testLibContent = "library content".getBytes();
+  private final String testUploadJob =
+      "{\"metadata\":{\"url\":\"/v2/jobs/job-guid\"},\"entity\":{\"status\":\"queued\"}}";
   private final RestTemplate restTemplateMock = mock(RestTemplate.class);
 
   @Rule
@@ -53,6 +76,9 @@ public class AppBitsUploadingStepTest {
   @Before
   public void setUp() throws IOException {
     this.testAppBitsPath = testFile();
+    when(restTemplateMock.exchange(eq(cfUploadEndpoint), same(HttpMethod.PUT),
+        any(HttpEntity.class), same(String.class), same(testAppGuid)))
+            .thenReturn(new ResponseEntity<>(testUploadJob, HttpStatus.CREATED));
   }
 
   @Test
@@ -70,6 +96,37 @@ public class AppBitsUploadingStepTest {
         same(String.class), same(testAppGuid));
   }
 
+  @Test
+  public void uploadBits_uploadJobFailed_exceptionThrownWhenJobAwaited() throws Exception {
+    // given
+    AppBitsUploadingStep step = new AppBitsUploadingStep(testCfApi, restTemplateMock, testAppGuid);
+    when(restTemplateMock.exchange(eq(cfUploadEndpoint), same(HttpMethod.PUT),
+        any(HttpEntity.class), same(String.class), same(testAppGuid)))
+            .thenReturn(new ResponseEntity<>(testUploadJob.replace("queued", "failed"),
+                HttpStatus.CREATED));
+
+    // when
+    RegisteringInApplicationBrokerStep nextStep = step.uploadBits(testAppBitsPath);
+
+    // then
+    thrown.expect(EnginePublicationException.class);
+    nextStep.register(new BasicAuthServerCredentials("http://host", "user", "pass"),
+        mock(RestTemplate.class), "name", "description");
+  }
+
+  @Test
+  public void replaceBits_performsProperCloudFoundryRestCall() throws Exception {
+    // given
+    AppBitsUploadingStep step = new AppBitsUploadingStep(testCfApi, restTemplateMock, testAppGuid);
+
+    // when
+    step.replaceBits(testAppBitsPath);
+
+    // then
+    verify(restTemplateMock).exchange(eq(cfUploadEndpoint), same(HttpMethod.PUT),
+        eq(createTestAppBitsRequest()), same(String.class), same(testAppGuid));
+  }
+
   @Test
   public void uploadBits_unableToReadFile_exceptionThrown() throws EnginePublicationException {
     // given
@@ -83,10 +140,103 @@ public class AppBitsUploadingStepTest {
     step.uploadBits(appBits);
   }
 
-  private HttpEntity<MultiValueMap<String, Object>> createTestAppBitsRequest() throws IOException {
+  @Test
+  public void uploadBits_calledTwice_convertersRegisteredOnce() throws Exception {
+    // given
+    AppBitsUploadingStep step = new AppBitsUploadingStep(testCfApi, restTemplateMock, testAppGuid);
+    List<HttpMessageConverter<?>> converters = new ArrayList<>();
+    when(restTemplateMock.getMessageConverters()).thenReturn(converters);
+
+    // when
+    step.uploadBits(testAppBitsPath);
+    step.uploadBits(testAppBitsPath);
+
+    // then
+    assertThat(converters.size(), equalTo(3));
+  }
+
+  @Test
+  public void uploadBits_filesCachedByCloudFoundry_cachedFilesListedInResources()
+      throws Exception {
+    // given
+    AppBitsUploadingStep step = new AppBitsUploadingStep(testCfApi, restTemplateMock, testAppGuid);
+    Path appBits = testJar();
+    String cachedLibSha1 = DigestUtils.sha1Hex(testLibContent);
+    when(restTemplateMock.exchange(eq(cfResourceMatchEndpoint), same(HttpMethod.PUT),
+        any(HttpEntity.class), same(String.class))).thenReturn(new ResponseEntity<>(
+            "[{\"sha1\":\"" + cachedLibSha1 + "\",\"size\":" + testLibContent.length + "}]",
+            HttpStatus.OK));
+
+    // when
+    step.uploadBits(appBits);
+
+    // then
+    HttpEntity<MultiValueMap<String, Object>> uploadRequest = captureUploadRequest();
+    HttpEntity<?> resourcesPart =
+        (HttpEntity<?>) uploadRequest.getBody().getFirst("resources");
+    assertThat(resourcesPart.getBody(), equalTo("[{\"fn\":\"lib/library.jar\",\"sha1\":\""
+        + cachedLibSha1 + "\",\"size\":" + testLibContent.length + "}]"));
+  }
+
+  @Test
+  public void uploadBits_filesCachedByCloudFoundry_partialBitsInFileOfTheirOwnDeletedAfterUpload()
+      throws Exception {
+    // given
+    AppBitsUploadingStep step = new AppBitsUploadingStep(testCfApi, restTemplateMock, testAppGuid);
+    Path appBits = testJar();
+    Path otherUploadPartialBits =
+        Files.write(appBits.resolveSibling("partial-engine.jar"), "other upload".getBytes());
+    when(restTemplateMock.exchange(eq(cfResourceMatchEndpoint), same(HttpMethod.PUT),
+        any(HttpEntity.class), same(String.class))).thenReturn(new ResponseEntity<>(
+            "[{\"sha1\":\"" + DigestUtils.sha1Hex(testLibContent) + "\",\"size\":"
+                + testLibContent.length + "}]",
+            HttpStatus.OK));
+
+    // when
+    step.uploadBits(appBits);
+
+    // then
+    HttpEntity<?> dataPart =
+        (HttpEntity<?>) captureUploadRequest().getBody().getFirst("application");
+    Path uploadedBits = ((FileSystemResource) dataPart.getBody()).getFile().toPath();
+    assertThat(uploadedBits.getParent(), equalTo(appBits.getParent()));
+    assertThat(uploadedBits, not(equalTo(otherUploadPartialBits)));
+    assertThat(Files.exists(uploadedBits), equalTo(false));
+    assertThat(new String(Files.readAllBytes(otherUploadPartialBits)), equalTo("other upload"));
+  }
+
+  @Test
+  public void uploadBits_resourceMatchingFailed_allBitsUploaded() throws Exception {
+    // given
+    AppBitsUploadingStep step = new AppBitsUploadingStep(testCfApi, restTemplateMock, testAppGuid);
+    Path appBits = testJar();
+    when(restTemplateMock.exchange(eq(cfResourceMatchEndpoint), same(HttpMethod.PUT),
+        any(HttpEntity.class), same(String.class))).thenThrow(new RestClientException("error"));
+
+    // when
+    step.uploadBits(appBits);
+
+    // then
+    verify(restTemplateMock).exchange(eq(cfUploadEndpoint), same(HttpMethod.PUT),
+        eq(createTestAppBitsRequest(appBits)), same(String.class), same(testAppGuid));
+  }
+
+  @SuppressWarnings("unchecked")
+  private HttpEntity<MultiValueMap<String, Object>> captureUploadRequest() {
+    ArgumentCaptor<HttpEntity> requestCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+    verify(restTemplateMock).exchange(eq(cfUploadEndpoint), same(HttpMethod.PUT),
+        requestCaptor.capture(), same(String.class), same(testAppGuid));
+    return requestCaptor.getValue();
+  }
+
+  private HttpEntity<MultiValueMap<String, Object>> createTestAppBitsRequest() {
+    return createTestAppBitsRequest(testAppBitsPath);
+  }
+
+  private HttpEntity<MultiValueMap<String, Object>> createTestAppBitsRequest(Path appBits) {
     HttpEntity<String> resourcesPart = new HttpEntity<String>("[]");
-    HttpEntity<ByteArrayResource> dataPart = new HttpEntity<>(
-        new ByteArrayResource(Files.readAllBytes(testAppBitsPath)), HttpCommunication.zipHeaders());
+    HttpEntity<FileSystemResource> dataPart = new HttpEntity<>(
+        new FileSystemResource(appBits.toFile()), HttpCommunication.zipHeaders());
 
     MultiValueMap<String, Object> multiPartRequest = new LinkedMultiValueMap<>();
     multiPartRequest.add("resources", resourcesPart);
@@ -102,6 +252,19 @@ public class AppBitsUploadingStepTest {
     return Files.createTempFile("test", "");
   }
 
+  private Path testJar() throws IOException {
+    Path jar = Files.createTempDirectory("h2o-publisher-test-bits").resolve("engine.jar");
+    try (JarOutputStream jarStream = new JarOutputStream(Files.newOutputStream(jar))) {
+      jarStream.putNextEntry(new JarEntry("lib/library.jar"));
+      jarStream.write(testLibContent);
+      jarStream.closeEntry();
+      jarStream.putNextEntry(new JarEntry("Model.class"));
+      jarStream.write("class content".getBytes());
+      jarStream.closeEntry();
+    }
+    return jar;
+  }
+
   private Path nonExistentTestFile() {
     return Paths.get("safggrdga");
   }
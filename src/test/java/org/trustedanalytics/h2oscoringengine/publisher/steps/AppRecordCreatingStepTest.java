@@ -28,6 +28,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
 import org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 
@@ -62,7 +63,8 @@ public class AppRecordCreatingStepTest {
   @Test
   public void createAppRecord_callToCfApiOccured() throws Exception {
     // given
-    AppRecordCreatingStep step = new AppRecordCreatingStep(testCfApi, restTemplateMock);
+    AppRecordCreatingStep step = new AppRecordCreatingStep(testCfApi, restTemplateMock,
+        new CfMetadataCache(0));
 
     // when
     when(responseMock.getBody()).thenReturn(validResponseMock);
@@ -76,7 +78,8 @@ public class AppRecordCreatingStepTest {
   @Test
   public void createAppRecord_invalidResponse_exceptionThrown() throws EnginePublicationException {
     // given
-    AppRecordCreatingStep step = new AppRecordCreatingStep(testCfApi, restTemplateMock);
+    AppRecordCreatingStep step = new AppRecordCreatingStep(testCfApi, restTemplateMock,
+        new CfMetadataCache(0));
 
     // when
     when(responseMock.getBody()).thenReturn(invalidResponseMock);
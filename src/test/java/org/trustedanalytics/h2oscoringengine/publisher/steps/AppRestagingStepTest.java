@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints;
+
+public class AppRestagingStepTest {
+
+  private final String testCfApi = "http://cf-api";
+  private final String testAppGuid = "app-guid";
+  private final String cfAppEndpoint = testCfApi + CloudFoundryEndpoints.APP_ENDPOINT_TEMPLATE;
+  private final String cfRestageEndpoint =
+      testCfApi + CloudFoundryEndpoints.APP_RESTAGE_ENDPOINT_TEMPLATE;
+  private final RestTemplate restTemplateMock = mock(RestTemplate.class);
+  private AppBitsUploadJob finishedJob;
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void setUp() {
+    this.finishedJob = new AppBitsUploadJob(testCfApi, restTemplateMock, "",
+        AppBitsUploadJob.JOB_FINISHED_STATUS);
+  }
+
+  @Test
+  public void restage_appStarted_appRestaged() throws Exception {
+    // given
+    AppRestagingStep step =
+        new AppRestagingStep(testCfApi, restTemplateMock, testAppGuid, finishedJob);
+    whenAppStateRead().thenReturn(appResponse(AppRestagingStep.APP_STARTED_STATE));
+
+    // when
+    step.restage();
+
+    // then
+    verify(restTemplateMock).exchange(eq(cfRestageEndpoint), same(HttpMethod.POST),
+        any(HttpEntity.class), same(String.class), same(testAppGuid));
+  }
+
+  @Test
+  public void restage_appStopped_appNotRestaged() throws Exception {
+    // given
+    AppRestagingStep step =
+        new AppRestagingStep(testCfApi, restTemplateMock, testAppGuid, finishedJob);
+    whenAppStateRead().thenReturn(appResponse("STOPPED"));
+
+    // when
+    step.restage();
+
+    // then
+    verify(restTemplateMock, never()).exchange(eq(cfRestageEndpoint), same(HttpMethod.POST),
+        any(HttpEntity.class), same(String.class), same(testAppGuid));
+  }
+
+  @Test
+  public void restage_uploadJobFailed_exceptionThrown() throws Exception {
+    // given
+    AppRestagingStep step = new AppRestagingStep(testCfApi, restTemplateMock, testAppGuid,
+        new AppBitsUploadJob(testCfApi, restTemplateMock, "/v2/jobs/job-guid",
+            AppBitsUploadJob.JOB_FAILED_STATUS));
+
+    // when
+    // then
+    thrown.expect(EnginePublicationException.class);
+    step.restage();
+  }
+
+  @Test
+  public void restage_invalidAppResponse_exceptionThrown() throws Exception {
+    // given
+    AppRestagingStep step =
+        new AppRestagingStep(testCfApi, restTemplateMock, testAppGuid, finishedJob);
+    whenAppStateRead().thenReturn(new ResponseEntity<>("{{}", HttpStatus.OK));
+
+    // when
+    // then
+    thrown.expect(EnginePublicationException.class);
+    step.restage();
+  }
+
+  private OngoingStubbing<ResponseEntity<String>> whenAppStateRead() {
+    return when(restTemplateMock.exchange(eq(cfAppEndpoint), same(HttpMethod.GET),
+        any(HttpEntity.class), same(String.class), same(testAppGuid)));
+  }
+
+  private ResponseEntity<String> appResponse(String state) {
+    return new ResponseEntity<>("{\"entity\":{\"state\":\"" + state + "\"}}", HttpStatus.OK);
+  }
+}
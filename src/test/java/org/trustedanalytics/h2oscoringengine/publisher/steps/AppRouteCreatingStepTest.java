@@ -13,21 +13,28 @@
  */
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.CfMetadataCache;
 import org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 
@@ -47,8 +54,13 @@ public class AppRouteCreatingStepTest {
       testCfApi + CloudFoundryEndpoints.ROUTES_ENDPOINT;
   private final String testCfBindRouteEndpoint =
       testCfApi + CloudFoundryEndpoints.BIND_ROUTE_TO_APP_ENDPOINT_TEMPLATE;
+  private final String testCfRouteEndpoint =
+      testCfApi + CloudFoundryEndpoints.ROUTE_ENDPOINT_TEMPLATE;
+  private final String testCfAppEndpoint = testCfApi + CloudFoundryEndpoints.APP_ENDPOINT_TEMPLATE;
 
   private RestTemplate restTemplateMock;
+  private final CfMetadataCache cfMetadataCache =
+      new CfMetadataCache(TimeUnit.MINUTES.toMillis(5));
   private ResponseEntity<String> domainsResponseMock;
   private ResponseEntity<String> routesResponseMock;
   private ResponseEntity<String> routeCreatedResponseMock;
@@ -88,7 +100,8 @@ public class AppRouteCreatingStepTest {
   @Test
   public void createAppRoute_allCloudFoundryCallsOccured() throws Exception {
     // given
-    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid);
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
 
     // when
     when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
@@ -112,7 +125,8 @@ public class AppRouteCreatingStepTest {
   @Test
   public void createAppRoute_oneRouteFound_dontCreateAnotherRoute() throws Exception {
     // given
-    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid);
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
 
     // when
     when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
@@ -128,7 +142,8 @@ public class AppRouteCreatingStepTest {
   @Test
   public void createAppRoute_noRouteFound_createNewRouteCfCallOccured() throws Exception {
     // given
-    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid);
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
 
     // when
     when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
@@ -145,7 +160,8 @@ public class AppRouteCreatingStepTest {
   @Test
   public void createAppRoute_invalidCfResponse_exceptionThrown() throws EnginePublicationException {
     // given
-    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid);
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
 
     // when
     when(domainsResponseMock.getBody()).thenReturn(invalidDomainsResponse);
@@ -154,4 +170,85 @@ public class AppRouteCreatingStepTest {
     thrown.expect(EnginePublicationException.class);
     step.createAppRoute(testSpaceGuid, testSubdomain);
   }
+
+  @Test
+  public void createAppRoute_calledTwice_domainsFetchedOnce() throws Exception {
+    // given
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
+    when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
+    when(routesResponseMock.getBody()).thenReturn(oneRouteResponse);
+
+    // when
+    step.createAppRoute(testSpaceGuid, testSubdomain);
+    step.createAppRoute(testSpaceGuid, testSubdomain);
+
+    // then
+    verify(restTemplateMock).exchange(eq(testCfDomainsEndpoint), same(HttpMethod.GET),
+        eq(HttpCommunication.simpleJsonRequest()), same(String.class));
+    assertThat(cfMetadataCache.getStatistics().getHits(), equalTo(1L));
+  }
+
+  @Test
+  public void createAppRoute_bindingRouteFailed_cachedDomainInvalidated() throws Exception {
+    // given
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
+    when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
+    when(routesResponseMock.getBody()).thenReturn(oneRouteResponse);
+    when(restTemplateMock.exchange(testCfBindRouteEndpoint, HttpMethod.PUT,
+        HttpCommunication.simpleJsonRequest(), String.class, testAppGuid, testRouteGuid))
+            .thenThrow(new RestClientException("Not found")).thenReturn(null);
+
+    // when
+    try {
+      step.createAppRoute(testSpaceGuid, testSubdomain);
+    } catch (RestClientException e) {
+      // expected on first attempt
+    }
+    step.createAppRoute(testSpaceGuid, testSubdomain);
+
+    // then
+    verify(restTemplateMock, times(2)).exchange(eq(testCfDomainsEndpoint), same(HttpMethod.GET),
+        eq(HttpCommunication.simpleJsonRequest()), same(String.class));
+  }
+
+  @Test
+  public void rollback_routeCreatedByStep_routeAndAppDeleted() throws Exception {
+    // given
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
+    when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
+    when(routesResponseMock.getBody()).thenReturn(noRouteResponse);
+    when(routeCreatedResponseMock.getBody()).thenReturn(routeCreatedResponse);
+    step.createAppRoute(testSpaceGuid, testSubdomain);
+
+    // when
+    step.rollback();
+
+    // then
+    verify(restTemplateMock).exchange(eq(testCfRouteEndpoint), same(HttpMethod.DELETE),
+        eq(HttpCommunication.simpleJsonRequest()), same(String.class), eq(testRouteGuid));
+    verify(restTemplateMock).exchange(eq(testCfAppEndpoint), same(HttpMethod.DELETE),
+        eq(HttpCommunication.simpleJsonRequest()), same(String.class), eq(testAppGuid));
+  }
+
+  @Test
+  public void rollback_routeExistedBefore_onlyAppDeleted() throws Exception {
+    // given
+    AppRouteCreatingStep step = new AppRouteCreatingStep(restTemplateMock, testCfApi, testAppGuid,
+        cfMetadataCache);
+    when(domainsResponseMock.getBody()).thenReturn(validDomainsResponse);
+    when(routesResponseMock.getBody()).thenReturn(oneRouteResponse);
+    step.createAppRoute(testSpaceGuid, testSubdomain);
+
+    // when
+    step.rollback();
+
+    // then
+    verify(restTemplateMock, never()).exchange(eq(testCfRouteEndpoint), same(HttpMethod.DELETE),
+        eq(HttpCommunication.simpleJsonRequest()), same(String.class), eq(testRouteGuid));
+    verify(restTemplateMock).exchange(eq(testCfAppEndpoint), same(HttpMethod.DELETE),
+        eq(HttpCommunication.simpleJsonRequest()), same(String.class), eq(testAppGuid));
+  }
 }
@@ -14,18 +14,26 @@
 package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Optional;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 import org.trustedanalytics.h2oscoringengine.publisher.EnginePublicationException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.SpaceAppIndex;
 import org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints;
 import org.trustedanalytics.h2oscoringengine.publisher.http.HttpCommunication;
 
@@ -38,10 +46,14 @@ public class CheckingIfAppExistsStepTest {
   private final String testSpaceGuid = "sjakdhljk";
 
   private RestTemplate restTemplateMock;
+  private SpaceAppIndex appIndexMock = mock(SpaceAppIndex.class);
   private ResponseEntity<String> appsNumberResponseMock;
   private final String appExistsResponse = "{\"total_results\": 1}";
   private final String appNotExistsResponse = "{\"total_results\": 0}";
   private final String invalidAppsNumberResponse = "{{}";
+  private final String testAppGuid = "app-guid-1";
+  private final String appGuidResponse =
+      "{\"total_results\": 1, \"resources\": [{\"metadata\": {\"guid\": \"app-guid-1\"}}]}";
 
   @Rule
   public final ExpectedException thrown = ExpectedException.none();
@@ -58,7 +70,8 @@ public class CheckingIfAppExistsStepTest {
   @Test
   public void check_appsFound_returnsTrue() throws Exception {
     // given
-    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock);
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
 
     // when
     when(appsNumberResponseMock.getBody()).thenReturn(appExistsResponse);
@@ -71,7 +84,8 @@ public class CheckingIfAppExistsStepTest {
   @Test
   public void check_noAppsFound_returnsFalse() throws Exception {
     // given
-    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock);
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
 
     // when
     when(appsNumberResponseMock.getBody()).thenReturn(appNotExistsResponse);
@@ -84,7 +98,8 @@ public class CheckingIfAppExistsStepTest {
   @Test
   public void check_cannotGetValidAnswerFromCf_exceptionThrown() throws Exception {
     // given
-    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock);
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
 
     // when
     when(appsNumberResponseMock.getBody()).thenReturn(invalidAppsNumberResponse);
@@ -94,5 +109,63 @@ public class CheckingIfAppExistsStepTest {
     step.check(testAppName, testSpaceGuid);
   }
 
+  @Test
+  public void check_appKnownMissingFromIndex_cloudFoundryNotAsked() throws Exception {
+    // given
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
+    when(appIndexMock.isKnownMissing(testSpaceGuid, testAppName)).thenReturn(true);
+
+    // when
+    boolean result = step.check(testAppName, testSpaceGuid);
+
+    // then
+    assertThat(result, is(false));
+    verify(restTemplateMock, never()).exchange(any(String.class), any(HttpMethod.class),
+        any(HttpEntity.class), any(Class.class), any(), any());
+  }
+
+  @Test
+  public void findAppGuid_appFound_guidReturned() throws Exception {
+    // given
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
+
+    // when
+    when(appsNumberResponseMock.getBody()).thenReturn(appGuidResponse);
+    Optional<String> result = step.findAppGuid(testAppName, testSpaceGuid);
+
+    // then
+    assertThat(result, equalTo(Optional.of(testAppGuid)));
+  }
+
+  @Test
+  public void findAppGuid_noAppsFound_emptyReturned() throws Exception {
+    // given
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
 
+    // when
+    when(appsNumberResponseMock.getBody()).thenReturn(appNotExistsResponse);
+    Optional<String> result = step.findAppGuid(testAppName, testSpaceGuid);
+
+    // then
+    assertThat(result.isPresent(), is(false));
+  }
+
+  @Test
+  public void findAppGuid_appKnownMissingFromIndex_cloudFoundryNotAsked() throws Exception {
+    // given
+    CheckingIfAppExistsStep step = new CheckingIfAppExistsStep(testCfApi, restTemplateMock,
+        appIndexMock);
+    when(appIndexMock.isKnownMissing(testSpaceGuid, testAppName)).thenReturn(true);
+
+    // when
+    Optional<String> result = step.findAppGuid(testAppName, testSpaceGuid);
+
+    // then
+    assertThat(result.isPresent(), is(false));
+    verify(restTemplateMock, never()).exchange(any(String.class), any(HttpMethod.class),
+        any(HttpEntity.class), any(Class.class), any(), any());
+  }
 }
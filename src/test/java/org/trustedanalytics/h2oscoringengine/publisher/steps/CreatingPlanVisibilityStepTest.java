@@ -15,8 +15,12 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.GET_SERVICE_GUID_BY_NAME_ENDPOINT_TEMPLATE;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.GET_SERVICE_PLANS_ENDPOINT_TEMPLATE;
@@ -26,6 +30,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
@@ -48,6 +53,7 @@ public class CreatingPlanVisibilityStepTest {
       + "\",\"organization_guid\":\"" + testOrgGuid + "\"}";
 
   private RestTemplate restTemplateMock;
+  private AppBitsUploadJob uploadJobMock;
   private ResponseEntity<String> serviceGuidResponseMock;
   private ResponseEntity<String> servicePlanResponseMock;
   private final String serviceGuidResponse =
@@ -62,6 +68,7 @@ public class CreatingPlanVisibilityStepTest {
   @Before
   public void setUp() {
     this.restTemplateMock = mock(RestTemplate.class);
+    this.uploadJobMock = mock(AppBitsUploadJob.class);
 
     this.serviceGuidResponseMock = mock(ResponseEntity.class);
     when(restTemplateMock.exchange(eq(testCfServiceGuidEndpoint), same(HttpMethod.GET),
@@ -77,7 +84,8 @@ public class CreatingPlanVisibilityStepTest {
   @Test
   public void addServicePlanVisibility_allCloduFoundryCallsOccured() throws Exception {
     // given
-    CreatingPlanVisibilityStep step = new CreatingPlanVisibilityStep(testCfApi, restTemplateMock);
+    CreatingPlanVisibilityStep step =
+        new CreatingPlanVisibilityStep(testCfApi, restTemplateMock, uploadJobMock);
 
     // when
     when(serviceGuidResponseMock.getBody()).thenReturn(serviceGuidResponse);
@@ -98,7 +106,8 @@ public class CreatingPlanVisibilityStepTest {
   public void addServicePlanVisibility_invalidCloudFoundryResponse_exceptionThrown()
       throws Exception {
     // given
-    CreatingPlanVisibilityStep step = new CreatingPlanVisibilityStep(testCfApi, restTemplateMock);
+    CreatingPlanVisibilityStep step =
+        new CreatingPlanVisibilityStep(testCfApi, restTemplateMock, uploadJobMock);
 
     // when
     when(serviceGuidResponseMock.getBody()).thenReturn(serviceGuidResponse);
@@ -109,4 +118,73 @@ public class CreatingPlanVisibilityStepTest {
     step.addServicePlanVisibility(testOrgGuid, testServiceName);
   }
 
+  @Test
+  public void addServicePlanVisibility_uploadJobFailed_exceptionThrown() throws Exception {
+    // given
+    CreatingPlanVisibilityStep step =
+        new CreatingPlanVisibilityStep(testCfApi, restTemplateMock, uploadJobMock);
+    doThrow(new EnginePublicationException("failed")).when(uploadJobMock).await();
+
+    // when
+    // then
+    thrown.expect(EnginePublicationException.class);
+    step.addServicePlanVisibility(testOrgGuid, testServiceName);
+  }
+
+  @Test
+  public void addServicePlanVisibility_uploadJobAwaitedBeforeVisibilitySet() throws Exception {
+    // given
+    CreatingPlanVisibilityStep step =
+        new CreatingPlanVisibilityStep(testCfApi, restTemplateMock, uploadJobMock);
+    when(serviceGuidResponseMock.getBody()).thenReturn(serviceGuidResponse);
+    when(servicePlanResponseMock.getBody()).thenReturn(planGuidResponse);
+
+    // when
+    step.addServicePlanVisibility(testOrgGuid, testServiceName);
+
+    // then
+    InOrder inOrder = inOrder(uploadJobMock, restTemplateMock);
+    inOrder.verify(uploadJobMock).await();
+    inOrder.verify(restTemplateMock).exchange(testCfPlanVisibilityEndpoint, HttpMethod.POST,
+        HttpCommunication.postRequest(setVisibilityRequestBody), String.class);
+  }
+
+  @Test
+  public void addServicePlanVisibility_uploadJobFailed_visibilityNotSet()
+      throws Exception {
+    // given
+    CreatingPlanVisibilityStep step =
+        new CreatingPlanVisibilityStep(testCfApi, restTemplateMock, uploadJobMock);
+    doThrow(new EnginePublicationException("failed")).when(uploadJobMock).await();
+
+    // when
+    try {
+      step.addServicePlanVisibility(testOrgGuid, testServiceName);
+    } catch (EnginePublicationException e) {
+      // expected
+    }
+
+    // then
+    verifyZeroInteractions(restTemplateMock);
+  }
+
+  @Test
+  public void addServicePlanVisibility_calledTwice_guidsFetchedEachTime() throws Exception {
+    // given
+    CreatingPlanVisibilityStep step =
+        new CreatingPlanVisibilityStep(testCfApi, restTemplateMock, uploadJobMock);
+    when(serviceGuidResponseMock.getBody()).thenReturn(serviceGuidResponse);
+    when(servicePlanResponseMock.getBody()).thenReturn(planGuidResponse);
+
+    // when
+    step.addServicePlanVisibility(testOrgGuid, testServiceName);
+    step.addServicePlanVisibility(testOrgGuid, testServiceName);
+
+    // then
+    verify(restTemplateMock, times(2)).exchange(testCfServiceGuidEndpoint, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, testServiceName);
+    verify(restTemplateMock, times(2)).exchange(testCfServicePlanEndpoint, HttpMethod.GET,
+        HttpCommunication.simpleJsonRequest(), String.class, testServiceGuid);
+  }
+
 }
@@ -16,21 +16,39 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+import org.trustedanalytics.h2oscoringengine.publisher.cache.GenmodelLibCache;
 import org.trustedanalytics.h2oscoringengine.publisher.http.FilesDownloader;
 
 public class H2oResourcesDownloadingStepTest {
@@ -47,13 +65,19 @@ public class H2oResourcesDownloadingStepTest {
   private final Path expectedPathForModelNameWithDash =
       testPath.resolve(expectedModelFileNameForDash);
 
+  private final Path cachedLibPath = Paths.get("/cache/genmodel.jar");
+
   private FilesDownloader downloaderMock = mock(FilesDownloader.class);
+  private GenmodelLibCache libCacheMock = mock(GenmodelLibCache.class);
+  private ExecutorService downloadExecutor = Executors.newFixedThreadPool(2);
 
   @Rule
   public final ExpectedException thrown = ExpectedException.none();
 
   @Before
   public void setUp() throws IOException {
+    when(libCacheMock.getLibrary(downloaderMock, H2oResourcesDownloadingStep.H2O_SERVER_LIB_PATH))
+        .thenReturn(Optional.empty());
     when(downloaderMock.download(
         eq(H2oResourcesDownloadingStep.H2O_SERVER_MODEL_PATH_PREFIX + testModelName),
         eq(expectedPathForModel))).thenReturn(expectedPathForModel);
@@ -64,10 +88,16 @@ public class H2oResourcesDownloadingStepTest {
         eq(expectedPathForModelNameWithDash))).thenReturn(expectedPathForModelNameWithDash);
   }
 
+  @After
+  public void tearDown() {
+    downloadExecutor.shutdownNow();
+  }
+
   @Test
   public void downloadResources_modelAndLibraryDownloadCallsOccured() throws Exception {
     // given
-    H2oResourcesDownloadingStep step = new H2oResourcesDownloadingStep();
+    H2oResourcesDownloadingStep step =
+        new H2oResourcesDownloadingStep(libCacheMock, downloadExecutor);
 
     // when
     step.downloadResources(downloaderMock, testModelName, testPath);
@@ -83,7 +113,8 @@ public class H2oResourcesDownloadingStepTest {
   @Test
   public void downloadResources_pathToModelWithProperJavaClassNameReturned() throws Exception {
     // given
-    H2oResourcesDownloadingStep step = new H2oResourcesDownloadingStep();
+    H2oResourcesDownloadingStep step =
+        new H2oResourcesDownloadingStep(libCacheMock, downloadExecutor);
 
     // when
     ModelCompilationStep result = step.downloadResources(downloaderMock, testModelName, testPath);
@@ -97,7 +128,8 @@ public class H2oResourcesDownloadingStepTest {
   public void downloadResources_modelWithDashInName_pathToModelWithProperJavaClassNameReturned()
       throws Exception {
     // given
-    H2oResourcesDownloadingStep step = new H2oResourcesDownloadingStep();
+    H2oResourcesDownloadingStep step =
+        new H2oResourcesDownloadingStep(libCacheMock, downloadExecutor);
 
     // when
     ModelCompilationStep result =
@@ -108,10 +140,29 @@ public class H2oResourcesDownloadingStepTest {
     assertThat(result.getModelPojoPath(), equalTo(expectedPathForModelNameWithDash));
   }
 
+  @Test
+  public void downloadResources_libraryCached_cachedLibraryReturnedAndNotDownloaded()
+      throws Exception {
+    // given
+    H2oResourcesDownloadingStep step =
+        new H2oResourcesDownloadingStep(libCacheMock, downloadExecutor);
+
+    // when
+    when(libCacheMock.getLibrary(downloaderMock, H2oResourcesDownloadingStep.H2O_SERVER_LIB_PATH))
+        .thenReturn(Optional.of(cachedLibPath));
+    ModelCompilationStep result = step.downloadResources(downloaderMock, testModelName, testPath);
+
+    // then
+    assertThat(result.getLibPath(), equalTo(cachedLibPath));
+    verify(downloaderMock, never()).download(eq(H2oResourcesDownloadingStep.H2O_SERVER_LIB_PATH),
+        any());
+  }
+
   @Test
   public void downloadResources_filesDownloaderError_exceptionThrown() throws Exception {
     // given
-    H2oResourcesDownloadingStep step = new H2oResourcesDownloadingStep();
+    H2oResourcesDownloadingStep step =
+        new H2oResourcesDownloadingStep(libCacheMock, downloadExecutor);
 
     // when
     when(downloaderMock.download(any(), any())).thenThrow(new IOException());
@@ -120,4 +171,121 @@ public class H2oResourcesDownloadingStepTest {
     thrown.expect(EngineBuildingException.class);
     step.downloadResources(downloaderMock, testModelNameWithDash, testPath);
   }
+
+  @Test
+  public void downloadResources_modelDownloadError_libraryDownloadInterrupted() throws Exception {
+    // given
+    H2oResourcesDownloadingStep step =
+        new H2oResourcesDownloadingStep(libCacheMock, downloadExecutor);
+    CountDownLatch libDownloadStarted = new CountDownLatch(1);
+    CountDownLatch libDownloadInterrupted = new CountDownLatch(1);
+
+    // when
+    when(downloaderMock.download(eq(H2oResourcesDownloadingStep.H2O_SERVER_LIB_PATH), any()))
+        .thenAnswer(invocation -> {
+          libDownloadStarted.countDown();
+          try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+          } catch (InterruptedException e) {
+            libDownloadInterrupted.countDown();
+          }
+          return expectedPathForLib;
+        });
+    when(downloaderMock.download(
+        eq(H2oResourcesDownloadingStep.H2O_SERVER_MODEL_PATH_PREFIX + testModelName), any()))
+        .thenAnswer(invocation -> {
+          libDownloadStarted.await();
+          throw new IOException();
+        });
+
+    // then
+    try {
+      step.downloadResources(downloaderMock, testModelName, testPath);
+    } catch (EngineBuildingException e) {
+      assertThat(libDownloadInterrupted.await(10, TimeUnit.SECONDS), is(true));
+      return;
+    }
+    fail("EngineBuildingException expected");
+  }
+
+  @Test
+  public void downloadResources_sharedLibraryDownloadAndFirstModelFails_otherBuildSucceeds()
+      throws Exception {
+    // given
+    List<Thread> downloadThreads = new CopyOnWriteArrayList<>();
+    ExecutorService trackedExecutor = Executors.newCachedThreadPool(task -> {
+      Thread thread = new Thread(task);
+      downloadThreads.add(thread);
+      return thread;
+    });
+    H2oResourcesDownloadingStep step = new H2oResourcesDownloadingStep(
+        new GenmodelLibCache(Files.createTempDirectory("h2o-publisher-test-genmodel")),
+        trackedExecutor);
+    FilesDownloader serverMock = mock(FilesDownloader.class);
+    CountDownLatch libDownloadStarted = new CountDownLatch(1);
+    CountDownLatch secondBuildJoined = new CountDownLatch(1);
+    AtomicInteger libDownloads = new AtomicInteger();
+
+    when(serverMock.getServerUrl()).thenReturn("http://h2o-host");
+    when(serverMock.downloadAsString(GenmodelLibCache.H2O_SERVER_ABOUT_PATH)).thenReturn(
+        "{\"entries\":[{\"name\":\"Build project version\",\"value\":\"3.8.2.3\"}]}");
+    when(serverMock.download(eq(H2oResourcesDownloadingStep.H2O_SERVER_LIB_PATH), any()))
+        .thenAnswer(invocation -> {
+          Path target = (Path) invocation.getArguments()[1];
+          if (libDownloads.getAndIncrement() > 0) {
+            return Files.write(target, new byte[10]);
+          }
+          libDownloadStarted.countDown();
+          try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException("Download of " + target + " cancelled");
+          }
+          return target;
+        });
+    when(serverMock.download(
+        eq(H2oResourcesDownloadingStep.H2O_SERVER_MODEL_PATH_PREFIX + "first-model"), any()))
+        .thenAnswer(invocation -> {
+          secondBuildJoined.await(10, TimeUnit.SECONDS);
+          throw new IOException("Model not found");
+        });
+    when(serverMock.download(
+        eq(H2oResourcesDownloadingStep.H2O_SERVER_MODEL_PATH_PREFIX + "second-model"), any()))
+        .thenAnswer(invocation -> invocation.getArguments()[1]);
+
+    FutureTask<ModelCompilationStep> firstBuild = new FutureTask<>(() -> step
+        .downloadResources(serverMock, "first-model", Files.createTempDirectory("first")));
+    FutureTask<ModelCompilationStep> secondBuild = new FutureTask<>(() -> step
+        .downloadResources(serverMock, "second-model", Files.createTempDirectory("second")));
+
+    // when
+    new Thread(firstBuild).start();
+    libDownloadStarted.await(10, TimeUnit.SECONDS);
+    new Thread(secondBuild).start();
+    awaitWaitingThread(downloadThreads);
+    secondBuildJoined.countDown();
+
+    // then
+    try {
+      firstBuild.get(10, TimeUnit.SECONDS);
+      fail("EngineBuildingException expected");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(EngineBuildingException.class));
+    }
+    ModelCompilationStep secondResult = secondBuild.get(10, TimeUnit.SECONDS);
+    assertThat(Files.exists(secondResult.getLibPath()), is(true));
+    assertThat(libDownloads.get(), equalTo(2));
+    trackedExecutor.shutdownNow();
+  }
+
+  /**
+   * Returns once one of given threads waits without timeout, i.e. joined shared download.
+   */
+  private void awaitWaitingThread(List<Thread> threads) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (threads.stream().noneMatch(thread -> thread.getState() == Thread.State.WAITING)
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
 }
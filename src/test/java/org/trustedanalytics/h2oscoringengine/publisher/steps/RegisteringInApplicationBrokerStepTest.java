@@ -15,11 +15,15 @@ package org.trustedanalytics.h2oscoringengine.publisher.steps;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BROKER_CATALOG_ENDPOINT;
+import static org.trustedanalytics.h2oscoringengine.publisher.http.CloudFoundryEndpoints.APP_BROKER_SERVICE_ENDPOINT_TEMPLATE;
 
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -43,7 +47,8 @@ public class RegisteringInApplicationBrokerStepTest {
   
   private RestTemplate cfRestTemplateMock = mock(RestTemplate.class);
   private RestTemplate basicRestTemplateMock = mock(RestTemplate.class);
-  
+  private AppBitsUploadJob uploadJobMock = mock(AppBitsUploadJob.class);
+
   private HttpHeaders expectedHeaders =
       HttpCommunication.basicAuthJsonHeaders(testCredentials.getBasicAuthToken());
 
@@ -51,7 +56,7 @@ public class RegisteringInApplicationBrokerStepTest {
   public void register_callToAppBrokerOccured() throws Exception {
     // given
     RegisteringInApplicationBrokerStep step = new RegisteringInApplicationBrokerStep(testAppGuid,
-        testCfApi, cfRestTemplateMock);
+        testCfApi, cfRestTemplateMock, uploadJobMock);
 
     // when
     step.register(testCredentials, basicRestTemplateMock, testServiceName, testServiceDescription);
@@ -71,4 +76,50 @@ public class RegisteringInApplicationBrokerStepTest {
         equalTo(testServiceName));
 
   }
+
+  @Test
+  public void register_uploadJobStillProcessed_serviceRegisteredWithoutAwaitingJob()
+      throws Exception {
+    // given
+    RegisteringInApplicationBrokerStep step = new RegisteringInApplicationBrokerStep(testAppGuid,
+        testCfApi, cfRestTemplateMock, uploadJobMock);
+
+    // when
+    step.register(testCredentials, basicRestTemplateMock, testServiceName, testServiceDescription);
+
+    // then
+    verify(uploadJobMock, never()).await();
+    verify(basicRestTemplateMock).exchange(eq(appBrokerEndpoint), same(HttpMethod.POST),
+        any(HttpEntity.class), same(String.class));
+  }
+
+  @Test
+  public void unregister_serviceRegistered_serviceDeletedFromAppBroker() throws Exception {
+    // given
+    RegisteringInApplicationBrokerStep step = new RegisteringInApplicationBrokerStep(testAppGuid,
+        testCfApi, cfRestTemplateMock, uploadJobMock);
+    step.register(testCredentials, basicRestTemplateMock, testServiceName, testServiceDescription);
+
+    // when
+    step.unregister(testCredentials, basicRestTemplateMock);
+
+    // then
+    verify(basicRestTemplateMock).exchange(
+        eq(testCredentials.getHost() + APP_BROKER_SERVICE_ENDPOINT_TEMPLATE),
+        same(HttpMethod.DELETE), any(HttpEntity.class), same(String.class),
+        eq(step.getServiceId()));
+  }
+
+  @Test
+  public void unregister_serviceNotRegistered_noCallToAppBroker() throws Exception {
+    // given
+    RegisteringInApplicationBrokerStep step = new RegisteringInApplicationBrokerStep(testAppGuid,
+        testCfApi, cfRestTemplateMock, uploadJobMock);
+
+    // when
+    step.unregister(testCredentials, basicRestTemplateMock);
+
+    // then
+    verifyZeroInteractions(basicRestTemplateMock);
+  }
 }
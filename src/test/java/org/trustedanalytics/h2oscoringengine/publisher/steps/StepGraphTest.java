@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.trustedanalytics.h2oscoringengine.publisher.steps;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.Closeable;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.trustedanalytics.h2oscoringengine.publisher.EngineBuildingException;
+
+public class StepGraphTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void run_dependentSteps_outputsPassedToDependentSteps() throws Exception {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    StepKey<Integer> first = graph.add("first", inputs -> 2);
+    StepKey<Integer> second = graph.add("second", inputs -> inputs.get(first) * 3, first);
+
+    // when
+    StepResults results = graph.run();
+
+    // then
+    assertThat(results.get(second), equalTo(6));
+    assertThat(results.getDurationsMs().keySet(), contains("first", "second"));
+  }
+
+  @Test
+  public void run_independentSteps_stepsRunConcurrently() throws Exception {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    graph.add("first", inputs -> awaitOther(bothStarted));
+    graph.add("second", inputs -> awaitOther(bothStarted));
+
+    // when
+    StepResults results = graph.run();
+
+    // then
+    assertThat(results.getDurationsMs().size(), equalTo(2));
+    assertThat(bothStarted.getCount(), equalTo(0L));
+  }
+
+  @Test
+  public void run_stepFailed_dependentStepsSkippedAndExceptionThrown() throws Exception {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    AtomicBoolean dependentStepRun = new AtomicBoolean();
+    StepKey<Integer> failing = graph.add("failing", inputs -> {
+      throw new EngineBuildingException("some error");
+    });
+    graph.add("dependent", inputs -> dependentStepRun.getAndSet(true), failing);
+
+    // when
+    try {
+      graph.run();
+    } catch (EngineBuildingException e) {
+      // then
+      assertThat(e.getMessage(), equalTo("some error"));
+      assertThat(dependentStepRun.get(), is(false));
+      return;
+    }
+    throw new AssertionError("Exception expected");
+  }
+
+  @Test
+  public void run_stepFailed_closeableOutputsOfOtherStepsClosed() throws Exception {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    Closeable closeableMock = mock(Closeable.class);
+    StepKey<Optional<Closeable>> closeable =
+        graph.add("closeable", inputs -> Optional.of(closeableMock));
+    StepKey<Integer> failing = graph.add("failing", inputs -> {
+      throw new EngineBuildingException("some error");
+    });
+    graph.add("consuming", inputs -> inputs.get(closeable), closeable, failing);
+
+    // when
+    try {
+      graph.run();
+    } catch (EngineBuildingException e) {
+      // expected
+    }
+
+    // then
+    verify(closeableMock).close();
+  }
+
+  @Test
+  public void run_callerInterrupted_runningStepInterruptedAndOutputsClosed() throws Exception {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    Closeable closeableMock = mock(Closeable.class);
+    CountDownLatch blockingStarted = new CountDownLatch(1);
+    AtomicBoolean blockingInterrupted = new AtomicBoolean();
+    AtomicBoolean dependentStepRun = new AtomicBoolean();
+    StepKey<Optional<Closeable>> closeable =
+        graph.add("closeable", inputs -> Optional.of(closeableMock));
+    StepKey<Boolean> blocking = graph.add("blocking", inputs -> {
+      blockingStarted.countDown();
+      try {
+        return new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        blockingInterrupted.set(true);
+        throw new EngineBuildingException("interrupted", e);
+      }
+    }, closeable);
+    graph.add("dependent", inputs -> dependentStepRun.getAndSet(true), blocking);
+    AtomicReference<EngineBuildingException> failure = new AtomicReference<>();
+    Thread caller = new Thread(() -> {
+      try {
+        graph.run();
+      } catch (EngineBuildingException e) {
+        failure.set(e);
+      }
+    });
+
+    // when
+    caller.start();
+    blockingStarted.await(5, TimeUnit.SECONDS);
+    caller.interrupt();
+    caller.join(TimeUnit.SECONDS.toMillis(5));
+
+    // then
+    assertThat(failure.get().getMessage(), equalTo("Engine building interrupted"));
+    assertThat(blockingInterrupted.get(), is(true));
+    assertThat(dependentStepRun.get(), is(false));
+    verify(closeableMock).close();
+  }
+
+  @Test
+  public void run_listenerGiven_listenerNotifiedAboutEachStep() throws Exception {
+    // given
+    StepListener listenerMock = mock(StepListener.class);
+    StepGraph graph = new StepGraph(executor, listenerMock);
+    graph.add("first", inputs -> 1);
+
+    // when
+    graph.run();
+
+    // then
+    verify(listenerMock).stepStarted("first");
+    verify(listenerMock).stepFinished(eq("first"), anyLong());
+  }
+
+  @Test
+  public void add_inputNotInGraph_exceptionThrown() {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    StepKey<Integer> foreignKey = new StepGraph(executor).add("foreign", inputs -> 1);
+
+    // then
+    thrown.expect(IllegalArgumentException.class);
+
+    // when
+    graph.add("step", inputs -> inputs.get(foreignKey), foreignKey);
+  }
+
+  @Test
+  public void get_stepNotDeclaredAsInput_exceptionThrown() throws Exception {
+    // given
+    StepGraph graph = new StepGraph(executor);
+    StepKey<Integer> first = graph.add("first", inputs -> 1);
+    graph.add("second", inputs -> inputs.get(first));
+
+    // then
+    thrown.expect(IllegalArgumentException.class);
+
+    // when
+    graph.run();
+  }
+
+  private boolean awaitOther(CountDownLatch bothStarted) throws EngineBuildingException {
+    bothStarted.countDown();
+    try {
+      return bothStarted.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new EngineBuildingException("interrupted", e);
+    }
+  }
+}